@@ -0,0 +1,129 @@
+package com.abna.recipe.benchmark;
+
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.util.IngredientCodec;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+import static com.abna.recipe.util.CommonUtil.toSearchKey;
+
+/**
+ * Deterministic recipe fixtures shared by the benchmarks.
+ */
+final class BenchmarkRecipes {
+
+    static final String[] TYPES = {"Indian", "Italian", "Mexican", "Vegetarian", "Breakfast", "Dessert"};
+
+    static final String[] INGREDIENTS = {"Rice", "Chicken", "Tomato", "Onion", "Garlic", "Basil", "Cheese", "Flour",
+            "Milk", "Eggs", "Butter", "Potato", "Chilli", "Cumin", "Beans", "Lemon", "Salt", "Pepper", "Olive Oil", "Sugar"};
+
+    /** distinct ingredients of the synthetic recipes */
+    static final int VOCABULARY = 2000;
+
+    private static final int SEED_BATCH = 10000;
+
+    private BenchmarkRecipes() {
+    }
+
+    static Recipe recipe(int id) {
+        return recipe(id, ingredients(id));
+    }
+
+    private static Recipe recipe(int id, List<String> ingredients) {
+        return Recipe.builder()
+                .id(id)
+                .name("Recipe number " + id)
+                .type(TYPES[id % TYPES.length])
+                .serving(1 + id % 10)
+                .ingredients(ingredients)
+                .instructions("Chop everything, mix it in a large pan and cook on a medium flame for " + id % 60 + " minutes")
+                .createDateTime(LocalDateTime.of(2022, 1, 1, 0, 0))
+                .updateDateTime(LocalDateTime.of(2022, 1, 1, 0, 0).plusSeconds(id))
+                .build();
+    }
+
+    static List<Recipe> recipes(int count) {
+        List<Recipe> recipes = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            recipes.add(recipe(id));
+        }
+        return recipes;
+    }
+
+    static RecipeData recipeData(int id) {
+        Recipe recipe = recipe(id);
+        return RecipeData.builder()
+                .id(id)
+                .name(recipe.getName())
+                .type(recipe.getType())
+                .serving(recipe.getServing())
+                .ingredients(IngredientCodec.join(recipe.getIngredients()))
+                .instructions(recipe.getInstructions())
+                .createDateTime(recipe.getCreateDateTime())
+                .updateDateTime(recipe.getUpdateDateTime())
+                .build();
+    }
+
+    static List<String> ingredients(int id) {
+        List<String> ingredients = new ArrayList<>(6);
+        for (int i = 0; i < 6; i++) {
+            ingredients.add(INGREDIENTS[(id * 7 + i * 3) % INGREDIENTS.length]);
+        }
+        return ingredients;
+    }
+
+    /** squared, so the low numbered ingredients are the common ones */
+    static String syntheticIngredient(SplittableRandom random) {
+        double uniform = random.nextDouble();
+        return "Ingredient " + (int) (uniform * uniform * VOCABULARY);
+    }
+
+    /** six to twelve distinct ingredients of the synthetic vocabulary, the same ones for the same id */
+    static List<String> syntheticIngredients(int id) {
+        SplittableRandom random = new SplittableRandom(id);
+        Set<String> ingredients = new LinkedHashSet<>();
+        for (int count = 6 + random.nextInt(7); ingredients.size() < count; ) {
+            ingredients.add(syntheticIngredient(random));
+        }
+        return new ArrayList<>(ingredients);
+    }
+
+    /**
+     * Inserts recipes 1..rowCount together with their ingredient index rows, bypassing JPA.
+     */
+    static void seed(JdbcTemplate jdbcTemplate, int rowCount) {
+        seed(jdbcTemplate, rowCount, BenchmarkRecipes::ingredients);
+    }
+
+    static void seed(JdbcTemplate jdbcTemplate, int rowCount, IntFunction<List<String>> ingredientsOf) {
+        for (int from = 1; from <= rowCount; from += SEED_BATCH) {
+            List<Object[]> recipes = new ArrayList<>(SEED_BATCH);
+            List<Object[]> ingredients = new ArrayList<>(SEED_BATCH * 6);
+            for (int id = from; id < from + SEED_BATCH && id <= rowCount; id++) {
+                Recipe recipe = recipe(id, ingredientsOf.apply(id));
+                List<String> keys = recipe.getIngredients().stream().map(String::toLowerCase).distinct()
+                        .collect(Collectors.toList());
+                recipes.add(new Object[]{id, recipe.getName(), toSearchKey(recipe.getName()), recipe.getType(),
+                        toSearchKey(recipe.getType()), recipe.getServing(),
+                        IngredientCodec.join(recipe.getIngredients()), recipe.getInstructions(),
+                        Timestamp.valueOf(recipe.getCreateDateTime()), Timestamp.valueOf(recipe.getUpdateDateTime()),
+                        keys.size()});
+                keys.forEach(ingredient -> ingredients.add(new Object[]{recipe.getId(), ingredient}));
+            }
+            jdbcTemplate.batchUpdate("insert into recipes (id, name, name_key, type, type_key, serving, ingredients, "
+                    + "instructions, create_date_time, update_date_time, ingredient_count) "
+                    + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", recipes);
+            jdbcTemplate.batchUpdate("insert into recipe_ingredients (recipe_id, ingredient) values (?, ?)", ingredients);
+        }
+    }
+}
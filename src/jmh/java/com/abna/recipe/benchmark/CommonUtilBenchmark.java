@@ -0,0 +1,77 @@
+package com.abna.recipe.benchmark;
+
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.util.CommonUtil;
+import com.abna.recipe.util.IngredientCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Per-recipe cost of the mapping helpers every read and write goes through.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommonUtilBenchmark {
+
+    private static final Pattern INGREDIENT_SEPARATOR = Pattern.compile("\\s*, \\s*");
+
+    private Recipe recipe;
+
+    private RecipeData recipeData;
+
+    private String joinedIngredients;
+
+    @Setup
+    public void setUp() {
+        recipe = BenchmarkRecipes.recipe(42);
+        recipeData = BenchmarkRecipes.recipeData(42);
+        joinedIngredients = recipeData.getIngredients();
+    }
+
+    @Benchmark
+    public RecipeData mapToRecipeData() {
+        return CommonUtil.mapToRecipeData(recipe);
+    }
+
+    @Benchmark
+    public Recipe mapToRecipeModel() {
+        return CommonUtil.mapToRecipeModel(recipeData);
+    }
+
+    @Benchmark
+    public String[] splitIngredientsWithRegex() {
+        return joinedIngredients.split("\\s*, \\s*");
+    }
+
+    @Benchmark
+    public String[] splitIngredientsWithPrecompiledPattern() {
+        return INGREDIENT_SEPARATOR.split(joinedIngredients);
+    }
+
+    @Benchmark
+    public List<String> splitIngredientsWithCodec() {
+        return IngredientCodec.split(joinedIngredients);
+    }
+
+    @Benchmark
+    public Boolean sanitizeRecipe() {
+        return CommonUtil.sanitizeRecipe(recipe);
+    }
+}
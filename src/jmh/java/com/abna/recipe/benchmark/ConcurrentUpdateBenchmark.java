@@ -0,0 +1,145 @@
+package com.abna.recipe.benchmark;
+
+import com.abna.recipe.RecipeManagerServiceApplication;
+import com.abna.recipe.exceptions.PreconditionFailedException;
+import com.abna.recipe.exceptions.ResourceConflictException;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.service.RecipeManagerService;
+import com.abna.recipe.util.RecipeETags;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of read-modify-write cycles through RecipeManagerService.updateRecipe, one writer against 64. Each
+ * operation is one successful update; a writer losing to another rereads the recipe and reapplies its change, the
+ * conflicts are reported per operation.
+ * <p>
+ * Updates are lock-free, so adding writers must not collapse throughput: 64 writers conditionally updating one
+ * recipe are expected to reach at least a quarter of {@link #oneWriter}, 64 writers on recipes of their own at least
+ * half of it. RecipeConcurrentUpdateTest checks that none of these updates is lost.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class ConcurrentUpdateBenchmark {
+
+    private static final int WRITERS = 64;
+
+    private ConfigurableApplicationContext context;
+
+    private RecipeManagerService recipeManagerService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RecipeManagerServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.abna=WARN",
+                        "recipe.search.reindex-on-startup=false",
+                        "recipe.ingredient-index.backfill-on-startup=false")
+                .run();
+        recipeManagerService = context.getBean(RecipeManagerService.class);
+        for (int id = 1; id <= WRITERS + 1; id++) {
+            recipeManagerService.createRecipe(recipe(id, 0));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /** the recipe a benchmark thread writes when writers do not share one */
+    @State(Scope.Thread)
+    public static class Writer {
+
+        private int ownRecipe;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams threadParams) {
+            ownRecipe = threadParams.getThreadIndex() + 2;
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Conflicts {
+
+        public long conflicts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            conflicts = 0;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Recipe oneWriter(Conflicts conflicts) {
+        return update(1, true, conflicts);
+    }
+
+    @Benchmark
+    @Threads(WRITERS)
+    public Recipe conditionalUpdatesOfOneRecipe(Conflicts conflicts) {
+        return update(1, true, conflicts);
+    }
+
+    @Benchmark
+    @Threads(WRITERS)
+    public Recipe unconditionalUpdatesOfDistinctRecipes(Writer writer, Conflicts conflicts) {
+        return update(writer.ownRecipe, false, conflicts);
+    }
+
+    private Recipe update(int id, boolean conditional, Conflicts conflicts) {
+        while (true) {
+            Recipe current = recipeManagerService.getRecipeById(id);
+            List<String> ifMatch = conditional
+                    ? List.of(RecipeETags.of(id, current.getCreateDateTime(), current.getVersion()))
+                    : List.of();
+            try {
+                return recipeManagerService.updateRecipe(recipe(id, count(current) + 1), ifMatch);
+            } catch (PreconditionFailedException | ResourceConflictException e) {
+                conflicts.conflicts++;
+            }
+        }
+    }
+
+    private static int count(Recipe recipe) {
+        return Integer.parseInt(recipe.getInstructions().substring("count ".length()));
+    }
+
+    private static Recipe recipe(int id, int count) {
+        return Recipe.builder()
+                .id(id)
+                .name("Recipe " + id)
+                .type("Indian")
+                .serving(4)
+                .ingredients(List.of("Rice", "Water"))
+                .instructions("count " + count)
+                .build();
+    }
+}
@@ -0,0 +1,114 @@
+package com.abna.recipe.benchmark;
+
+import com.abna.recipe.RecipeManagerServiceApplication;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overloads the service with unfiltered searches from many clients, all from one address whose rate limit is set
+ * high enough that only the concurrency limit sheds load, and compares the latency distribution with the limits on
+ * and off. Shed requests (503) are answered at once; they are counted separately so the success latency can be read
+ * from the ok share.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(200)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class LoadSheddingBenchmark {
+
+    private static final int ROW_COUNT = 50000;
+
+    @Param({"false", "true"})
+    private boolean limits;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient httpClient;
+
+    private URI searchUri;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Responses {
+
+        public long ok;
+
+        public long shed;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RecipeManagerServiceApplication.class)
+                .properties("server.port=0",
+                        "server.tomcat.threads.max=200",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.abna=WARN",
+                        "recipe.search.reindex-on-startup=false",
+                        "recipe.ingredient-index.backfill-on-startup=false",
+                        // every request has to reach the database
+                        "recipe.query-cache.enabled=false",
+                        "recipe.limits.enabled=" + limits,
+                        // the benchmark threads share one client address, high enough that it never hits its rate limit
+                        "recipe.limits.search.burst=1000000",
+                        "recipe.limits.search.rate-per-second=1000000")
+                .run();
+        BenchmarkRecipes.seed(context.getBean(JdbcTemplate.class), ROW_COUNT);
+
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        searchUri = URI.create("http://localhost:" + port + "/api/v1/recipes?limit=500");
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int unfilteredSearch(Responses responses) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder(searchUri)
+                        .GET()
+                        .build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() == 503) {
+            responses.shed++;
+        } else if (response.statusCode() < 300) {
+            responses.ok++;
+        } else {
+            throw new IllegalStateException("unexpected status " + response.statusCode() + " from " + searchUri);
+        }
+        return response.body().length;
+    }
+}
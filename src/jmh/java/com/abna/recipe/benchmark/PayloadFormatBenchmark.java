@@ -0,0 +1,97 @@
+package com.abna.recipe.benchmark;
+
+import com.abna.recipe.models.Recipe;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encodes and decodes a response of 1000 recipes in each payload format, with and without gzip. The payload size
+ * of every combination is logged during setup; the scores give the CPU time per response on either side.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+@Slf4j
+public class PayloadFormatBenchmark {
+
+    private static final int RECIPE_COUNT = 1000;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private ObjectWriter writer;
+
+    private ObjectReader reader;
+
+    private List<Recipe> recipes;
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        // configured like the application's mappers, dates as ISO strings
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if ("cbor".equals(format)) {
+            builder.factory(new CBORFactory());
+        } else if ("smile".equals(format)) {
+            builder.factory(new SmileFactory());
+        }
+        ObjectMapper mapper = builder.build();
+        writer = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, Recipe.class));
+        reader = mapper.readerFor(Recipe[].class);
+        recipes = BenchmarkRecipes.recipes(RECIPE_COUNT);
+        payload = encode();
+        log.info(RECIPE_COUNT + " recipes as " + format + (gzip ? " with gzip" : "") + ": " + payload.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        if (!gzip) {
+            return writer.writeValueAsBytes(recipes);
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+            writer.writeValue(gzipOutputStream, recipes);
+        }
+        return compressed.toByteArray();
+    }
+
+    @Benchmark
+    public Recipe[] decode() throws IOException {
+        InputStream inputStream = new ByteArrayInputStream(payload);
+        return reader.readValue(gzip ? new GZIPInputStream(inputStream) : inputStream);
+    }
+}
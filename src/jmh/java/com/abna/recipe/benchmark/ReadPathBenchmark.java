@@ -0,0 +1,110 @@
+package com.abna.recipe.benchmark;
+
+import com.abna.recipe.RecipeManagerServiceApplication;
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.repository.RecipeDataSpecification;
+import com.abna.recipe.util.CommonUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Loads and maps a large page of recipes in a read-write transaction, where Hibernate snapshots every entity for
+ * dirty checking and checks them all on commit, and in a read-only one as the service read paths do. Run with
+ * {@code -prof gc} to compare allocation per operation and GC time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class ReadPathBenchmark {
+
+    private static final int ROW_COUNT = 20000;
+
+    @Param({"500", "5000"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+
+    private EntityManager entityManager;
+
+    private TransactionTemplate readWriteTransaction;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RecipeManagerServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.abna=WARN",
+                        "recipe.search.reindex-on-startup=false",
+                        "recipe.ingredient-index.backfill-on-startup=false")
+                .run();
+        BenchmarkRecipes.seed(context.getBean(JdbcTemplate.class), ROW_COUNT);
+        entityManager = context.getBean(EntityManager.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Recipe> readWriteTransaction() {
+        return readWriteTransaction.execute(status -> loadPage());
+    }
+
+    @Benchmark
+    public List<Recipe> readOnlyTransaction() {
+        return readOnlyTransaction.execute(status -> loadPage());
+    }
+
+    /** the entity query of findPage without its read-only hint, so only the transaction differs */
+    private List<Recipe> loadPage() {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<RecipeData> query = criteriaBuilder.createQuery(RecipeData.class);
+        Root<RecipeData> root = query.from(RecipeData.class);
+        query.select(root)
+                .where(RecipeDataSpecification.getRecipeByIdNotNull().toPredicate(root, query, criteriaBuilder))
+                .orderBy(criteriaBuilder.asc(root.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(pageSize)
+                .getResultList()
+                .stream()
+                .map(CommonUtil::mapToRecipeModel)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,109 @@
+package com.abna.recipe.benchmark;
+
+import com.abna.recipe.RecipeManagerServiceApplication;
+import com.abna.recipe.models.IngredientMatch;
+import com.abna.recipe.models.RecipePage;
+import com.abna.recipe.models.RecipePageRequest;
+import com.abna.recipe.models.RecipeSearchCriteria;
+import com.abna.recipe.service.RecipeBitmapIndex;
+import com.abna.recipe.service.RecipeManagerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RecipeManagerService.getAllRecipes against an H2 database seeded with the given number of recipes, with the filters
+ * resolved by the database or by the bitmap index. Pantry searches are measured by {@link PantrySearchBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class RecipeSearchBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int rowCount;
+
+    @Param({"false", "true"})
+    private boolean bitmapIndex;
+
+    private ConfigurableApplicationContext context;
+
+    private RecipeManagerService recipeManagerService;
+
+    private final RecipePageRequest firstPage = RecipePageRequest.builder().build();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RecipeManagerServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.abna=WARN",
+                        "recipe.search.reindex-on-startup=false",
+                        "recipe.ingredient-index.backfill-on-startup=false",
+                        // measure the search itself, not the query result cache
+                        "recipe.query-cache.enabled=false",
+                        "recipe.bitmap-index.enabled=" + bitmapIndex)
+                .run();
+        recipeManagerService = context.getBean(RecipeManagerService.class);
+        BenchmarkRecipes.seed(context.getBean(JdbcTemplate.class), rowCount);
+        if (bitmapIndex) {
+            // seeded behind the back of the index
+            context.getBean(RecipeBitmapIndex.class).load();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public RecipePage unfilteredFirstPage() {
+        return recipeManagerService.getAllRecipes(new RecipeSearchCriteria(), firstPage);
+    }
+
+    @Benchmark
+    public RecipePage byTypeAndServing() {
+        return recipeManagerService.getAllRecipes(RecipeSearchCriteria.builder()
+                .type("Vegetarian")
+                .serving(4)
+                .build(), firstPage);
+    }
+
+    @Benchmark
+    public RecipePage byIncludedAndExcludedIngredients() {
+        return recipeManagerService.getAllRecipes(RecipeSearchCriteria.builder()
+                .includeIngredients(List.of("Tomato", "Garlic"))
+                .includeMatch(IngredientMatch.ALL)
+                .excludeIngredients(List.of("Chicken"))
+                .build(), firstPage);
+    }
+
+    @Benchmark
+    public RecipePage byNameFragment() {
+        return recipeManagerService.getAllRecipes(RecipeSearchCriteria.builder()
+                .name("number 99")
+                .build(), firstPage);
+    }
+}
@@ -0,0 +1,50 @@
+package com.abna.recipe.benchmark;
+
+import com.abna.recipe.models.Recipe;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the recipe lists returned by the search endpoint.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipeSerializationBenchmark {
+
+    @Param({"50", "500"})
+    private int recipeCount;
+
+    private ObjectWriter writer;
+
+    private List<Recipe> recipes;
+
+    @Setup
+    public void setUp() {
+        writer = JsonMapper.builder().addModule(new JavaTimeModule()).build().writerFor(List.class);
+        recipes = BenchmarkRecipes.recipes(recipeCount);
+    }
+
+    @Benchmark
+    public byte[] serializeRecipeList() throws Exception {
+        return writer.writeValueAsBytes(recipes);
+    }
+}
@@ -0,0 +1,124 @@
+package com.abna.recipe.benchmark;
+
+import com.abna.recipe.RecipeManagerServiceApplication;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.service.RecipeChangedEvent;
+import com.abna.recipe.service.RecipeSimilarityIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.abna.recipe.benchmark.BenchmarkRecipes.syntheticIngredient;
+import static com.abna.recipe.util.CommonUtil.toIngredientKeys;
+
+/**
+ * RecipeSimilarityIndex.findSimilar over the given number of recipes drawn from 2000 ingredients, the popular ones
+ * more often, every tenth recipe a variant of an earlier one. The recipes are fed to the index as committed creates,
+ * so the database stays empty; the heap used per recipe is logged after the setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+@Slf4j
+public class RecipeSimilarityBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({"100000", "1000000"})
+    private int rowCount;
+
+    private ConfigurableApplicationContext context;
+
+    private RecipeSimilarityIndex recipeSimilarityIndex;
+
+    private final List<Set<String>> queries = new ArrayList<>(QUERIES);
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        context = new SpringApplicationBuilder(RecipeManagerServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.abna=WARN",
+                        "logging.level.com.abna.recipe.benchmark=INFO",
+                        "recipe.search.reindex-on-startup=false",
+                        "recipe.ingredient-index.backfill-on-startup=false",
+                        "recipe.similarity.enabled=true")
+                .run();
+        recipeSimilarityIndex = context.getBean(RecipeSimilarityIndex.class);
+        // the recipes are fed to the index directly, after the background load of the empty database
+        if (!recipeSimilarityIndex.awaitLoaded(Duration.ofMinutes(1))) {
+            throw new IllegalStateException("similarity index did not load");
+        }
+
+        long used = usedHeap();
+        SplittableRandom random = new SplittableRandom(42);
+        List<List<String>> earlier = new ArrayList<>();
+        for (int id = 1; id <= rowCount; id++) {
+            List<String> ingredients = new ArrayList<>();
+            if (id % 10 == 0) {
+                ingredients.addAll(earlier.get(random.nextInt(earlier.size())));
+                ingredients.set(0, syntheticIngredient(random));
+            } else {
+                for (int i = 6 + random.nextInt(7); i > 0; i--) {
+                    ingredients.add(syntheticIngredient(random));
+                }
+            }
+            if (earlier.size() < 10000) {
+                earlier.add(ingredients);
+            }
+            if (queries.size() < QUERIES) {
+                queries.add(toIngredientKeys(ingredients));
+            }
+            recipeSimilarityIndex.onRecipeChanged(RecipeChangedEvent.created(Recipe.builder()
+                    .id(id)
+                    .ingredients(ingredients)
+                    .build()));
+        }
+        earlier.clear();
+        log.info("similarity index heap per recipe: " + (usedHeap() - used) / rowCount + " bytes");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Integer> similarRecipes() {
+        int query = next++ & (QUERIES - 1);
+        return recipeSimilarityIndex.findSimilar(query + 1, queries.get(query), 20);
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
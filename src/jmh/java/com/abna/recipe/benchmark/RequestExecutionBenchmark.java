@@ -0,0 +1,111 @@
+package com.abna.recipe.benchmark;
+
+import com.abna.recipe.RecipeManagerServiceApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load comparison of the two request execution modes: many more concurrent clients than Tomcat has worker threads
+ * hit the list and single recipe endpoints of a running service over HTTP. Throughput and the latency distribution
+ * show how each mode copes once the worker pool is saturated; non-2xx responses (e.g. 503 from a full executor
+ * queue) are counted as failures and make the run fail.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(400)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class RequestExecutionBenchmark {
+
+    private static final int ROW_COUNT = 50000;
+
+    @Param({"servlet", "async"})
+    private String executionMode;
+
+    /** Tomcat worker threads, kept well below the number of benchmark threads */
+    @Param({"50"})
+    private int tomcatThreads;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient httpClient;
+
+    private URI recipesUri;
+
+    private URI recipeUri;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RecipeManagerServiceApplication.class)
+                .properties("server.port=0",
+                        "server.tomcat.threads.max=" + tomcatThreads,
+                        "recipe.execution.mode=" + executionMode,
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.abna=WARN",
+                        "recipe.search.reindex-on-startup=false",
+                        "recipe.ingredient-index.backfill-on-startup=false",
+                        // all benchmark threads share one client address, see LoadSheddingBenchmark for the limits
+                        "recipe.limits.enabled=false")
+                .run();
+        BenchmarkRecipes.seed(context.getBean(JdbcTemplate.class), ROW_COUNT);
+
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        recipesUri = URI.create("http://localhost:" + port + "/api/v1/recipes?includeIngredients=Tomato&limit=20");
+        recipeUri = URI.create("http://localhost:" + port + "/api/v1/recipe/4242");
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int filteredPage() throws IOException, InterruptedException {
+        return get(recipesUri);
+    }
+
+    @Benchmark
+    public int singleRecipe() throws IOException, InterruptedException {
+        return get(recipeUri);
+    }
+
+    private int get(URI uri) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException("unexpected status " + response.statusCode() + " from " + uri);
+        }
+        return response.body().length;
+    }
+}
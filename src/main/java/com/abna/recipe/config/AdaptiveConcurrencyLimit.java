@@ -0,0 +1,97 @@
+package com.abna.recipe.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limit on the number of requests of one class in flight, adjusted from their latency.
+ * <p>
+ * By Little's law the requests in flight equal throughput times latency. While the backend keeps up, more
+ * concurrency raises throughput and latency stays near its long-term average; once it is saturated extra requests
+ * only wait, and latency grows with them. Each completed request therefore moves the limit towards
+ * {@code limit * longTermRtt / rtt}, which keeps the limit when latency is at its usual level (within a tolerance)
+ * and shrinks it in proportion as latency rises, plus a small allowance of {@code sqrt(limit)} so the limit
+ * probes upwards while latency allows. Requests beyond the limit are rejected at once instead of queueing, which
+ * keeps the wait of the admitted ones, and so the tail latency, bounded.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    /** latency may exceed its long-term average this much before the limit shrinks */
+    private static final double TOLERANCE = 1.5;
+
+    /** weight of a new estimate, damps the reaction to single slow or fast requests */
+    private static final double SMOOTHING = 0.2;
+
+    /** samples the long-term latency average spans */
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+
+    private double estimatedLimit;
+
+    private double longRtt;
+
+    private long samples;
+
+    public AdaptiveConcurrencyLimit(int minLimit, int maxLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.estimatedLimit = this.minLimit;
+        this.limit = this.minLimit;
+    }
+
+    /**
+     * Admits a request unless the limit is reached; an admitted request must be {@link #release(long) released}.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Ends an admitted request and adjusts the limit with its latency.
+     */
+    public void release(long rttNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        onSample(Math.max(1, rttNanos), inFlightBefore);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long rtt, int inFlightBefore) {
+        samples++;
+        longRtt = samples == 1 ? rtt : longRtt + (rtt - longRtt) / Math.min(samples, LONG_WINDOW);
+        if (longRtt > 2 * rtt) {
+            // latency recovered after a long stretch of overload, let the average catch up faster
+            longRtt = Math.max(rtt, longRtt * 0.95);
+        }
+
+        if (inFlightBefore < estimatedLimit / 2) {
+            // the limit is far from being used, the sample tells nothing about how much concurrency is too much
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / rtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+                estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+        limit = (int) estimatedLimit;
+    }
+}
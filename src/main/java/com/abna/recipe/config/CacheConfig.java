@@ -0,0 +1,20 @@
+package com.abna.recipe.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Caches are backed by Caffeine (W-TinyLFU eviction); size, TTL and statistics recording are set through
+ * spring.cache.caffeine.spec, and hit/miss/eviction counters are published as cache.* metrics by actuator.
+ * <p>
+ * The caching advice runs outside the transaction advice, so a cache put or evict only happens once the
+ * transaction of the annotated method has committed and readers never see an uncommitted recipe version.
+ */
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfig {
+
+    public static final String RECIPES_CACHE = "recipes";
+
+}
@@ -0,0 +1,72 @@
+package com.abna.recipe.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Besides what actuator instruments on its own (http.server.requests per endpoint, spring.data.repository.invocations
+ * per repository method, hikaricp.* pool gauges), this times the service classes annotated with @Timed and the
+ * JSON serialization of response bodies, so a slow request can be split into query, mapping and serialization time.
+ * Percentiles and histograms are configured per meter in application.properties.
+ */
+@Configuration
+public class MetricsConfig {
+
+    public static final String SERVICE_METRIC = "recipe.service";
+
+    public static final String FULL_TEXT_SEARCH_METRIC = "recipe.search.fulltext";
+
+    public static final String SEARCH_PHASE_METRIC = "recipe.search.phase";
+
+    public static final String SEARCH_FILTERS_METRIC = "recipe.search.filters";
+
+    public static final String JSON_SERIALIZATION_METRIC = "http.json.serialization";
+
+    public static final String REJECTED_REQUESTS_METRIC = "recipe.requests.rejected";
+
+    public static final String CONCURRENCY_LIMIT_METRIC = "recipe.requests.concurrency.limit";
+
+    public static final String IN_FLIGHT_METRIC = "recipe.requests.in.flight";
+
+    public static final String BITMAP_INDEX_METRIC = "recipe.search.bitmap.index.size";
+
+    public static final String SIMILARITY_INDEX_METRIC = "recipe.similarity.index.recipes";
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    /** replaces the default Jackson converter, see HttpMessageConverters */
+    @Bean
+    public MappingJackson2HttpMessageConverter timedJacksonHttpMessageConverter(ObjectMapper objectMapper,
+                                                                               MeterRegistry meterRegistry) {
+        Timer timer = Timer.builder(JSON_SERIALIZATION_METRIC)
+                .description("time spent writing JSON response bodies")
+                .register(meterRegistry);
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, @Nullable Type type, HttpOutputMessage outputMessage)
+                    throws IOException, HttpMessageNotWritableException {
+                long start = System.nanoTime();
+                try {
+                    super.writeInternal(object, type, outputMessage);
+                } finally {
+                    timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,227 @@
+package com.abna.recipe.config;
+
+import com.abna.recipe.exceptions.ErrorMessages;
+import com.abna.recipe.models.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rejects API requests early instead of letting them queue: a client over its rate gets 429, and any request
+ * beyond the adaptive concurrency limit of its class gets 503, both with Retry-After. Searches, reads by id and
+ * writes have separate budgets, so a client paging through unfiltered searches cannot use up the capacity of
+ * cheap reads.
+ */
+@Slf4j
+public class RecipeLoadSheddingFilter extends OncePerRequestFilter {
+
+    private static final String API_PREFIX = "/api/v1/";
+
+    public enum RequestClass {
+        SEARCH, READ, WRITE;
+
+        /** the class of an API request, null for requests outside the API such as actuator and swagger */
+        @Nullable
+        public static RequestClass of(String method, String path) {
+            if (!path.startsWith(API_PREFIX)) {
+                return null;
+            }
+            if ("GET".equals(method) || "HEAD".equals(method)) {
+                if (path.startsWith(API_PREFIX + "recipe/")) {
+                    return READ;
+                }
+                if (path.startsWith(API_PREFIX + "recipes")) {
+                    return SEARCH;
+                }
+            }
+            return WRITE;
+        }
+    }
+
+    private final RecipeProperties.Limits properties;
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<RequestClass, Cache<String, TokenBucket>> buckets = new EnumMap<>(RequestClass.class);
+
+    private final Map<RequestClass, AdaptiveConcurrencyLimit> concurrencyLimits = new EnumMap<>(RequestClass.class);
+
+    private final Map<RequestClass, Counter> rateLimited = new EnumMap<>(RequestClass.class);
+
+    private final Map<RequestClass, Counter> overloaded = new EnumMap<>(RequestClass.class);
+
+    public RecipeLoadSheddingFilter(RecipeProperties.Limits properties, ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        for (RequestClass requestClass : RequestClass.values()) {
+            RecipeProperties.Limits.Budget budget = budget(requestClass);
+            String tag = requestClass.name().toLowerCase(Locale.ROOT);
+            buckets.put(requestClass, Caffeine.newBuilder()
+                    .maximumSize(properties.getMaxClients())
+                    .expireAfterAccess(properties.getClientIdleTimeout())
+                    .build());
+            AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(budget.getMinConcurrency(),
+                    budget.getMaxConcurrency());
+            concurrencyLimits.put(requestClass, limit);
+            Gauge.builder(MetricsConfig.CONCURRENCY_LIMIT_METRIC, limit, AdaptiveConcurrencyLimit::getLimit)
+                    .description("current adaptive concurrency limit")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            Gauge.builder(MetricsConfig.IN_FLIGHT_METRIC, limit, AdaptiveConcurrencyLimit::getInFlight)
+                    .description("requests admitted and not yet completed")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            rateLimited.put(requestClass, meterRegistry.counter(MetricsConfig.REJECTED_REQUESTS_METRIC,
+                    "class", tag, "reason", "rate_limit"));
+            overloaded.put(requestClass, meterRegistry.counter(MetricsConfig.REJECTED_REQUESTS_METRIC,
+                    "class", tag, "reason", "overload"));
+        }
+    }
+
+    public AdaptiveConcurrencyLimit concurrencyLimit(RequestClass requestClass) {
+        return concurrencyLimits.get(requestClass);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestClass requestClass = RequestClass.of(request.getMethod(),
+                request.getRequestURI().substring(request.getContextPath().length()));
+        if (requestClass == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String client = client(request);
+        long now = System.nanoTime();
+        RecipeProperties.Limits.Budget budget = budget(requestClass);
+        long retryAfterNanos = buckets.get(requestClass)
+                .get(client, key -> new TokenBucket(budget.getBurst(), budget.getRatePerSecond(), now))
+                .tryConsume(now);
+        if (retryAfterNanos > 0) {
+            log.debug("rate limit reached for " + requestClass + " requests of client " + client);
+            rateLimited.get(requestClass).increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, ErrorMessages.TOO_MANY_REQUESTS, retryAfterNanos);
+            return;
+        }
+
+        AdaptiveConcurrencyLimit limit = concurrencyLimits.get(requestClass);
+        if (!limit.tryAcquire()) {
+            log.debug("concurrency limit " + limit.getLimit() + " reached for " + requestClass + " requests");
+            overloaded.get(requestClass).increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, ErrorMessages.SERVICE_UNAVAILABLE,
+                    TimeUnit.SECONDS.toNanos(1));
+            return;
+        }
+
+        Release release = new Release(limit, now);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // the controller returned a future, the request is done when the async processing completes
+                request.getAsyncContext().addListener(release);
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    /**
+     * The principal authenticated by the security chain, otherwise the remote address. Nothing checks request
+     * headers, so keying by one would let a client escape its rate by sending a new value with every request and
+     * evict the buckets of other clients from the cache on the way.
+     */
+    private String client(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal == null ? request.getRemoteAddr() : "user " + principal.getName();
+    }
+
+    private RecipeProperties.Limits.Budget budget(RequestClass requestClass) {
+        switch (requestClass) {
+            case SEARCH:
+                return properties.getSearch();
+            case READ:
+                return properties.getRead();
+            default:
+                return properties.getWrite();
+        }
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message, long retryAfterNanos)
+            throws IOException {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos - 1) + 1);
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorResponse(status.value(), message, LocalDateTime.now()));
+    }
+
+    /** gives the permit back once, whether the request completes, fails or times out */
+    private static final class Release implements AsyncListener, Runnable {
+
+        private final AdaptiveConcurrencyLimit limit;
+
+        private final long startedAt;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Release(AdaptiveConcurrencyLimit limit, long startedAt) {
+            this.limit = limit;
+            this.startedAt = startedAt;
+        }
+
+        @Override
+        public void run() {
+            if (released.compareAndSet(false, true)) {
+                limit.release(System.nanoTime() - startedAt);
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.abna.recipe.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "recipe")
+public class RecipeProperties {
+
+    private Search search = new Search();
+
+    private Batch batch = new Batch();
+
+    private Execution execution = new Execution();
+
+    private QueryCache queryCache = new QueryCache();
+
+    private JsonCache jsonCache = new JsonCache();
+
+    private Startup startup = new Startup();
+
+    private Limits limits = new Limits();
+
+    private RequestDecompression requestDecompression = new RequestDecompression();
+
+    private BitmapIndex bitmapIndex = new BitmapIndex();
+
+    private Pantry pantry = new Pantry();
+
+    private Similarity similarity = new Similarity();
+
+    @Data
+    public static class Search {
+
+        /** page size used when the client does not ask for one */
+        private int defaultPageSize = 50;
+
+        /** upper bound for the page size a client can ask for */
+        private int maxPageSize = 500;
+    }
+
+    @Data
+    public static class Batch {
+
+        /** items written per transaction, should be a multiple of hibernate.jdbc.batch_size */
+        private int chunkSize = 500;
+
+        /** upper bound for the number of items in one batch request */
+        private int maxItems = 10000;
+    }
+
+    @Data
+    public static class Execution {
+
+        /** SERVLET runs the service calls on the Tomcat worker, ASYNC hands them to a bounded executor */
+        private Mode mode = Mode.SERVLET;
+
+        private int corePoolSize = 32;
+
+        private int maxPoolSize = 128;
+
+        /** requests waiting for a worker beyond this are rejected with 503 */
+        private int queueCapacity = 2000;
+
+        public enum Mode {
+            SERVLET, ASYNC
+        }
+    }
+
+    @Data
+    public static class QueryCache {
+
+        /** caches structured search pages per normalized filter combination */
+        private boolean enabled = true;
+
+        /** estimated heap bytes the cached pages may take before the least used ones are dropped */
+        private long maxWeightBytes = 32L * 1024 * 1024;
+
+        private Duration expireAfterWrite = Duration.ofMinutes(10);
+
+        /** pages invalidated by a write are reloaded in the background once they have been hit this often */
+        private int rewarmMinHits = 3;
+
+        /** threads reloading invalidated pages, each holds a database connection while it runs a search */
+        private int rewarmThreads = 2;
+
+        /** reloads waiting for a thread beyond this are skipped, the page is then loaded by its next request */
+        private int rewarmQueueCapacity = 100;
+    }
+
+    @Data
+    public static class JsonCache {
+
+        /** serialized bytes of single recipes kept for the read endpoints, weighed by their length */
+        private long maxWeightBytes = 64L * 1024 * 1024;
+
+        /** recipes smaller than this are always sent uncompressed, gzip would barely shrink them */
+        private int gzipMinSize = 512;
+    }
+
+    @Data
+    public static class Startup {
+
+        /** time from launch until the service is ready that is expected at most, exceeding it is logged as a warning */
+        private Duration budget = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Limits {
+
+        /** rate limits per client and adaptive concurrency limits in front of the /api endpoints */
+        private boolean enabled = true;
+
+        /** clients whose rate limit state is kept, the least recently seen ones are dropped beyond this */
+        private int maxClients = 100000;
+
+        /** state of clients that made no request for this long is dropped, they start with a full burst again */
+        private Duration clientIdleTimeout = Duration.ofMinutes(10);
+
+        /** list, search and export requests, which can scan many rows */
+        private Budget search = new Budget(20, 10, 4, 64);
+
+        /** single recipe reads by id */
+        private Budget read = new Budget(200, 100, 16, 256);
+
+        /** creates, updates, deletes and batches */
+        private Budget write = new Budget(50, 20, 8, 128);
+
+        @Data
+        @NoArgsConstructor
+        @AllArgsConstructor
+        public static class Budget {
+
+            /** requests a client can make at once before the rate limit applies */
+            private int burst;
+
+            /** sustained requests per second of a client, beyond that requests are rejected with 429 */
+            private double ratePerSecond;
+
+            /** concurrency limit the adaptive limit starts at and does not go below */
+            private int minConcurrency;
+
+            /** concurrency limit the adaptive limit does not go above; requests beyond the limit get 503 */
+            private int maxConcurrency;
+        }
+    }
+
+    @Data
+    public static class RequestDecompression {
+
+        /** accepts request bodies sent with Content-Encoding: gzip, such as large batch uploads */
+        private boolean enabled = true;
+
+        /** bodies that inflate beyond this are rejected with 413, a small compressed body can expand a lot */
+        private DataSize maxSize = DataSize.ofMegabytes(32);
+    }
+
+    @Data
+    public static class BitmapIndex {
+
+        /**
+         * resolves type, serving and ingredient filters from in-memory bitmaps, loaded in the background at startup;
+         * only follows the writes of this instance, so it suits a single instance owning the database
+         */
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class Pantry {
+
+        /** upper bound for the number of ingredients in a pantry search */
+        private int maxIngredients = 100;
+
+        /** upper bound for the number of missing ingredients a pantry search can tolerate */
+        private int maxMissing = 5;
+    }
+
+    @Data
+    public static class Similarity {
+
+        /**
+         * keeps MinHash signatures of the recipe ingredients in memory for similar recipes, loaded in the background
+         * at startup; only follows the writes of this instance, so it suits a single instance owning the database
+         */
+        private boolean enabled = false;
+
+        /** LSH bands; recipes sharing the rows of any band are compared, more bands find less similar recipes */
+        private int bands = 16;
+
+        /** signature rows per band, the signature holds bands * rows hashes */
+        private int rows = 4;
+
+        /** recipes whose signatures are compared at most per request, those sharing most bands first */
+        private int maxCandidates = 1000;
+
+        /** recipes kept per LSH bucket, bounds lookups among many recipes with the same ingredients */
+        private int maxBucketSize = 1000;
+
+        /** similar recipes returned when the client does not ask for a number */
+        private int defaultResults = 10;
+
+        /** upper bound for the number of similar recipes a client can ask for */
+        private int maxResults = 100;
+    }
+}
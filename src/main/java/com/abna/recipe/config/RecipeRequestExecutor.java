@@ -0,0 +1,45 @@
+package com.abna.recipe.config;
+
+import com.abna.recipe.exceptions.ErrorMessages;
+import com.abna.recipe.exceptions.ServiceUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs the work of a controller method either inline on the servlet thread or on a bounded executor, in which
+ * case the servlet thread goes back to Tomcat while the request waits asynchronously for the result.
+ */
+@Slf4j
+public class RecipeRequestExecutor implements DisposableBean {
+
+    private final ThreadPoolTaskExecutor executor;
+
+    public RecipeRequestExecutor(@Nullable ThreadPoolTaskExecutor executor) {
+        this.executor = executor;
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+        if (executor == null) {
+            return CompletableFuture.completedFuture(work.get());
+        }
+        try {
+            return CompletableFuture.supplyAsync(work, executor);
+        } catch (RejectedExecutionException e) {
+            log.error("request executor saturated, rejecting request");
+            throw new ServiceUnavailableException(ErrorMessages.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
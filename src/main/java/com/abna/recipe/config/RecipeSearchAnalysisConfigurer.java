@@ -0,0 +1,32 @@
+package com.abna.recipe.config;
+
+import org.apache.lucene.analysis.core.LowerCaseFilterFactory;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilterFactory;
+import org.apache.lucene.analysis.snowball.SnowballPorterFilterFactory;
+import org.apache.lucene.analysis.standard.StandardTokenizerFactory;
+import org.hibernate.search.backend.lucene.analysis.LuceneAnalysisConfigurationContext;
+import org.hibernate.search.backend.lucene.analysis.LuceneAnalysisConfigurer;
+
+/**
+ * Analyzers of the full-text index, referenced from the search mapping on {@link com.abna.recipe.entity.RecipeData}.
+ */
+public class RecipeSearchAnalysisConfigurer implements LuceneAnalysisConfigurer {
+
+    public static final String ENGLISH = "recipe_english";
+
+    public static final String LOWERCASE = "recipe_lowercase";
+
+    @Override
+    public void configure(LuceneAnalysisConfigurationContext context) {
+        context.analyzer(ENGLISH).custom()
+                .tokenizer(StandardTokenizerFactory.class)
+                .tokenFilter(LowerCaseFilterFactory.class)
+                .tokenFilter(ASCIIFoldingFilterFactory.class)
+                .tokenFilter(SnowballPorterFilterFactory.class)
+                .param("language", "English");
+
+        context.normalizer(LOWERCASE).custom()
+                .tokenFilter(LowerCaseFilterFactory.class)
+                .tokenFilter(ASCIIFoldingFilterFactory.class);
+    }
+}
@@ -0,0 +1,206 @@
+package com.abna.recipe.config;
+
+import com.abna.recipe.exceptions.ErrorMessages;
+import com.abna.recipe.exceptions.PayloadTooLargeException;
+import com.abna.recipe.models.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Inflates request bodies sent with Content-Encoding: gzip before the message converters read them, so clients
+ * can upload large batches compressed. The inflated size is capped, a body growing beyond the cap fails the
+ * request with 413 while it is being read instead of filling the heap; other encodings are rejected with 415.
+ */
+@Component
+@ConditionalOnProperty(name = "recipe.request-decompression.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class RequestDecompressionFilter extends OncePerRequestFilter {
+
+    private static final List<String> HIDDEN_HEADERS = List.of(HttpHeaders.CONTENT_ENCODING.toLowerCase(Locale.ROOT),
+            HttpHeaders.CONTENT_LENGTH.toLowerCase(Locale.ROOT));
+
+    private final long maxSize;
+
+    private final ObjectMapper objectMapper;
+
+    public RequestDecompressionFilter(RecipeProperties recipeProperties, ObjectMapper objectMapper) {
+        this.maxSize = recipeProperties.getRequestDecompression().getMaxSize().toBytes();
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return Objects.isNull(request.getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING).trim().toLowerCase(Locale.ROOT);
+        if ("identity".equals(encoding)) {
+            filterChain.doFilter(request, response);
+        } else if ("gzip".equals(encoding) || "x-gzip".equals(encoding)) {
+            log.debug("inflating gzip request body of bytes: " + request.getContentLengthLong());
+            filterChain.doFilter(new InflatingRequest(request, maxSize), response);
+        } else {
+            log.error("unsupported request Content-Encoding: " + encoding);
+            HttpStatus status = HttpStatus.UNSUPPORTED_MEDIA_TYPE;
+            response.setStatus(status.value());
+            response.setHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(),
+                    new ErrorResponse(status.value(), ErrorMessages.UNSUPPORTED_CONTENT_ENCODING, LocalDateTime.now()));
+        }
+    }
+
+    /** the request as the application sees it once inflated: no Content-Encoding and no known length */
+    private static final class InflatingRequest extends HttpServletRequestWrapper {
+
+        private final long maxSize;
+
+        private ServletInputStream inputStream;
+
+        private InflatingRequest(HttpServletRequest request, long maxSize) {
+            super(request);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = new InflatingInputStream(new GZIPInputStream(super.getInputStream()), maxSize);
+            }
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            Charset charset = Objects.isNull(getCharacterEncoding())
+                    ? StandardCharsets.UTF_8 : Charset.forName(getCharacterEncoding());
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isHidden(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isHidden(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+                    .filter(name -> !isHidden(name))
+                    .collect(Collectors.toList()));
+        }
+
+        private static boolean isHidden(String name) {
+            return HIDDEN_HEADERS.contains(name.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private static final class InflatingInputStream extends ServletInputStream {
+
+        private final InputStream inflater;
+
+        private final long maxSize;
+
+        private long inflated;
+
+        private boolean finished;
+
+        private InflatingInputStream(InputStream inflater, long maxSize) {
+            this.inflater = inflater;
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = inflater.read();
+            count(b < 0 ? -1 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = inflater.read(buffer, offset, length);
+            count(read);
+            return read;
+        }
+
+        private void count(int read) {
+            if (read < 0) {
+                finished = true;
+                return;
+            }
+            inflated += read;
+            if (inflated > maxSize) {
+                log.error("request body inflates beyond bytes: " + maxSize);
+                // unchecked, so it is not taken for a broken connection; RecipeManagerExceptionHandler answers with 413
+                throw new PayloadTooLargeException(ErrorMessages.PAYLOAD_TOO_LARGE);
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            // the servlet contract for a request that is not in async mode, which is the only way bodies are read here
+            throw new IllegalStateException("inflated request bodies are read blocking");
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.close();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.abna.recipe.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Chooses where the controllers run their blocking service calls, see recipe.execution.mode, and sizes the executor
+ * reloading invalidated query cache pages.
+ */
+@Configuration
+@Slf4j
+public class RequestExecutionConfig {
+
+    @Bean
+    public RecipeRequestExecutor recipeRequestExecutor(RecipeProperties recipeProperties) {
+        RecipeProperties.Execution execution = recipeProperties.getExecution();
+        if (execution.getMode() == RecipeProperties.Execution.Mode.SERVLET) {
+            log.info("request execution mode: servlet");
+            return new RecipeRequestExecutor(null);
+        }
+
+        log.info("request execution mode: async, max pool size " + execution.getMaxPoolSize());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("recipe-request-");
+        executor.setCorePoolSize(execution.getCorePoolSize());
+        executor.setMaxPoolSize(execution.getMaxPoolSize());
+        executor.setQueueCapacity(execution.getQueueCapacity());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return new RecipeRequestExecutor(executor);
+    }
+
+    /**
+     * Reloads popular query cache pages after a write invalidated them. The searches block on the database, so they
+     * get a few threads of their own rather than the common pool, and a full queue skips the reload.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor recipeRewarmExecutor(RecipeProperties recipeProperties) {
+        RecipeProperties.QueryCache queryCache = recipeProperties.getQueryCache();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("recipe-rewarm-");
+        executor.setCorePoolSize(queryCache.getRewarmThreads());
+        executor.setMaxPoolSize(queryCache.getRewarmThreads());
+        executor.setQueueCapacity(queryCache.getRewarmQueueCapacity());
+        executor.initialize();
+        return executor;
+    }
+}
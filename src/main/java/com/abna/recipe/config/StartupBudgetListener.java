@@ -0,0 +1,38 @@
+package com.abna.recipe.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Compares the time the service took to become ready with recipe.startup.budget. The measured time is also
+ * published by actuator as application.ready.time.
+ */
+@Component
+@Slf4j
+public class StartupBudgetListener implements ApplicationListener<ApplicationReadyEvent> {
+
+    private final RecipeProperties recipeProperties;
+
+    public StartupBudgetListener(RecipeProperties recipeProperties) {
+        this.recipeProperties = recipeProperties;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        Duration timeTaken = event.getTimeTaken();
+        Duration budget = recipeProperties.getStartup().getBudget();
+        if (timeTaken == null) {
+            return;
+        }
+        if (timeTaken.compareTo(budget) > 0) {
+            log.warn("service ready after " + timeTaken.toMillis() + " ms, over the startup budget of "
+                    + budget.toMillis() + " ms");
+        } else {
+            log.info("service ready after " + timeTaken.toMillis() + " ms, startup budget " + budget.toMillis() + " ms");
+        }
+    }
+}
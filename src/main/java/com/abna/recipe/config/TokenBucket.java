@@ -0,0 +1,40 @@
+package com.abna.recipe.config;
+
+/**
+ * Rate limit of one client for one class of requests: holds up to a burst of tokens and is refilled at a steady
+ * rate, each request takes a token. Time is passed in so the bucket does not read the clock itself.
+ */
+final class TokenBucket {
+
+    private final double capacity;
+
+    private final double tokensPerNano;
+
+    private double tokens;
+
+    private long refilledAt;
+
+    TokenBucket(int burst, double ratePerSecond, long now) {
+        this.capacity = Math.max(1, burst);
+        this.tokensPerNano = ratePerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.refilledAt = now;
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return 0 when a token was taken, otherwise the nanoseconds until the next one is available
+     */
+    synchronized long tryConsume(long now) {
+        if (now > refilledAt) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+        }
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return tokensPerNano > 0 ? Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano)) : Long.MAX_VALUE;
+    }
+}
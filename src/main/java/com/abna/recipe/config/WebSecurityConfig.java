@@ -1,5 +1,7 @@
 package com.abna.recipe.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -7,6 +9,7 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.servletapi.SecurityContextHolderAwareRequestFilter;
 
 @Configuration
 @EnableWebSecurity
@@ -15,12 +18,21 @@ import org.springframework.security.web.SecurityFilterChain;
 public class WebSecurityConfig {
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity httpSecurity) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity httpSecurity, RecipeProperties recipeProperties,
+                                           ObjectMapper objectMapper, MeterRegistry meterRegistry) throws Exception {
         log.info("Disabling CORS and CSRF for now");
         httpSecurity
                 .csrf().disable()
                 .cors().disable();
 
+        if (recipeProperties.getLimits().isEnabled()) {
+            log.info("Rate and concurrency limits enabled for the API");
+            // not a bean, so the servlet container does not register it a second time outside the security chain;
+            // behind the request wrapper, so it sees the principal the chain authenticated
+            httpSecurity.addFilterAfter(
+                    new RecipeLoadSheddingFilter(recipeProperties.getLimits(), objectMapper, meterRegistry),
+                    SecurityContextHolderAwareRequestFilter.class);
+        }
         return httpSecurity.build();
     }
 
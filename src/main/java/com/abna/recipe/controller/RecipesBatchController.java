@@ -0,0 +1,117 @@
+package com.abna.recipe.controller;
+
+import com.abna.recipe.config.RecipeProperties;
+import com.abna.recipe.config.RecipeRequestExecutor;
+import com.abna.recipe.exceptions.BadRequestException;
+import com.abna.recipe.exceptions.ErrorMessages;
+import com.abna.recipe.models.BatchItemResult;
+import com.abna.recipe.models.ErrorResponse;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.service.RecipeBatchService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+import static com.abna.recipe.config.PayloadFormatConfig.APPLICATION_SMILE_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_CBOR_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+@RestController
+@RequestMapping("/api/v1")
+@Slf4j
+public class RecipesBatchController {
+
+    private final RecipeBatchService recipeBatchService;
+
+    private final RecipeProperties recipeProperties;
+
+    private final RecipeRequestExecutor recipeRequestExecutor;
+
+    public RecipesBatchController(RecipeBatchService recipeBatchService, RecipeProperties recipeProperties,
+                                  RecipeRequestExecutor recipeRequestExecutor) {
+        this.recipeBatchService = recipeBatchService;
+        this.recipeProperties = recipeProperties;
+        this.recipeRequestExecutor = recipeRequestExecutor;
+    }
+
+    @PostMapping(value = "/recipes:batchCreate", consumes = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE},
+            produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    @Operation(description = "Create many recipes at once; every item gets the status it would have had as a single create. "
+            + "The items can be sent as JSON, CBOR or Smile, and gzip compressed with Content-Encoding: gzip.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "batch processed, see the per item results",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = BatchItemResult.class)))),
+            @ApiResponse(responseCode = "400", description = "Bad request",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "413", description = "Compressed batch inflates beyond the configured size",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public CompletableFuture<ResponseEntity<List<BatchItemResult>>> createRecipes(@RequestBody List<Recipe> recipes) {
+        log.info("batch create recipes request");
+
+        checkBatchSize(recipes);
+        return recipeRequestExecutor.submit(() ->
+                ResponseEntity.status(HttpStatus.OK).body(recipeBatchService.createRecipes(recipes)));
+    }
+
+    @PostMapping(value = "/recipes:batchUpdate", consumes = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE},
+            produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    @Operation(description = "Update many recipes at once; every item gets the status it would have had as a single update. "
+            + "The items can be sent as JSON, CBOR or Smile, and gzip compressed with Content-Encoding: gzip.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "batch processed, see the per item results",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = BatchItemResult.class)))),
+            @ApiResponse(responseCode = "400", description = "Bad request",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "413", description = "Compressed batch inflates beyond the configured size",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public CompletableFuture<ResponseEntity<List<BatchItemResult>>> updateRecipes(@RequestBody List<Recipe> recipes) {
+        log.info("batch update recipes request");
+
+        checkBatchSize(recipes);
+        return recipeRequestExecutor.submit(() ->
+                ResponseEntity.status(HttpStatus.OK).body(recipeBatchService.updateRecipes(recipes)));
+    }
+
+    @PostMapping(value = "/recipes:batchDelete", consumes = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE},
+            produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    @Operation(description = "Delete many recipes by ID at once; every item gets the status it would have had as a single delete.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "batch processed, see the per item results",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = BatchItemResult.class)))),
+            @ApiResponse(responseCode = "400", description = "Bad request",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public CompletableFuture<ResponseEntity<List<BatchItemResult>>> deleteRecipes(@RequestBody List<Integer> ids) {
+        log.info("batch delete recipes request");
+
+        checkBatchSize(ids);
+        return recipeRequestExecutor.submit(() ->
+                ResponseEntity.status(HttpStatus.OK).body(recipeBatchService.deleteRecipes(ids)));
+    }
+
+    private void checkBatchSize(List<?> items) {
+        if (Objects.isNull(items) || items.isEmpty()) {
+            log.error("empty batch request");
+            throw new BadRequestException(ErrorMessages.BAD_REQUEST);
+        } else if (items.size() > recipeProperties.getBatch().getMaxItems()) {
+            log.error("batch request with too many items: " + items.size());
+            throw new BadRequestException(ErrorMessages.BATCH_TOO_LARGE);
+        }
+    }
+}
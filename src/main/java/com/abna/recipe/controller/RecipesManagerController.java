@@ -1,9 +1,27 @@
 package com.abna.recipe.controller;
 
+import com.abna.recipe.config.RecipeRequestExecutor;
 import com.abna.recipe.exceptions.*;
 import com.abna.recipe.models.ErrorResponse;
+import com.abna.recipe.models.IngredientMatch;
+import com.abna.recipe.models.PantryMatch;
 import com.abna.recipe.models.Recipe;
+import com.abna.recipe.models.RecipeChangePage;
+import com.abna.recipe.models.RecipePage;
+import com.abna.recipe.models.RecipePageRequest;
+import com.abna.recipe.models.RecipeSearchCriteria;
+import com.abna.recipe.models.RecipeSortKey;
+import com.abna.recipe.models.RecipeSummary;
+import com.abna.recipe.models.RecipeSummaryPage;
+import com.abna.recipe.models.SimilarRecipe;
+import com.abna.recipe.service.RecipeChangeFeed;
+import com.abna.recipe.service.RecipeExportService;
+import com.abna.recipe.service.RecipeJsonCache;
 import com.abna.recipe.service.RecipeManagerService;
+import com.abna.recipe.service.RecipePantrySearch;
+import com.abna.recipe.service.RecipePayloadEncoder;
+import com.abna.recipe.service.RecipeSimilaritySearch;
+import com.abna.recipe.util.RecipeETags;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,18 +32,28 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.Nullable;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
 
+import static com.abna.recipe.config.PayloadFormatConfig.APPLICATION_SMILE_VALUE;
 import static com.abna.recipe.util.CommonUtil.sanitizeRecipe;
+import static org.springframework.http.MediaType.APPLICATION_CBOR_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
 
 @OpenAPIDefinition(
         info = @Info(title = "Recipe Manager Service API",
@@ -36,14 +64,46 @@ import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 @Slf4j
 public class RecipesManagerController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final RecipeManagerService recipeManagerService;
 
-    public RecipesManagerController(RecipeManagerService recipeManagerService) {
+    private final RecipeExportService recipeExportService;
+
+    private final RecipeRequestExecutor recipeRequestExecutor;
+
+    private final RecipeJsonCache recipeJsonCache;
+
+    private final RecipeChangeFeed recipeChangeFeed;
+
+    private final RecipePayloadEncoder recipePayloadEncoder;
+
+    private final RecipePantrySearch recipePantrySearch;
+
+    private final RecipeSimilaritySearch recipeSimilaritySearch;
+
+    public RecipesManagerController(RecipeManagerService recipeManagerService,
+                                    RecipeExportService recipeExportService,
+                                    RecipeRequestExecutor recipeRequestExecutor,
+                                    RecipeJsonCache recipeJsonCache,
+                                    RecipeChangeFeed recipeChangeFeed,
+                                    RecipePayloadEncoder recipePayloadEncoder,
+                                    RecipePantrySearch recipePantrySearch,
+                                    RecipeSimilaritySearch recipeSimilaritySearch) {
         this.recipeManagerService = recipeManagerService;
+        this.recipeExportService = recipeExportService;
+        this.recipeRequestExecutor = recipeRequestExecutor;
+        this.recipeJsonCache = recipeJsonCache;
+        this.recipeChangeFeed = recipeChangeFeed;
+        this.recipePayloadEncoder = recipePayloadEncoder;
+        this.recipePantrySearch = recipePantrySearch;
+        this.recipeSimilaritySearch = recipeSimilaritySearch;
     }
 
-    @PostMapping(value = "/recipe", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
-    @Operation(description = "Create a new recipe with the selected attributes.")
+    @PostMapping(value = "/recipe", consumes = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE},
+            produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    @Operation(description = "Create a new recipe with the selected attributes; the recipe can be sent and received as "
+            + "JSON, CBOR or Smile.")
     @ApiResponses({
             @ApiResponse(responseCode = "201", description = "successfully created",
                     content = @Content(schema = @Schema(implementation = Recipe.class))),
@@ -54,42 +114,61 @@ public class RecipesManagerController {
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<Recipe> createRecipe(@RequestBody @Valid Recipe recipe) {
+    public CompletableFuture<ResponseEntity<Recipe>> createRecipe(@RequestBody @Valid Recipe recipe) {
         log.info("Create recipe request");
 
+        return recipeRequestExecutor.submit(() -> saveRecipe(recipe));
+    }
+
+    private ResponseEntity<Recipe> saveRecipe(Recipe recipe) {
         if (!sanitizeRecipe(recipe)) {
             log.error("invalid recipe request params");
             throw new BadRequestException(ErrorMessages.BAD_REQUEST);
-        } else if (!Objects.isNull(recipeManagerService.getRecipeById(recipe.getId()))) {
-            log.error("recipe already available");
-            throw new ResourceConflictException(ErrorMessages.RESOURCE_CONFLICT);
         } else {
             Recipe savedRecipe;
             try {
                 log.debug("initiating save recipe service");
                 savedRecipe = recipeManagerService.createRecipe(recipe);
+            } catch (ResponseStatusException e) {
+                throw e;
             } catch (Exception e) {
                 log.error("issue with saving recipe data");
                 throw new RecipeDataException(ErrorMessages.INTERNAL_SERVER_ERROR);
             }
             log.info("recipe saved with recipeId: " + savedRecipe.getId());
-            return ResponseEntity.status(HttpStatus.CREATED).body(savedRecipe);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .eTag(RecipeETags.of(savedRecipe.getId(), savedRecipe.getCreateDateTime(),
+                            savedRecipe.getVersion()))
+                    .body(savedRecipe);
         }
     }
 
-    @GetMapping(value = "/recipe/{id}", produces = APPLICATION_JSON_VALUE)
-    @Operation(description = "Retrieve the recipe data based on ID.")
+    @GetMapping(value = "/recipe/{id}", produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    @Operation(description = "Retrieve the recipe data based on ID as JSON, CBOR or Smile, following the Accept header; "
+            + "supports conditional requests with If-None-Match and If-Modified-Since, larger recipes are gzip "
+            + "compressed when the client accepts it.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "successfully retrieved",
                     content = @Content(schema = @Schema(implementation = Recipe.class))),
+            @ApiResponse(responseCode = "304", description = "Recipe not modified since the tagged version"),
             @ApiResponse(responseCode = "404", description = "Recipe not found",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<Recipe> getRecipe(@PathVariable Integer id) {
+    public CompletableFuture<ResponseEntity<byte[]>> getRecipe(@PathVariable Integer id,
+                                                               @Parameter(hidden = true) @RequestHeader HttpHeaders headers) {
         log.info("get existing recipe request");
 
+        List<String> ifNoneMatch = headers.getIfNoneMatch();
+        long ifModifiedSince = headers.getIfModifiedSince();
+        boolean gzip = acceptsGzip(headers.getFirst(HttpHeaders.ACCEPT_ENCODING));
+        RecipePayloadEncoder.Format format = RecipePayloadEncoder.Format.negotiate(headers.getAccept());
+        return recipeRequestExecutor.submit(() -> findRecipe(id, ifNoneMatch, ifModifiedSince, gzip, format));
+    }
+
+    private ResponseEntity<byte[]> findRecipe(Integer id, List<String> ifNoneMatch, long ifModifiedSince, boolean gzip,
+                                              RecipePayloadEncoder.Format format) {
         Recipe recipe;
         try {
             log.info("initiating get service request for recipe id: " + id);
@@ -103,52 +182,399 @@ public class RecipesManagerController {
             throw new RecipeDataException(ErrorMessages.INTERNAL_SERVER_ERROR);
         }
         log.info("recipe found with recipeId: " + recipe.getId());
-        return ResponseEntity.status(HttpStatus.OK).body(recipe);
+
+        String etag = RecipeETags.of(recipe.getId(), recipe.getCreateDateTime(), recipe.getVersion());
+        boolean notModified;
+        if (!ifNoneMatch.isEmpty()) {
+            notModified = RecipeETags.matchesAny(ifNoneMatch, etag);
+        } else {
+            notModified = ifModifiedSince >= 0 && !Objects.isNull(recipe.getUpdateDateTime())
+                    && RecipeETags.lastModified(recipe.getUpdateDateTime()) <= ifModifiedSince;
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                .eTag(etag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (!Objects.isNull(recipe.getUpdateDateTime())) {
+            response.lastModified(RecipeETags.lastModified(recipe.getUpdateDateTime()));
+        }
+        if (notModified) {
+            log.debug("recipe not modified, recipeId: " + recipe.getId());
+            return response.build();
+        }
+        if (format != RecipePayloadEncoder.Format.JSON) {
+            return encodedBody(response, format, recipePayloadEncoder.recipe(recipe, format), gzip);
+        }
+        // the cached bytes of this recipe version go out as they are, Jackson is not involved
+        response.contentType(format.getMediaType());
+        byte[] compressed = gzip ? recipeJsonCache.gzip(recipe) : null;
+        if (!Objects.isNull(compressed)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(compressed);
+        }
+        return response.body(recipeJsonCache.json(recipe));
     }
 
-    @GetMapping(value = "/recipes", produces = APPLICATION_JSON_VALUE)
-    @Operation(description = "Retrieve all the recipe data.")
+    /** the body in the negotiated format, gzip compressed when the client accepts it and it is large enough */
+    private ResponseEntity<byte[]> encodedBody(ResponseEntity.BodyBuilder response, RecipePayloadEncoder.Format format,
+                                               byte[] body, boolean gzip) {
+        response.contentType(format.getMediaType());
+        if (gzip && recipePayloadEncoder.shouldCompress(body.length)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(recipePayloadEncoder.gzip(body));
+        }
+        return response.body(body);
+    }
+
+    @GetMapping(value = "/recipe/{id}/similar", produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    @Operation(description = "Retrieve the recipes with ingredients most alike those of the recipe, by the share of "
+            + "ingredients they have in common. Candidates are found through MinHash signatures of the ingredients, "
+            + "so recipes sharing few ingredients with it may be left out.")
+    @Parameter(name = "limit", description = "Maximum number of recipes, capped by the configured maximum")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "successfully retrieved the similar recipes, possibly none",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = SimilarRecipe.class)))),
+            @ApiResponse(responseCode = "404", description = "Recipe not found",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "503", description = "Similarity index not loaded yet",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public CompletableFuture<ResponseEntity<List<SimilarRecipe>>> getSimilarRecipes(@PathVariable Integer id,
+                                                                                   @Nullable @RequestParam Integer limit) {
+        log.info("get similar recipes request");
+
+        return recipeRequestExecutor.submit(() -> findSimilarRecipes(id, limit));
+    }
+
+    private ResponseEntity<List<SimilarRecipe>> findSimilarRecipes(Integer id, @Nullable Integer limit) {
+        List<SimilarRecipe> similarRecipes;
+        try {
+            log.info("initiating similar recipes service request for recipe id: " + id);
+            similarRecipes = recipeSimilaritySearch.findSimilar(id, limit);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("issue with getting similar recipes");
+            throw new RecipeDataException(ErrorMessages.INTERNAL_SERVER_ERROR);
+        }
+        log.info("number of similar recipes retrieved: " + similarRecipes.size());
+        return ResponseEntity.status(HttpStatus.OK).body(similarRecipes);
+    }
+
+    @GetMapping(value = "/recipes", produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    @Operation(description = "Retrieve the recipe data page by page as JSON, CBOR or Smile, following the Accept "
+            + "header; the " + NEXT_CURSOR_HEADER + " response header carries the cursor of the next page when there "
+            + "is one. Every page has an ETag, a request with a matching If-None-Match is answered with 304. Pages "
+            + "above server.compression.min-response-size are gzip compressed when the client accepts it.")
+    @Parameter(name = "q", description = "Full-text query over name, ingredients and instructions; results are ranked "
+            + "by relevance")
     @Parameter(name = "name", description = "The recipe name can contain this value")
     @Parameter(name = "serving", description = "The recipe should have more than serving")
-    @Parameter(name = "includeIngredients", description = "The recipe excludes mentioned ingredients")
+    @Parameter(name = "includeIngredients", description = "The recipe includes mentioned ingredients")
+    @Parameter(name = "includeMatch", description = "Whether ALL (default) or ANY of the included ingredients must be present")
     @Parameter(name = "excludeIngredients", description = "The recipe excludes mentioned ingredients")
     @Parameter(name = "type", description = "The recipe can be of this type")
     @Parameter(name = "instructions", description = "The recipe can contain these instructions")
+    @Parameter(name = "limit", description = "Maximum number of recipes in the page, capped by the configured maximum")
+    @Parameter(name = "cursor", description = "Cursor returned with the previous page")
+    @Parameter(name = "sortBy", description = "Sort key, ID (default) or UPDATE_DATE_TIME; RELEVANCE (default) with q")
+    @Parameter(name = "direction", description = "Sort direction, ASC (default) or DESC")
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "successfully retrieved all recipes",
+            @ApiResponse(responseCode = "200", description = "successfully retrieved the page of recipes",
                     content = @Content(array = @ArraySchema(schema = @Schema(implementation = Recipe.class)))),
+            @ApiResponse(responseCode = "304", description = "Page not modified since the tagged version"),
+            @ApiResponse(responseCode = "400", description = "Bad request",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "404", description = "Recipes not found",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<List<Recipe>> getAllRecipes(
+    public CompletableFuture<ResponseEntity<byte[]>> getAllRecipes(
+            @Nullable @RequestParam String q,
             @Nullable @RequestParam String name,
             @Nullable @RequestParam Integer serving,
             @Nullable @RequestParam List<String> includeIngredients,
+            @Nullable @RequestParam IngredientMatch includeMatch,
             @Nullable @RequestParam List<String> excludeIngredients,
             @Nullable @RequestParam String type,
-            @Nullable @RequestParam String instructions) {
+            @Nullable @RequestParam String instructions,
+            @Nullable @RequestParam Integer limit,
+            @Nullable @RequestParam String cursor,
+            @Nullable @RequestParam RecipeSortKey sortBy,
+            @Nullable @RequestParam Sort.Direction direction,
+            @Parameter(hidden = true) @RequestHeader HttpHeaders headers) {
         log.info("get filter recipes request");
 
-        List<Recipe> recipeList;
+        RecipeSearchCriteria criteria = RecipeSearchCriteria.builder()
+                .q(q)
+                .name(name)
+                .serving(serving)
+                .includeIngredients(includeIngredients)
+                .includeMatch(Objects.requireNonNullElse(includeMatch, IngredientMatch.ALL))
+                .excludeIngredients(excludeIngredients)
+                .type(type)
+                .instructions(instructions)
+                .build();
+        RecipePageRequest pageRequest = RecipePageRequest.builder()
+                .limit(limit)
+                .cursor(cursor)
+                .sortBy(sortBy)
+                .direction(Objects.requireNonNullElse(direction, Sort.Direction.ASC))
+                .ifNoneMatch(headers.getIfNoneMatch())
+                .build();
+        boolean gzip = acceptsGzip(headers.getFirst(HttpHeaders.ACCEPT_ENCODING));
+        RecipePayloadEncoder.Format format = RecipePayloadEncoder.Format.negotiate(headers.getAccept());
+        return recipeRequestExecutor.submit(() -> findRecipes(criteria, pageRequest, gzip, format));
+    }
+
+    private ResponseEntity<byte[]> findRecipes(RecipeSearchCriteria criteria, RecipePageRequest pageRequest,
+                                               boolean gzip, RecipePayloadEncoder.Format format) {
+        RecipePage recipePage;
         try {
             log.info("initiating getAll service request for recipes");
-            recipeList = recipeManagerService.getAllRecipes(name, serving, includeIngredients, excludeIngredients, type, instructions);
-            if (CollectionUtils.isEmpty(recipeList)) {
+            recipePage = recipeManagerService.getAllRecipes(criteria, pageRequest);
+            if (recipePage.isNotModified()) {
+                log.debug("page of recipes not modified");
+                return nextCursorHeader(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(recipePage.getEtag()),
+                        recipePage.getNextCursor()).build();
+            }
+            if (CollectionUtils.isEmpty(recipePage.getRecipes())) {
                 log.error("no recipes found");
                 throw new NoRecipesFoundException(ErrorMessages.RECIPES_NOT_FOUND);
             }
+        } catch (ResponseStatusException e) {
+            throw e;
         } catch (Exception e) {
             log.error("issue with getting recipe data");
             throw new RecipeDataException(ErrorMessages.INTERNAL_SERVER_ERROR);
         }
-        log.info("number of recipes retrieved: " + recipeList.size());
-        return ResponseEntity.status(HttpStatus.OK).body(recipeList);
+        log.info("number of recipes retrieved: " + recipePage.getRecipes().size());
+        ResponseEntity.BodyBuilder response = nextCursorHeader(ResponseEntity.status(HttpStatus.OK)
+                .eTag(recipePage.getEtag())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING), recipePage.getNextCursor());
+        return encodedBody(response, format, recipePayloadEncoder.recipes(recipePage.getRecipes(), format), gzip);
+    }
+
+    private static ResponseEntity.BodyBuilder nextCursorHeader(ResponseEntity.BodyBuilder response, @Nullable String nextCursor) {
+        if (!Objects.isNull(nextCursor)) {
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response;
+    }
+
+    @GetMapping(value = "/recipes/summary", produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    @Operation(description = "Retrieve id, name, type and serving of the recipes page by page, for list views; "
+            + "filters, paging, formats, compression and conditional requests work as for /recipes, except the "
+            + "full-text query q.")
+    @Parameter(name = "name", description = "The recipe name can contain this value")
+    @Parameter(name = "serving", description = "The recipe should have more than serving")
+    @Parameter(name = "includeIngredients", description = "The recipe includes mentioned ingredients")
+    @Parameter(name = "includeMatch", description = "Whether ALL (default) or ANY of the included ingredients must be present")
+    @Parameter(name = "excludeIngredients", description = "The recipe excludes mentioned ingredients")
+    @Parameter(name = "type", description = "The recipe can be of this type")
+    @Parameter(name = "instructions", description = "The recipe can contain these instructions")
+    @Parameter(name = "limit", description = "Maximum number of recipes in the page, capped by the configured maximum")
+    @Parameter(name = "cursor", description = "Cursor returned with the previous page")
+    @Parameter(name = "sortBy", description = "Sort key, ID (default) or UPDATE_DATE_TIME")
+    @Parameter(name = "direction", description = "Sort direction, ASC (default) or DESC")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "successfully retrieved the page of recipe summaries",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = RecipeSummary.class)))),
+            @ApiResponse(responseCode = "304", description = "Page not modified since the tagged version"),
+            @ApiResponse(responseCode = "400", description = "Bad request",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Recipes not found",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public CompletableFuture<ResponseEntity<byte[]>> getRecipeSummaries(
+            @Nullable @RequestParam String name,
+            @Nullable @RequestParam Integer serving,
+            @Nullable @RequestParam List<String> includeIngredients,
+            @Nullable @RequestParam IngredientMatch includeMatch,
+            @Nullable @RequestParam List<String> excludeIngredients,
+            @Nullable @RequestParam String type,
+            @Nullable @RequestParam String instructions,
+            @Nullable @RequestParam Integer limit,
+            @Nullable @RequestParam String cursor,
+            @Nullable @RequestParam RecipeSortKey sortBy,
+            @Nullable @RequestParam Sort.Direction direction,
+            @Parameter(hidden = true) @RequestHeader HttpHeaders headers) {
+        log.info("get recipe summaries request");
+
+        RecipeSearchCriteria criteria = RecipeSearchCriteria.builder()
+                .name(name)
+                .serving(serving)
+                .includeIngredients(includeIngredients)
+                .includeMatch(Objects.requireNonNullElse(includeMatch, IngredientMatch.ALL))
+                .excludeIngredients(excludeIngredients)
+                .type(type)
+                .instructions(instructions)
+                .build();
+        RecipePageRequest pageRequest = RecipePageRequest.builder()
+                .limit(limit)
+                .cursor(cursor)
+                .sortBy(sortBy)
+                .direction(Objects.requireNonNullElse(direction, Sort.Direction.ASC))
+                .ifNoneMatch(headers.getIfNoneMatch())
+                .build();
+        boolean gzip = acceptsGzip(headers.getFirst(HttpHeaders.ACCEPT_ENCODING));
+        RecipePayloadEncoder.Format format = RecipePayloadEncoder.Format.negotiate(headers.getAccept());
+        return recipeRequestExecutor.submit(() -> findRecipeSummaries(criteria, pageRequest, gzip, format));
+    }
+
+    private ResponseEntity<byte[]> findRecipeSummaries(RecipeSearchCriteria criteria, RecipePageRequest pageRequest,
+                                                       boolean gzip, RecipePayloadEncoder.Format format) {
+        RecipeSummaryPage summaryPage;
+        try {
+            log.info("initiating summaries service request for recipes");
+            summaryPage = recipeManagerService.getRecipeSummaries(criteria, pageRequest);
+            if (summaryPage.isNotModified()) {
+                log.debug("page of recipe summaries not modified");
+                return nextCursorHeader(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(summaryPage.getEtag()),
+                        summaryPage.getNextCursor()).build();
+            }
+            if (CollectionUtils.isEmpty(summaryPage.getSummaries())) {
+                log.error("no recipes found");
+                throw new NoRecipesFoundException(ErrorMessages.RECIPES_NOT_FOUND);
+            }
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("issue with getting recipe summaries");
+            throw new RecipeDataException(ErrorMessages.INTERNAL_SERVER_ERROR);
+        }
+        log.info("number of recipe summaries retrieved: " + summaryPage.getSummaries().size());
+        ResponseEntity.BodyBuilder response = nextCursorHeader(ResponseEntity.status(HttpStatus.OK)
+                .eTag(summaryPage.getEtag())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING), summaryPage.getNextCursor());
+        return encodedBody(response, format, recipePayloadEncoder.write(summaryPage.getSummaries(), format), gzip);
+    }
+
+    @GetMapping(value = "/recipes/changes", produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    @Operation(description = "Retrieve the recipes created, updated or deleted since the given token, each with its "
+            + "current state or as a tombstone, so a client keeping a copy of the catalogue only transfers what "
+            + "changed. Start with since=0 and pass the returned token on the next call; while hasMore is true "
+            + "further changes can be fetched right away.")
+    @Parameter(name = "since", description = "Token returned by the previous call, 0 (default) to start from scratch")
+    @Parameter(name = "limit", description = "Maximum number of logged changes read, capped by the configured maximum")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "successfully retrieved the changes, possibly none",
+                    content = @Content(schema = @Schema(implementation = RecipeChangePage.class))),
+            @ApiResponse(responseCode = "400", description = "Bad request",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public CompletableFuture<ResponseEntity<RecipeChangePage>> getRecipeChanges(
+            @Nullable @RequestParam Long since,
+            @Nullable @RequestParam Integer limit) {
+        log.info("get recipe changes request");
+
+        long token = Objects.requireNonNullElse(since, 0L);
+        return recipeRequestExecutor.submit(() -> findRecipeChanges(token, limit));
+    }
+
+    private ResponseEntity<RecipeChangePage> findRecipeChanges(long since, @Nullable Integer limit) {
+        RecipeChangePage changePage;
+        try {
+            log.info("initiating changes service request for recipes");
+            changePage = recipeChangeFeed.getChanges(since, limit);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("issue with getting recipe changes");
+            throw new RecipeDataException(ErrorMessages.INTERNAL_SERVER_ERROR);
+        }
+        log.info("number of recipe changes retrieved: " + changePage.getChanges().size());
+        return ResponseEntity.status(HttpStatus.OK).body(changePage);
     }
 
-    @PutMapping(value = "/recipe", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
-    @Operation(description = "Update recipe data based on recipe ID.")
+    @GetMapping(value = "/recipes/pantry", produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    @Operation(description = "Retrieve the recipes that can be cooked from the given pantry: recipes whose ingredients "
+            + "are all in the pantry, or all but maxMissing of them, best covered first. Each recipe comes with the "
+            + "share of its ingredients on hand and the ingredients still missing.")
+    @Parameter(name = "ingredients", description = "Ingredients in the pantry, matched ignoring case")
+    @Parameter(name = "maxMissing", description = "Ingredients a recipe may need beyond the pantry, 0 by default, "
+            + "capped by the configured maximum")
+    @Parameter(name = "limit", description = "Maximum number of recipes, capped by the configured maximum page size")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "successfully retrieved the recipes, possibly none",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = PantryMatch.class)))),
+            @ApiResponse(responseCode = "400", description = "Bad request",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public CompletableFuture<ResponseEntity<List<PantryMatch>>> getPantryRecipes(
+            @Nullable @RequestParam List<String> ingredients,
+            @Nullable @RequestParam Integer maxMissing,
+            @Nullable @RequestParam Integer limit) {
+        log.info("get pantry recipes request");
+
+        return recipeRequestExecutor.submit(() -> findPantryRecipes(ingredients, maxMissing, limit));
+    }
+
+    private ResponseEntity<List<PantryMatch>> findPantryRecipes(@Nullable List<String> ingredients,
+                                                                @Nullable Integer maxMissing, @Nullable Integer limit) {
+        List<PantryMatch> matches;
+        try {
+            log.info("initiating pantry service request for recipes");
+            matches = recipePantrySearch.findCookable(ingredients, maxMissing, limit);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("issue with getting pantry recipes");
+            throw new RecipeDataException(ErrorMessages.INTERNAL_SERVER_ERROR);
+        }
+        log.info("number of pantry recipes retrieved: " + matches.size());
+        return ResponseEntity.status(HttpStatus.OK).body(matches);
+    }
+
+    @GetMapping(value = "/recipes/export", produces = APPLICATION_NDJSON_VALUE)
+    @Operation(description = "Stream all the recipe data as newline-delimited JSON, gzip compressed when the client "
+            + "accepts it.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "successfully streamed all recipes",
+                    content = @Content(mediaType = APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = Recipe.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<StreamingResponseBody> exportRecipes(
+            @Nullable @RequestHeader(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding) {
+        log.info("export recipes request");
+
+        boolean gzip = acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = outputStream -> {
+            if (gzip) {
+                // sync flush so every flush of the exporter reaches the client instead of waiting in the deflater
+                GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, true);
+                recipeExportService.exportRecipes(gzipOutputStream);
+                gzipOutputStream.finish();
+            } else {
+                recipeExportService.exportRecipes(outputStream);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    private static boolean acceptsGzip(@Nullable String acceptEncoding) {
+        return !Objects.isNull(acceptEncoding) && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+    }
+
+    @PutMapping(value = "/recipe", consumes = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE},
+            produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    @Operation(description = "Update recipe data based on recipe ID; with If-Match the update only happens when the "
+            + "stored recipe still has one of the given entity tags. An update that races with another update of the "
+            + "same recipe fails instead of overwriting it.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "successfully updated the recipe",
                     content = @Content(schema = @Schema(implementation = Recipe.class))),
@@ -156,29 +582,41 @@ public class RecipesManagerController {
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "404", description = "Recipes not found",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "409", description = "Recipe was modified concurrently by another update",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "412", description = "Recipe was modified since the tagged version",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<Recipe> updateRecipe(@RequestBody @Valid Recipe recipe) {
+    public CompletableFuture<ResponseEntity<Recipe>> updateRecipe(@RequestBody @Valid Recipe recipe,
+                                                                  @Parameter(hidden = true) @RequestHeader HttpHeaders headers) {
         log.info("update existing recipe request");
 
+        List<String> ifMatch = headers.getIfMatch();
+        return recipeRequestExecutor.submit(() -> replaceRecipe(recipe, ifMatch));
+    }
+
+    private ResponseEntity<Recipe> replaceRecipe(Recipe recipe, List<String> ifMatch) {
         if (!sanitizeRecipe(recipe)) {
             log.error("invalid recipe request params");
             throw new BadRequestException(ErrorMessages.BAD_REQUEST);
-        } else if (Objects.isNull(recipeManagerService.getRecipeById(recipe.getId()))) {
-            log.error("recipe not available");
-            throw new NoSuchRecipeException(ErrorMessages.RECIPE_NOT_FOUND);
         } else {
             Recipe updatedRecipe;
             try {
                 log.debug("initiating update service for recipe");
-                updatedRecipe = recipeManagerService.updateRecipe(recipe);
+                updatedRecipe = recipeManagerService.updateRecipe(recipe, ifMatch);
+            } catch (ResponseStatusException e) {
+                throw e;
             } catch (Exception e) {
                 log.error("issue with updating recipe data");
                 throw new RecipeDataException(ErrorMessages.INTERNAL_SERVER_ERROR);
             }
             log.info("recipe updated with recipeId: " + updatedRecipe.getId());
-            return ResponseEntity.status(HttpStatus.OK).body(updatedRecipe);
+            return ResponseEntity.status(HttpStatus.OK)
+                    .eTag(RecipeETags.of(updatedRecipe.getId(), updatedRecipe.getCreateDateTime(),
+                            updatedRecipe.getVersion()))
+                    .body(updatedRecipe);
         }
     }
 
@@ -192,20 +630,21 @@ public class RecipesManagerController {
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<String> deleteRecipe(@PathVariable Integer id) {
+    public CompletableFuture<ResponseEntity<String>> deleteRecipe(@PathVariable Integer id) {
         log.info("delete existing recipe request");
 
-        if (Objects.isNull(recipeManagerService.getRecipeById(id))) {
-            log.error("recipe not available");
-            throw new NoSuchRecipeException(ErrorMessages.RECIPE_NOT_FOUND);
-        } else {
-            try {
-                log.debug("initiating delete service for recipe");
-                recipeManagerService.deleteRecipeFromRepository(id);
-            } catch (Exception e) {
-                log.error("issue with deleting recipe data");
-                throw new RecipeDataException(ErrorMessages.INTERNAL_SERVER_ERROR);
-            }
+        return recipeRequestExecutor.submit(() -> removeRecipe(id));
+    }
+
+    private ResponseEntity<String> removeRecipe(Integer id) {
+        try {
+            log.debug("initiating delete service for recipe");
+            recipeManagerService.deleteRecipeFromRepository(id);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("issue with deleting recipe data");
+            throw new RecipeDataException(ErrorMessages.INTERNAL_SERVER_ERROR);
         }
         log.info("recipe deleted with recipeId: " + id);
         return ResponseEntity.status(HttpStatus.OK).body("requested recipe deleted");
@@ -0,0 +1,53 @@
+package com.abna.recipe.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * One write of a recipe in the change log. The row only says which recipe changed and whether it is gone; the
+ * delta feed reads the current state from the recipes table.
+ */
+@Data
+@Builder
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "recipe_changes")
+public class RecipeChangeData {
+
+    /**
+     * Identity of the row. Values are taken from a sequence in blocks before the write commits, so a later value
+     * can commit first, a rolled back write leaves a gap and a restart skips the rest of a block; the feed does not
+     * rely on their order.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recipe_change_seq")
+    @SequenceGenerator(name = "recipe_change_seq", sequenceName = "recipe_change_seq", allocationSize = 50)
+    private Long seq;
+
+    @Column(nullable = false)
+    private Integer recipeId;
+
+    @Column(nullable = false)
+    private boolean deleted;
+
+    @Column(nullable = false)
+    private LocalDateTime changedAt;
+
+    /**
+     * Position in the delta feed, the token clients pass back. It is null while the change is pending and set by
+     * the feed once the writing transaction has committed, so positions increase with the time of the commit.
+     */
+    private Long position;
+}
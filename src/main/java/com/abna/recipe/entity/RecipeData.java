@@ -1,41 +1,114 @@
 package com.abna.recipe.entity;
 
+import com.abna.recipe.config.RecipeSearchAnalysisConfigurer;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.search.engine.backend.types.Projectable;
+import org.hibernate.search.engine.backend.types.Sortable;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.GenericField;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.KeywordField;
 
+import javax.persistence.CollectionTable;
 import javax.persistence.Column;
+import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.abna.recipe.util.CommonUtil.toSearchKey;
 
 @Data
 @Builder
 @Entity
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "recipes")
+@Table(name = "recipes", indexes = {
+        @Index(name = "idx_recipes_type_key_serving", columnList = "typeKey, serving"),
+        @Index(name = "idx_recipes_serving", columnList = "serving"),
+        @Index(name = "idx_recipes_update_date_time", columnList = "updateDateTime, id")
+})
+@Indexed
 public class RecipeData {
 
     @Id
+    @GenericField(name = "recipeId", sortable = Sortable.YES)
     private Integer id;
 
     @Column(nullable = false)
+    @FullTextField(analyzer = RecipeSearchAnalysisConfigurer.ENGLISH)
     private String name;
 
+    /** lower-cased {@link #name}, searched instead of it so the name filter ignores case */
+    @Column(nullable = false)
+    private String nameKey;
+
     @Column(nullable = false)
+    @KeywordField(name = "typeKey", normalizer = RecipeSearchAnalysisConfigurer.LOWERCASE)
     private String type;
 
+    /** lower-cased {@link #type}, compared by equality so the type indexes serve the type filter */
     @Column(nullable = false)
+    private String typeKey;
+
+    @Column(nullable = false)
+    @GenericField
     private Integer serving;
 
+    @FullTextField(analyzer = RecipeSearchAnalysisConfigurer.ENGLISH)
     private String ingredients;
 
+    @FullTextField(analyzer = RecipeSearchAnalysisConfigurer.ENGLISH)
     private String instructions;
 
     private LocalDateTime createDateTime;
 
+    /** indexed with {@link #version} as the watermark telling whether the full-text index caught up with the rows */
+    @GenericField(sortable = Sortable.YES, projectable = Projectable.YES)
     private LocalDateTime updateDateTime;
+
+    /**
+     * Incremented on every update; the update statement only matches the row while it still has the version that
+     * was read, so a concurrent change makes the later writer fail instead of overwriting it.
+     */
+    @Version
+    @Column(nullable = false)
+    @GenericField(projectable = Projectable.YES)
+    private Long version;
+
+    /**
+     * Normalized ingredients stored one per row, used as an inverted index for ingredient searches.
+     * The comma-joined {@link #ingredients} column is kept for presenting the recipe as entered.
+     */
+    @Builder.Default
+    @KeywordField
+    @ElementCollection
+    @CollectionTable(name = "recipe_ingredients",
+            joinColumns = @JoinColumn(name = "recipe_id"),
+            indexes = @Index(name = "idx_recipe_ingredients_ingredient", columnList = "ingredient, recipe_id"))
+    @Column(name = "ingredient", nullable = false)
+    private Set<String> ingredientKeys = new HashSet<>();
+
+    /** size of {@link #ingredientKeys}, so the pantry search groups only the index rows of pantry ingredients */
+    @Column(nullable = false)
+    private Integer ingredientCount;
+
+    @PrePersist
+    @PreUpdate
+    void foldSearchKeys() {
+        nameKey = toSearchKey(name);
+        typeKey = toSearchKey(type);
+        ingredientCount = ingredientKeys == null ? 0 : ingredientKeys.size();
+    }
 }
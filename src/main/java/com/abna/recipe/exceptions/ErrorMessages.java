@@ -6,5 +6,13 @@ public class ErrorMessages {
     public static final String BAD_REQUEST = "Bad Request, please check request parameters";
     public static final String INTERNAL_SERVER_ERROR = "Unknown error occurred, please consult with support";
     public static final String RESOURCE_CONFLICT = "Recipe already present";
+    public static final String BATCH_TOO_LARGE = "Bad Request, too many items in the batch";
+    public static final String CONCURRENT_UPDATE = "Recipe was modified concurrently, please fetch the latest version and retry";
+    public static final String PRECONDITION_FAILED = "Recipe was modified, please fetch the latest version and retry";
+    public static final String SERVICE_UNAVAILABLE = "Service is busy, please retry later";
+    public static final String TOO_MANY_REQUESTS = "Too many requests, please slow down and retry later";
+    public static final String PAYLOAD_TOO_LARGE = "Request body is too large once decompressed";
+    public static final String UNSUPPORTED_CONTENT_ENCODING = "Unsupported Content-Encoding, request bodies can only be gzip compressed";
+    public static final String INVALID_CURSOR = "Bad Request, cursor is invalid or does not match the requested sort order";
 
 }
@@ -0,0 +1,12 @@
+package com.abna.recipe.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class PreconditionFailedException extends ResponseStatusException {
+
+    public PreconditionFailedException(String message) {
+        super(HttpStatus.PRECONDITION_FAILED, message);
+    }
+
+}
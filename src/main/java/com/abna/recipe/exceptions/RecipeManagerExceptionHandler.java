@@ -1,9 +1,11 @@
 package com.abna.recipe.exceptions;
 
 import com.abna.recipe.models.ErrorResponse;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -23,6 +25,17 @@ public class RecipeManagerExceptionHandler extends ResponseEntityExceptionHandle
         return buildErrorResponse(e.getMessage(), status);
     }
 
+    @Override
+    protected ResponseEntity<Object> handleHttpMessageNotReadable(
+            HttpMessageNotReadableException e, HttpHeaders headers, HttpStatus status, WebRequest request) {
+        // an inflated request body over the limit fails inside the converter, which wraps the exception
+        PayloadTooLargeException tooLarge = ExceptionUtils.throwableOfType(e, PayloadTooLargeException.class);
+        if (tooLarge != null) {
+            return handlePayloadTooLargeException(tooLarge);
+        }
+        return super.handleHttpMessageNotReadable(e, headers, status, request);
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ResponseEntity<Object> handleUncaughtExceptions(Exception e) {
@@ -53,6 +66,24 @@ public class RecipeManagerExceptionHandler extends ResponseEntityExceptionHandle
         return buildErrorResponse(e.getMessage(), e.getStatus());
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public ResponseEntity<Object> handlePreconditionFailedException(PreconditionFailedException e) {
+        return buildErrorResponse(e.getMessage(), e.getStatus());
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<Object> handleServiceUnavailableException(ServiceUnavailableException e) {
+        return buildErrorResponse(e.getMessage(), e.getStatus());
+    }
+
+    @ExceptionHandler(PayloadTooLargeException.class)
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    public ResponseEntity<Object> handlePayloadTooLargeException(PayloadTooLargeException e) {
+        return buildErrorResponse(e.getMessage(), e.getStatus());
+    }
+
     private ResponseEntity<Object> buildErrorResponse(String message, HttpStatus status) {
         ErrorResponse errorResponse = new ErrorResponse(status.value(), message, LocalDateTime.now());
         return ResponseEntity.status(status).body(errorResponse);
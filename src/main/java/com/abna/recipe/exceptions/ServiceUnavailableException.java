@@ -0,0 +1,12 @@
+package com.abna.recipe.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class ServiceUnavailableException extends ResponseStatusException {
+
+    public ServiceUnavailableException(String message) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, message);
+    }
+
+}
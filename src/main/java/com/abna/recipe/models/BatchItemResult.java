@@ -0,0 +1,21 @@
+package com.abna.recipe.models;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResult {
+
+    @Schema(description = "ID of the recipe the result belongs to.")
+    private Integer id;
+
+    @Schema(description = "Http status code the item would have had as a single request.")
+    private int status;
+
+    @Schema(description = "Outcome of the operation for the item.")
+    private String message;
+}
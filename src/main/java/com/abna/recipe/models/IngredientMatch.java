@@ -0,0 +1,11 @@
+package com.abna.recipe.models;
+
+/**
+ * How the included ingredients of a search are matched against a recipe.
+ */
+public enum IngredientMatch {
+    /** recipe must contain every included ingredient */
+    ALL,
+    /** recipe must contain at least one of the included ingredients */
+    ANY
+}
@@ -0,0 +1,26 @@
+package com.abna.recipe.models;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A recipe that can be cooked from a pantry, apart from at most the tolerated number of missing ingredients.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PantryMatch {
+
+    @Schema(description = "The matching Recipe.")
+    private Recipe recipe;
+
+    @Schema(description = "Share of the recipe's ingredients that are in the pantry, 1 when none is missing.")
+    private double coverage;
+
+    @Schema(description = "Ingredients of the recipe that are not in the pantry.")
+    private List<String> missingIngredients;
+}
@@ -56,4 +56,7 @@ public class Recipe {
 
     @JsonIgnore
     private LocalDateTime updateDateTime;
+
+    @JsonIgnore
+    private Long version;
 }
@@ -0,0 +1,34 @@
+package com.abna.recipe.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A recipe that changed since the client's last sync, with its current state, or a tombstone when it is deleted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RecipeChange {
+
+    @Schema(description = "ID of the changed Recipe.")
+    private Integer id;
+
+    @Schema(description = "True when the recipe has been deleted, the recipe is then left out.")
+    private boolean deleted;
+
+    @Schema(description = "Current state of the recipe, absent for deleted recipes.")
+    private Recipe recipe;
+
+    public static RecipeChange upserted(Recipe recipe) {
+        return new RecipeChange(recipe.getId(), false, recipe);
+    }
+
+    public static RecipeChange tombstone(Integer id) {
+        return new RecipeChange(id, true, null);
+    }
+}
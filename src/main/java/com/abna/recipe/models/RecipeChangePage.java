@@ -0,0 +1,24 @@
+package com.abna.recipe.models;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecipeChangePage {
+
+    @Schema(description = "Recipes changed since the requested token, each once with its latest state, in the order "
+            + "of their last change.")
+    private List<RecipeChange> changes;
+
+    @Schema(description = "Token to pass as since on the next sync; the same as the requested one when nothing changed.")
+    private long token;
+
+    @Schema(description = "True when more changes follow right away, false when the client has caught up.")
+    private boolean hasMore;
+}
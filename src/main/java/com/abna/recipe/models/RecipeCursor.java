@@ -0,0 +1,74 @@
+package com.abna.recipe.models;
+
+import com.abna.recipe.exceptions.BadRequestException;
+import com.abna.recipe.exceptions.ErrorMessages;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position of the last recipe of a page, handed to clients as an opaque token so the next page
+ * can be found with a keyset (seek) predicate instead of an offset. Relevance ranked pages have no
+ * stable key to seek on and carry the offset of the next hit instead.
+ */
+@Data
+@AllArgsConstructor
+public class RecipeCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private RecipeSortKey sortBy;
+
+    private Sort.Direction direction;
+
+    private Integer lastId;
+
+    private LocalDateTime lastUpdateDateTime;
+
+    private Integer offset;
+
+    public static RecipeCursor after(Recipe recipe, RecipeSortKey sortBy, Sort.Direction direction) {
+        return after(recipe.getId(), recipe.getUpdateDateTime(), sortBy, direction);
+    }
+
+    public static RecipeCursor after(Integer id, LocalDateTime updateDateTime, RecipeSortKey sortBy,
+                                     Sort.Direction direction) {
+        return new RecipeCursor(sortBy, direction, id,
+                sortBy == RecipeSortKey.UPDATE_DATE_TIME ? updateDateTime : null, null);
+    }
+
+    public static RecipeCursor atOffset(Recipe lastRecipe, int offset) {
+        return new RecipeCursor(RecipeSortKey.RELEVANCE, Sort.Direction.DESC, lastRecipe.getId(), null, offset);
+    }
+
+    public String encode() {
+        String value = sortBy + SEPARATOR + direction + SEPARATOR + lastId + SEPARATOR
+                + (lastUpdateDateTime == null ? "" : lastUpdateDateTime.toString()) + SEPARATOR
+                + (offset == null ? "" : offset.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static RecipeCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = value.split("\\|", -1);
+            RecipeSortKey sortBy = RecipeSortKey.valueOf(parts[0]);
+            LocalDateTime lastUpdateDateTime = parts[3].isEmpty() ? null : LocalDateTime.parse(parts[3]);
+            Integer offset = parts[4].isEmpty() ? null : Integer.valueOf(parts[4]);
+            if (sortBy == RecipeSortKey.UPDATE_DATE_TIME && lastUpdateDateTime == null) {
+                throw new IllegalArgumentException("cursor without update time");
+            }
+            if (sortBy == RecipeSortKey.RELEVANCE && (offset == null || offset < 0)) {
+                throw new IllegalArgumentException("cursor without offset");
+            }
+            return new RecipeCursor(sortBy, Sort.Direction.valueOf(parts[1]), Integer.valueOf(parts[2]),
+                    lastUpdateDateTime, offset);
+        } catch (RuntimeException e) {
+            throw new BadRequestException(ErrorMessages.INVALID_CURSOR);
+        }
+    }
+}
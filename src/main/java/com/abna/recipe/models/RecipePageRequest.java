@@ -0,0 +1,29 @@
+package com.abna.recipe.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecipePageRequest {
+
+    private Integer limit;
+
+    private String cursor;
+
+    /** defaults to RELEVANCE for full-text searches and to ID otherwise */
+    private RecipeSortKey sortBy;
+
+    @Builder.Default
+    private Sort.Direction direction = Sort.Direction.ASC;
+
+    /** entity tags from the If-None-Match header; a matching page is reported as not modified without mapping it */
+    private List<String> ifNoneMatch;
+}
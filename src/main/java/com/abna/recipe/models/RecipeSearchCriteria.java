@@ -0,0 +1,33 @@
+package com.abna.recipe.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecipeSearchCriteria {
+
+    /** free text matched against name, ingredients and instructions by the full-text index */
+    private String q;
+
+    private String name;
+
+    private Integer serving;
+
+    private List<String> includeIngredients;
+
+    @Builder.Default
+    private IngredientMatch includeMatch = IngredientMatch.ALL;
+
+    private List<String> excludeIngredients;
+
+    private String type;
+
+    private String instructions;
+}
@@ -0,0 +1,21 @@
+package com.abna.recipe.models;
+
+/**
+ * Keys a recipe search can be ordered by; the recipe id is always used as tie-breaker.
+ * RELEVANCE applies to full-text searches only.
+ */
+public enum RecipeSortKey {
+    ID("id"),
+    UPDATE_DATE_TIME("updateDateTime"),
+    RELEVANCE("score");
+
+    private final String property;
+
+    RecipeSortKey(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+}
@@ -0,0 +1,33 @@
+package com.abna.recipe.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns a recipe list view shows, selected on their own instead of loading whole recipes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecipeSummary {
+
+    @Schema(description = "ID of the Recipe.")
+    private Integer id;
+
+    @Schema(description = "Name of recipe.")
+    private String name;
+
+    @Schema(description = "Recipe type defines the cuisine or context of the meal.")
+    private String type;
+
+    @Schema(description = "Serving size of the recipe.")
+    private Integer serving;
+
+    @JsonIgnore
+    private LocalDateTime updateDateTime;
+}
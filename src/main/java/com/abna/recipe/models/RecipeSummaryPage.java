@@ -0,0 +1,24 @@
+package com.abna.recipe.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecipeSummaryPage {
+
+    private List<RecipeSummary> summaries;
+
+    /** opaque continuation token for the next page, null when this is the last page */
+    private String nextCursor;
+
+    /** strong entity tag of the page, derived from the ids and update times of its recipes */
+    private String etag;
+
+    /** true when the page matches a tag in the request's If-None-Match; summaries are then left empty */
+    private boolean notModified;
+}
@@ -0,0 +1,21 @@
+package com.abna.recipe.models;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A recipe with ingredients alike those of the requested one.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimilarRecipe {
+
+    @Schema(description = "The similar Recipe.")
+    private Recipe recipe;
+
+    @Schema(description = "Ingredients both recipes have over the ingredients either has, 1 for the same ingredients.")
+    private double similarity;
+}
@@ -0,0 +1,34 @@
+package com.abna.recipe.repository;
+
+import com.abna.recipe.entity.RecipeChangeData;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.QueryHint;
+import java.util.List;
+
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+@Repository
+public interface RecipeChangeRepository extends JpaRepository<RecipeChangeData, Long> {
+
+    /**
+     * Changes after the given feed position in feed order, a range scan of the position index.
+     */
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query("select c from RecipeChangeData c where c.position > :since order by c.position")
+    List<RecipeChangeData> findAfter(@Param("since") long since, Pageable pageable);
+
+    /**
+     * Committed changes that have no feed position yet, in the order they were logged.
+     */
+    @Query("select c from RecipeChangeData c where c.position is null order by c.seq")
+    List<RecipeChangeData> findPending(Pageable pageable);
+
+    @Query("select coalesce(max(c.position), 0) from RecipeChangeData c")
+    long findMaxPosition();
+}
@@ -1,8 +1,23 @@
 package com.abna.recipe.repository;
 
 import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.models.IngredientMatch;
+import com.abna.recipe.models.RecipeCursor;
+import com.abna.recipe.models.RecipeSortKey;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Set;
+
+import static com.abna.recipe.util.CommonUtil.toSearchKey;
+
 public class RecipeDataSpecification {
 
     public static Specification<RecipeData> getRecipeByIdNotNull() {
@@ -10,8 +25,13 @@ public class RecipeDataSpecification {
                 root.get("id"));
     }
 
+    public static Specification<RecipeData> getByIds(Collection<Integer> ids) {
+        return (root, criQuery, criteriaBuilder) -> ids.isEmpty()
+                ? criteriaBuilder.disjunction() : root.get("id").in(ids);
+    }
+
     public static Specification<RecipeData> getByName(String name) {
-        return (root, criQuery, criteriaBuilder) -> criteriaBuilder.like(root.get("name"), "%" + name + "%");
+        return (root, criQuery, criteriaBuilder) -> criteriaBuilder.like(root.get("nameKey"), "%" + toSearchKey(name) + "%");
     }
 
     public static Specification<RecipeData> getByServing(Integer serving) {
@@ -19,19 +39,55 @@ public class RecipeDataSpecification {
     }
 
     public static Specification<RecipeData> getByType(String type) {
-        return (root, criQuery, criteriaBuilder) -> criteriaBuilder.equal(root.get("type"), "%" + type + "%");
-
+        return (root, criQuery, criteriaBuilder) -> criteriaBuilder.equal(root.get("typeKey"), toSearchKey(type));
     }
 
     public static Specification<RecipeData> getByInstructions(String instructions) {
         return (root, criQuery, criteriaBuilder) -> criteriaBuilder.like(root.get("instructions"), "%" + instructions + "%");
     }
 
-    public static Specification<RecipeData> getByIncludeIngredients(String include) {
-        return (root, criQuery, criteriaBuilder) -> criteriaBuilder.like(root.get("ingredients"), "%" + include + "%");
+    public static Specification<RecipeData> getByIncludeIngredients(Set<String> include, IngredientMatch match) {
+        return (root, criQuery, criteriaBuilder) -> {
+            Subquery<Integer> matching = criQuery.subquery(Integer.class);
+            Root<RecipeData> indexed = matching.from(RecipeData.class);
+            Join<RecipeData, String> ingredient = indexed.join("ingredientKeys");
+            matching.select(indexed.get("id")).where(ingredient.in(include));
+            if (match == IngredientMatch.ALL) {
+                matching.groupBy(indexed.get("id"))
+                        .having(criteriaBuilder.equal(criteriaBuilder.countDistinct(ingredient), (long) include.size()));
+            }
+            return root.get("id").in(matching);
+        };
+    }
+
+    public static Specification<RecipeData> getByExcludeIngredients(Set<String> exclude) {
+        return (root, criQuery, criteriaBuilder) -> {
+            Subquery<Integer> matching = criQuery.subquery(Integer.class);
+            Root<RecipeData> indexed = matching.from(RecipeData.class);
+            Join<RecipeData, String> ingredient = indexed.join("ingredientKeys");
+            matching.select(indexed.get("id")).where(ingredient.in(exclude));
+            return criteriaBuilder.not(root.get("id").in(matching));
+        };
     }
 
-    public static Specification<RecipeData> getByExcludeIngredients(String exclude) {
-        return (root, criQuery, criteriaBuilder) -> criteriaBuilder.notLike(root.get("ingredients"), "%" + exclude + "%");
+    /**
+     * Keyset predicate selecting the recipes that come after the cursor in its sort order.
+     */
+    public static Specification<RecipeData> getAfterCursor(RecipeCursor cursor) {
+        boolean ascending = cursor.getDirection() == Sort.Direction.ASC;
+        return (root, criQuery, criteriaBuilder) -> {
+            Predicate afterId = ascending
+                    ? criteriaBuilder.greaterThan(root.get("id"), cursor.getLastId())
+                    : criteriaBuilder.lessThan(root.get("id"), cursor.getLastId());
+            if (cursor.getSortBy() == RecipeSortKey.ID) {
+                return afterId;
+            }
+            Path<LocalDateTime> updateDateTime = root.get("updateDateTime");
+            Predicate afterUpdateDateTime = ascending
+                    ? criteriaBuilder.greaterThan(updateDateTime, cursor.getLastUpdateDateTime())
+                    : criteriaBuilder.lessThan(updateDateTime, cursor.getLastUpdateDateTime());
+            return criteriaBuilder.or(afterUpdateDateTime,
+                    criteriaBuilder.and(criteriaBuilder.equal(updateDateTime, cursor.getLastUpdateDateTime()), afterId));
+        };
     }
 }
@@ -0,0 +1,77 @@
+package com.abna.recipe.repository;
+
+import com.abna.recipe.config.MetricsConfig;
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.models.IngredientMatch;
+import com.abna.recipe.models.RecipeSearchCriteria;
+import io.micrometer.core.annotation.Timed;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.search.engine.search.common.BooleanOperator;
+import org.hibernate.search.engine.search.predicate.dsl.BooleanPredicateClausesStep;
+import org.hibernate.search.engine.search.predicate.dsl.SearchPredicateFactory;
+import org.hibernate.search.mapper.orm.Search;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.abna.recipe.util.CommonUtil.toIngredientKeys;
+
+/**
+ * Relevance ranked (BM25) recipe search against the Lucene index maintained by Hibernate Search, which follows
+ * every insert, update and delete of {@link RecipeData} made through the entity manager.
+ */
+@Repository
+@Timed(MetricsConfig.FULL_TEXT_SEARCH_METRIC)
+public class RecipeFullTextSearch {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional(readOnly = true)
+    public List<RecipeData> search(RecipeSearchCriteria criteria, int offset, int limit) {
+        return Search.session(entityManager)
+                .search(RecipeData.class)
+                .where(f -> f.bool(b -> {
+                    b.must(f.simpleQueryString()
+                            .fields("name", "ingredients", "instructions")
+                            .matching(criteria.getQ())
+                            .defaultOperator(BooleanOperator.AND));
+                    addFilters(f, b, criteria);
+                }))
+                .sort(f -> f.score().then().field("recipeId"))
+                .fetchHits(offset, limit);
+    }
+
+    private static void addFilters(SearchPredicateFactory f, BooleanPredicateClausesStep<?> b,
+                                   RecipeSearchCriteria criteria) {
+        if (!StringUtils.isEmpty(criteria.getName())) {
+            b.filter(f.match().field("name").matching(criteria.getName()));
+        }
+        if (!Objects.isNull(criteria.getServing()) && criteria.getServing() > 0) {
+            b.filter(f.range().field("serving").atLeast(criteria.getServing()));
+        }
+        if (!StringUtils.isEmpty(criteria.getType())) {
+            b.filter(f.match().field("typeKey").matching(criteria.getType()));
+        }
+        if (!StringUtils.isEmpty(criteria.getInstructions())) {
+            b.filter(f.match().field("instructions").matching(criteria.getInstructions()));
+        }
+        Set<String> include = toIngredientKeys(criteria.getIncludeIngredients());
+        if (!include.isEmpty()) {
+            if (criteria.getIncludeMatch() == IngredientMatch.ANY) {
+                b.filter(f.terms().field("ingredientKeys").matchingAny(include));
+            } else {
+                b.filter(f.terms().field("ingredientKeys").matchingAll(include));
+            }
+        }
+        Set<String> exclude = toIngredientKeys(criteria.getExcludeIngredients());
+        if (!exclude.isEmpty()) {
+            b.mustNot(f.terms().field("ingredientKeys").matchingAny(exclude));
+        }
+    }
+}
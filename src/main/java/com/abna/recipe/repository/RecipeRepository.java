@@ -1,11 +1,65 @@
 package com.abna.recipe.repository;
 
 import com.abna.recipe.entity.RecipeData;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
-public interface RecipeRepository extends JpaRepository<RecipeData,Integer>, JpaSpecificationExecutor<RecipeData> {
+public interface RecipeRepository extends JpaRepository<RecipeData,Integer>, JpaSpecificationExecutor<RecipeData>,
+        RecipeRepositoryCustom {
+
+    /**
+     * All recipes in id order as a cursor-backed stream; must be consumed inside a transaction and closed.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select r from RecipeData r order by r.id")
+    Stream<RecipeData> streamAllByOrderById();
+
+    /**
+     * The most recently written recipe, whose update time and version the full-text index has to hold as well.
+     */
+    Optional<RecipeData> findFirstByOrderByUpdateDateTimeDescIdDesc();
+
+    /**
+     * Id, type key, serving and ingredients column of every recipe, the keys the bitmap index is built from; must be
+     * consumed inside a transaction and closed.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select r.id, r.typeKey, r.serving, r.ingredients from RecipeData r")
+    Stream<Object[]> streamFilterKeys();
+
+    /**
+     * Ids of the recipes having at most maxMissing ingredients outside the pantry and at least one in it, ranked by
+     * the share of their ingredients in the pantry, then by fewest missing and by id. Only the ingredient index rows
+     * of pantry ingredients are grouped, the stored ingredient count of a recipe gives the ones it misses.
+     */
+    @Query("select r.id from RecipeData r join r.ingredientKeys k "
+            + "where k in :pantry "
+            + "group by r.id, r.ingredientCount "
+            + "having r.ingredientCount - count(k) <= :maxMissing "
+            + "order by count(k) * 1.0 / r.ingredientCount desc, r.ingredientCount - count(k), r.id")
+    List<Integer> findCoveredBy(@Param("pantry") Collection<String> pantry, @Param("maxMissing") long maxMissing,
+                                Pageable pageable);
+
+    @Query("select r.id from RecipeData r where r.id in :ids")
+    Set<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
 
+    @Query("select r from RecipeData r where r.ingredientKeys is empty and r.ingredients is not null "
+            + "and r.ingredients <> '' and r.id > :afterId order by r.id")
+    List<RecipeData> findWithoutIngredientKeys(@Param("afterId") Integer afterId, Pageable pageable);
 }
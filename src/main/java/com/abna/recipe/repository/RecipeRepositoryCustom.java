@@ -0,0 +1,50 @@
+package com.abna.recipe.repository;
+
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.models.RecipeSummary;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Set;
+
+public interface RecipeRepositoryCustom {
+
+    /**
+     * First {@code limit} recipes matching the specification in the given order, without the count
+     * query a {@link org.springframework.data.domain.Page} would issue.
+     */
+    List<RecipeData> findPage(Specification<RecipeData> spec, Sort sort, int limit);
+
+    /**
+     * Same page as {@link #findPage} but selecting only the summary columns into DTOs, so neither the wide text
+     * columns nor managed entities are involved.
+     */
+    List<RecipeSummary> findSummaryPage(Specification<RecipeData> spec, Sort sort, int limit);
+
+    /**
+     * Inserts a recipe with its assigned id without the select a merge would issue; an existing id surfaces as
+     * {@link org.springframework.dao.DataIntegrityViolationException} right away because the insert is flushed.
+     */
+    void insert(RecipeData recipeData);
+
+    /**
+     * Writes the recipe over the stored row with a single update statement conditional on the version it was read at,
+     * instead of flushing a managed entity. Only the ingredient index rows that differ from the stored keys are
+     * deleted or inserted, and the full-text index entry is replaced since bulk statements bypass automatic
+     * indexing. On success the recipe carries its new version.
+     *
+     * @param recipeData           the new state, with the version and create time it was read at
+     * @param storedIngredientKeys the ingredient keys of the state that was read
+     * @return the number of recipes updated, 0 when the recipe is gone or was updated since it was read
+     */
+    int update(RecipeData recipeData, Set<String> storedIngredientKeys);
+
+    /**
+     * Deletes a recipe with a bulk statement instead of loading it first, and removes it from the full-text index;
+     * the foreign key cascades the delete to its ingredient index rows.
+     *
+     * @return the number of recipes deleted, 0 when there was none with this id
+     */
+    int deleteRecipeById(Integer id);
+}
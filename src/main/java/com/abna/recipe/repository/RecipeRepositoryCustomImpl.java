@@ -0,0 +1,138 @@
+package com.abna.recipe.repository;
+
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.models.RecipeSummary;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.search.mapper.orm.Search;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.abna.recipe.util.CommonUtil.toSearchKey;
+
+public class RecipeRepositoryCustomImpl implements RecipeRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<RecipeData> findPage(Specification<RecipeData> spec, Sort sort, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<RecipeData> query = criteriaBuilder.createQuery(RecipeData.class);
+        Root<RecipeData> root = query.from(RecipeData.class);
+
+        Predicate predicate = spec.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(root).orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+
+        // pages are only mapped and returned, so Hibernate keeps no dirty-checking snapshot of the rows
+        return entityManager.createQuery(query)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<RecipeSummary> findSummaryPage(Specification<RecipeData> spec, Sort sort, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<RecipeSummary> query = criteriaBuilder.createQuery(RecipeSummary.class);
+        Root<RecipeData> root = query.from(RecipeData.class);
+
+        Predicate predicate = spec.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(criteriaBuilder.construct(RecipeSummary.class,
+                        root.get("id"), root.get("name"), root.get("type"), root.get("serving"), root.get("updateDateTime")))
+                .orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    @Transactional
+    public void insert(RecipeData recipeData) {
+        entityManager.persist(recipeData);
+        entityManager.flush();
+    }
+
+    @Override
+    @Transactional
+    public int update(RecipeData recipeData, Set<String> storedIngredientKeys) {
+        // a copy loaded earlier in the transaction is stale once the row is updated, and must not be flushed over it
+        entityManager.detach(entityManager.getReference(RecipeData.class, recipeData.getId()));
+        recipeData.setNameKey(toSearchKey(recipeData.getName()));
+        recipeData.setTypeKey(toSearchKey(recipeData.getType()));
+        recipeData.setIngredientCount(recipeData.getIngredientKeys().size());
+
+        int updated = entityManager.createQuery("update RecipeData r set r.name = :name, r.nameKey = :nameKey, "
+                        + "r.type = :type, r.typeKey = :typeKey, r.serving = :serving, r.ingredients = :ingredients, "
+                        + "r.ingredientCount = :ingredientCount, r.instructions = :instructions, "
+                        + "r.updateDateTime = :updateDateTime, r.version = r.version + 1 "
+                        + "where r.id = :id and r.version = :version")
+                .setParameter("name", recipeData.getName())
+                .setParameter("nameKey", recipeData.getNameKey())
+                .setParameter("type", recipeData.getType())
+                .setParameter("typeKey", recipeData.getTypeKey())
+                .setParameter("serving", recipeData.getServing())
+                .setParameter("ingredients", recipeData.getIngredients())
+                .setParameter("ingredientCount", recipeData.getIngredientCount())
+                .setParameter("instructions", recipeData.getInstructions())
+                .setParameter("updateDateTime", recipeData.getUpdateDateTime())
+                .setParameter("id", recipeData.getId())
+                .setParameter("version", recipeData.getVersion())
+                .executeUpdate();
+        if (updated == 0) {
+            return 0;
+        }
+        recipeData.setVersion(recipeData.getVersion() + 1);
+
+        Set<String> removed = new HashSet<>(storedIngredientKeys);
+        removed.removeAll(recipeData.getIngredientKeys());
+        if (!removed.isEmpty()) {
+            entityManager.createNativeQuery("delete from recipe_ingredients where recipe_id = :id "
+                            + "and ingredient in (:removed)")
+                    .setParameter("id", recipeData.getId())
+                    .setParameter("removed", removed)
+                    .executeUpdate();
+        }
+        for (String ingredientKey : recipeData.getIngredientKeys()) {
+            if (!storedIngredientKeys.contains(ingredientKey)) {
+                entityManager.createNativeQuery("insert into recipe_ingredients (recipe_id, ingredient) "
+                                + "values (:id, :ingredient)")
+                        .setParameter("id", recipeData.getId())
+                        .setParameter("ingredient", ingredientKey)
+                        .executeUpdate();
+            }
+        }
+        Search.session(entityManager).indexingPlan().addOrUpdate(recipeData);
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public int deleteRecipeById(Integer id) {
+        // the ingredient index rows go with the recipe through on delete cascade
+        int deleted = entityManager.createQuery("delete from RecipeData r where r.id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+        if (deleted > 0) {
+            // bulk statements bypass automatic indexing
+            Search.session(entityManager).indexingPlan().purge(RecipeData.class, id, null);
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,60 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.repository.RecipeRepository;
+import com.abna.recipe.util.IngredientCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static com.abna.recipe.util.CommonUtil.toIngredientKeys;
+
+/**
+ * Migrates recipes stored before the ingredient index existed by deriving their index rows
+ * from the comma-joined ingredients column, one batch per transaction.
+ */
+@Component
+@ConditionalOnProperty(name = "recipe.ingredient-index.backfill-on-startup", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class IngredientIndexBackfill implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final RecipeRepository recipeRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public IngredientIndexBackfill(RecipeRepository recipeRepository, TransactionTemplate transactionTemplate) {
+        this.recipeRepository = recipeRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int lastId = Integer.MIN_VALUE;
+        int migrated = 0;
+        while (true) {
+            final int afterId = lastId;
+            List<RecipeData> batch = transactionTemplate.execute(status -> {
+                List<RecipeData> recipes = recipeRepository.findWithoutIngredientKeys(afterId, PageRequest.of(0, BATCH_SIZE));
+                recipes.forEach(recipeData -> recipeData.setIngredientKeys(
+                        toIngredientKeys(IngredientCodec.split(recipeData.getIngredients()))));
+                return recipes;
+            });
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            migrated += batch.size();
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+        if (migrated > 0) {
+            log.info("ingredient index backfilled for recipes: " + migrated);
+        }
+    }
+}
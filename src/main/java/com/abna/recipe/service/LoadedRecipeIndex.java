@@ -0,0 +1,216 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.repository.RecipeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Base of the in-process recipe indexes, which are loaded from the database and then follow the committed writes of
+ * this instance. It holds the structure of the index and the lock guarding it, and runs the load: the stored recipes
+ * are read in one pass, the recipes changing meanwhile are collected and read again once the structure is in place,
+ * until a pass sees no further changes.
+ * <p>
+ * At startup the load runs on a thread of its own, so a large catalogue does not delay the application becoming
+ * ready; until it finishes the index answers nothing and its callers go to the database or refuse the request.
+ * Code that has to start from the loaded index, such as tests and benchmarks, waits with {@link #awaitLoaded}.
+ * <p>
+ * Concurrent updates of a recipe can commit and reach the index in any order, so the indexes keep the version they
+ * applied per recipe and drop older changes with {@link #isOutdated}, as {@link RecipesCacheUpdater} does for the
+ * recipe cache.
+ *
+ * @param <T> structure of the index, guarded by the lock
+ * @param <E> what the structure keeps of one stored recipe
+ */
+@Slf4j
+public abstract class LoadedRecipeIndex<T, E> implements ApplicationRunner {
+
+    private static final Comparator<Long> VERSION_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private final String name;
+
+    private final boolean enabled;
+
+    private final RecipeRepository recipeRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** released by the first load that completes */
+    private final CountDownLatch firstLoad = new CountDownLatch(1);
+
+    /** null until loaded */
+    private T structure;
+
+    /** recipes changed while the index loads, their rows may have been read before the change */
+    private Set<Integer> changedWhileLoading;
+
+    protected LoadedRecipeIndex(String name, boolean enabled, RecipeRepository recipeRepository,
+                                TransactionTemplate transactionTemplate) {
+        this.name = name;
+        this.enabled = enabled;
+        this.recipeRepository = recipeRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        Thread loader = new Thread(() -> {
+            try {
+                load();
+            } catch (RuntimeException e) {
+                log.error(name + " index of recipes failed to load: " + e.getMessage());
+            }
+        }, name + "-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Builds the index from the stored recipes and replaces the one in use, if any, once it is complete. Loads run one
+     * at a time: a call made while another load runs waits for it and then loads again, so it does not wait for the
+     * load started with the application, see {@link #awaitLoaded} for that.
+     */
+    public synchronized void load() {
+        log.info("loading " + name + " index of recipes");
+        lock.writeLock().lock();
+        try {
+            changedWhileLoading = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        T loaded = Objects.requireNonNull(transactionTemplate.execute(status -> build()));
+
+        Set<Integer> changed;
+        lock.writeLock().lock();
+        try {
+            structure = loaded;
+            changed = takeChangedWhileLoading();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        while (!changed.isEmpty()) {
+            Set<Integer> ids = changed;
+            Map<Integer, E> stored = Objects.requireNonNull(transactionTemplate.execute(status ->
+                    recipeRepository.findAllById(ids).stream()
+                            .collect(Collectors.toMap(RecipeData::getId, this::entry))));
+            lock.writeLock().lock();
+            try {
+                for (Integer id : ids) {
+                    reload(loaded, id, stored.get(id));
+                }
+                changed = takeChangedWhileLoading();
+                if (changed.isEmpty()) {
+                    changedWhileLoading = null;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info(name + " index of recipes loaded, recipes: " + read(this::size, 0));
+        firstLoad.countDown();
+    }
+
+    public boolean isLoaded() {
+        return enabled && read(loaded -> true, false);
+    }
+
+    /**
+     * Waits until a load has completed, usually the one started with the application, without loading again.
+     *
+     * @return false when the index is disabled or no load completed within the timeout
+     */
+    public boolean awaitLoaded(Duration timeout) throws InterruptedException {
+        return enabled && firstLoad.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /** reads every stored recipe into a new structure, inside a read transaction */
+    protected abstract T build();
+
+    /** what the structure keeps of a stored recipe, read inside a transaction */
+    protected abstract E entry(RecipeData recipeData);
+
+    /**
+     * Replaces whatever the structure holds of the recipe by its stored state, under the write lock.
+     *
+     * @param entry null when the recipe is gone
+     */
+    protected abstract void reload(T structure, Integer id, @Nullable E entry);
+
+    /** applies a committed change to the structure, under the write lock */
+    protected abstract void apply(T structure, RecipeChangedEvent event);
+
+    /** recipes in the structure, under the read lock */
+    protected abstract int size(T structure);
+
+    /**
+     * Notes the change for a load in progress and applies it once the structure is in place; the committed change
+     * listeners of the indexes hand their events here.
+     */
+    protected void changed(RecipeChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (changedWhileLoading != null) {
+                changedWhileLoading.add(event.getId());
+            }
+            if (structure != null) {
+                apply(structure, event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the change brings a state no newer than the one the structure holds of the recipe. Deletes are never
+     * outdated, a recipe created again under the same id starts over from its first version.
+     *
+     * @param indexedVersion version of the indexed state, null when the structure keeps none for the recipe
+     */
+    protected static boolean isOutdated(RecipeChangedEvent event, @Nullable Long indexedVersion) {
+        return !event.isDelete() && indexedVersion != null
+                && VERSION_ORDER.compare(event.getAfter().getVersion(), indexedVersion) <= 0;
+    }
+
+    /**
+     * @param unloaded result while the index has not loaded
+     */
+    protected <R> R read(Function<T, R> reader, R unloaded) {
+        lock.readLock().lock();
+        try {
+            return structure == null ? unloaded : reader.apply(structure);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Set<Integer> takeChangedWhileLoading() {
+        Set<Integer> changed = changedWhileLoading;
+        changedWhileLoading = new HashSet<>();
+        return changed;
+    }
+}
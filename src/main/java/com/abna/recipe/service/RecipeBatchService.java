@@ -0,0 +1,223 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.config.MetricsConfig;
+import com.abna.recipe.config.RecipeProperties;
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.exceptions.ErrorMessages;
+import com.abna.recipe.models.BatchItemResult;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.repository.RecipeRepository;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.abna.recipe.config.CacheConfig.RECIPES_CACHE;
+import static com.abna.recipe.util.CommonUtil.mapToRecipeData;
+import static com.abna.recipe.util.CommonUtil.mapToRecipeModel;
+import static com.abna.recipe.util.CommonUtil.sanitizeRecipe;
+import static com.abna.recipe.util.CommonUtil.updateRecipeData;
+
+/**
+ * Bulk create, update and delete of recipes. Items are written in chunks, one transaction per chunk, with a
+ * single lookup per chunk instead of one per item; inserts go through persist so no select precedes them, and
+ * hibernate.jdbc.batch_size groups the statements into JDBC batches. Every written item publishes a
+ * {@link RecipeChangedEvent}, delivered once its chunk commits. A chunk that fails as a whole is retried item
+ * by item so that every item still gets its own result.
+ */
+@Service
+@Timed(MetricsConfig.SERVICE_METRIC)
+@Slf4j
+public class RecipeBatchService {
+
+    private final RecipeRepository recipeRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final RecipeProperties recipeProperties;
+
+    private final Cache recipesCache;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public RecipeBatchService(RecipeRepository recipeRepository, TransactionTemplate transactionTemplate,
+                              RecipeProperties recipeProperties, CacheManager cacheManager,
+                              ApplicationEventPublisher eventPublisher) {
+        this.recipeRepository = recipeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.recipeProperties = recipeProperties;
+        this.recipesCache = cacheManager.getCache(RECIPES_CACHE);
+        this.eventPublisher = eventPublisher;
+    }
+
+    public List<BatchItemResult> createRecipes(List<Recipe> recipes) {
+        log.info("batch create of recipes: " + recipes.size());
+
+        return writeInChunks(recipes, this::createChunk, Recipe::getId);
+    }
+
+    public List<BatchItemResult> updateRecipes(List<Recipe> recipes) {
+        log.info("batch update of recipes: " + recipes.size());
+
+        return writeInChunks(recipes, this::updateChunk, Recipe::getId);
+    }
+
+    public List<BatchItemResult> deleteRecipes(List<Integer> ids) {
+        log.info("batch delete of recipes: " + ids.size());
+
+        return writeInChunks(ids, this::deleteChunk, Function.identity());
+    }
+
+    private List<BatchItemResult> createChunk(List<Recipe> chunk) {
+        Set<Integer> takenIds = new HashSet<>(existingIds(chunk.stream()
+                .filter(RecipeBatchService::isValid)
+                .map(Recipe::getId)
+                .collect(Collectors.toSet())));
+
+        List<BatchItemResult> results = new ArrayList<>(chunk.size());
+        for (Recipe recipe : chunk) {
+            if (!isValid(recipe)) {
+                results.add(result(recipe == null ? null : recipe.getId(), HttpStatus.BAD_REQUEST, ErrorMessages.BAD_REQUEST));
+            } else if (!takenIds.add(recipe.getId())) {
+                results.add(result(recipe.getId(), HttpStatus.CONFLICT, ErrorMessages.RESOURCE_CONFLICT));
+            } else {
+                RecipeData recipeData = mapToRecipeData(recipe);
+                entityManager.persist(recipeData);
+                eventPublisher.publishEvent(RecipeChangedEvent.created(mapToRecipeModel(recipeData)));
+                results.add(result(recipe.getId(), HttpStatus.CREATED, "recipe created"));
+            }
+        }
+        flushAndClear();
+        return results;
+    }
+
+    private List<BatchItemResult> updateChunk(List<Recipe> chunk) {
+        Map<Integer, RecipeData> stored = recipeRepository.findAllById(chunk.stream()
+                        .filter(RecipeBatchService::isValid)
+                        .map(Recipe::getId)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(RecipeData::getId, Function.identity()));
+
+        List<BatchItemResult> results = new ArrayList<>(chunk.size());
+        for (Recipe recipe : chunk) {
+            if (!isValid(recipe)) {
+                results.add(result(recipe == null ? null : recipe.getId(), HttpStatus.BAD_REQUEST, ErrorMessages.BAD_REQUEST));
+            } else if (!stored.containsKey(recipe.getId())) {
+                results.add(result(recipe.getId(), HttpStatus.NOT_FOUND, ErrorMessages.RECIPE_NOT_FOUND));
+            } else {
+                RecipeData recipeData = stored.get(recipe.getId());
+                Recipe before = mapToRecipeModel(recipeData);
+                updateRecipeData(recipeData, recipe);
+                eventPublisher.publishEvent(RecipeChangedEvent.updated(before, mapToRecipeModel(recipeData)));
+                results.add(result(recipe.getId(), HttpStatus.OK, "recipe updated"));
+            }
+        }
+        flushAndClear();
+        return results;
+    }
+
+    private List<BatchItemResult> deleteChunk(List<Integer> chunk) {
+        Map<Integer, RecipeData> stored = recipeRepository.findAllById(chunk.stream()
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(RecipeData::getId, Function.identity()));
+
+        List<BatchItemResult> results = new ArrayList<>(chunk.size());
+        for (Integer id : chunk) {
+            RecipeData recipeData = id == null ? null : stored.remove(id);
+            if (id == null) {
+                results.add(result(null, HttpStatus.BAD_REQUEST, ErrorMessages.BAD_REQUEST));
+            } else if (recipeData == null) {
+                results.add(result(id, HttpStatus.NOT_FOUND, ErrorMessages.RECIPE_NOT_FOUND));
+            } else {
+                entityManager.remove(recipeData);
+                eventPublisher.publishEvent(RecipeChangedEvent.deleted(id, mapToRecipeModel(recipeData)));
+                results.add(result(id, HttpStatus.OK, "requested recipe deleted"));
+            }
+        }
+        flushAndClear();
+        return results;
+    }
+
+    private <T> List<BatchItemResult> writeInChunks(List<T> items, Function<List<T>, List<BatchItemResult>> chunkWriter,
+                                                    Function<T, Integer> idOf) {
+        int chunkSize = Math.max(1, recipeProperties.getBatch().getChunkSize());
+        List<BatchItemResult> results = new ArrayList<>(items.size());
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            List<T> chunk = items.subList(from, Math.min(from + chunkSize, items.size()));
+            results.addAll(writeChunk(chunk, chunkWriter, idOf));
+        }
+        return results;
+    }
+
+    private <T> List<BatchItemResult> writeChunk(List<T> chunk, Function<List<T>, List<BatchItemResult>> chunkWriter,
+                                                 Function<T, Integer> idOf) {
+        List<BatchItemResult> results;
+        try {
+            results = transactionTemplate.execute(status -> chunkWriter.apply(chunk));
+        } catch (RuntimeException e) {
+            if (chunk.size() == 1) {
+                T item = chunk.get(0);
+                Integer id = item == null ? null : idOf.apply(item);
+                // the entity manager is used directly here, so the exception may not have been translated
+                if (e instanceof OptimisticLockingFailureException || e instanceof OptimisticLockException) {
+                    log.error("batch item was modified concurrently, recipeId: " + id);
+                    return List.of(result(id, HttpStatus.CONFLICT, ErrorMessages.CONCURRENT_UPDATE));
+                }
+                log.error("issue with writing batch item with recipeId: " + id);
+                return List.of(result(id, HttpStatus.INTERNAL_SERVER_ERROR, ErrorMessages.INTERNAL_SERVER_ERROR));
+            }
+            log.error("issue with writing batch chunk, retrying its items one by one");
+            return chunk.stream()
+                    .flatMap(item -> writeChunk(Collections.singletonList(item), chunkWriter, idOf).stream())
+                    .collect(Collectors.toList());
+        }
+
+        // chunk is committed, drop whatever the single item cache holds for the written recipes
+        results.stream()
+                .filter(result -> result.getId() != null && result.getStatus() < 300)
+                .forEach(result -> recipesCache.evict(result.getId()));
+        return results;
+    }
+
+    private Set<Integer> existingIds(Collection<Integer> ids) {
+        return ids.isEmpty() ? Set.of() : recipeRepository.findExistingIds(ids);
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static boolean isValid(Recipe recipe) {
+        return sanitizeRecipe(recipe) && recipe.getIngredients() != null;
+    }
+
+    private static BatchItemResult result(Integer id, HttpStatus status, String message) {
+        return new BatchItemResult(id, status.value(), message);
+    }
+}
@@ -0,0 +1,382 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.config.MetricsConfig;
+import com.abna.recipe.config.RecipeProperties;
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.models.IngredientMatch;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.models.RecipeSearchCriteria;
+import com.abna.recipe.repository.RecipeRepository;
+import com.abna.recipe.util.CommonUtil;
+import com.abna.recipe.util.IngredientCodec;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntConsumer;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.abna.recipe.util.CommonUtil.toIngredientKeys;
+import static com.abna.recipe.util.CommonUtil.toSearchKey;
+
+/**
+ * Optional in-process index resolving the type, serving and ingredient filters of structured searches to recipe ids,
+ * so the database only loads the rows of the requested page. Every type, serving value and ingredient has a
+ * compressed bitmap of the recipes carrying it; a search combines them with and, or and and-not, which takes
+ * microseconds whatever the number of recipes.
+ * <p>
+ * The index is loaded from the database at startup and follows the writes of this instance once they commit, see
+ * {@link LoadedRecipeIndex}, so it is only exact while no other instance writes to the same database. Searches by
+ * name or instructions, and searches issued before the index has loaded, go to the database as before.
+ * <p>
+ * Bitmaps order their values as unsigned ints, the sign bit of a recipe id is flipped so that negative ids still
+ * come first.
+ * <p>
+ * The version applied last is kept per recipe changed since the load, so older changes reaching the index late are
+ * dropped. Searches still apply their filters to the rows of the page, so an entry the index gets wrong can leave a
+ * recipe out of the results but never returns one against the filters.
+ */
+@Component
+@Slf4j
+public class RecipeBitmapIndex extends LoadedRecipeIndex<RecipeBitmapIndex.Bitmaps, Recipe> {
+
+    /** have out of total ingredients on hand, by share, then by fewest missing */
+    private static final Comparator<int[]> COVERAGE_RANKING = (a, b) -> a[0] * b[1] != b[0] * a[1]
+            ? Integer.compare(b[0] * a[1], a[0] * b[1]) : Integer.compare(a[1] - a[0], b[1] - b[0]);
+
+    private final RecipeRepository recipeRepository;
+
+    public RecipeBitmapIndex(RecipeRepository recipeRepository, TransactionTemplate transactionTemplate,
+                             RecipeProperties recipeProperties, MeterRegistry meterRegistry) {
+        super("bitmap", recipeProperties.getBitmapIndex().isEnabled(), recipeRepository, transactionTemplate);
+        this.recipeRepository = recipeRepository;
+        Gauge.builder(MetricsConfig.BITMAP_INDEX_METRIC, this, RecipeBitmapIndex::sizeInBytes)
+                .description("serialized size of the bitmaps of the recipe filter index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected Bitmaps build() {
+        Bitmaps loaded = new Bitmaps();
+        try (Stream<Object[]> rows = recipeRepository.streamFilterKeys()) {
+            rows.forEach(row -> loaded.add((Integer) row[0], (String) row[1], (Integer) row[2],
+                    Objects.isNull(row[3]) ? Set.of() : toIngredientKeys(IngredientCodec.split((String) row[3]))));
+        }
+        return loaded;
+    }
+
+    @Override
+    protected Recipe entry(RecipeData recipeData) {
+        return CommonUtil.mapToRecipeModel(recipeData);
+    }
+
+    @Override
+    protected void reload(Bitmaps bitmaps, Integer id, @Nullable Recipe recipe) {
+        bitmaps.removeEverywhere(id);
+        bitmaps.versions.remove(id);
+        if (recipe != null) {
+            bitmaps.add(recipe);
+            bitmaps.versions.put(id, recipe.getVersion());
+        }
+    }
+
+    @Override
+    protected int size(Bitmaps bitmaps) {
+        return bitmaps.all.getCardinality();
+    }
+
+    /** whether the filters of the search can be resolved here instead of by the database */
+    public boolean canResolve(RecipeSearchCriteria criteria) {
+        return StringUtils.isEmpty(criteria.getQ()) && StringUtils.isEmpty(criteria.getName())
+                && StringUtils.isEmpty(criteria.getInstructions()) && isLoaded();
+    }
+
+    /**
+     * Ids of the recipes matching the search in id order, starting after the given id.
+     *
+     * @param afterId last id of the previous page, null for the first page
+     * @param limit   ids returned at most
+     */
+    public List<Integer> findIds(RecipeSearchCriteria criteria, Sort.Direction direction, Integer afterId, int limit) {
+        return read(bitmaps -> {
+            List<Integer> ids = new ArrayList<>(Math.min(limit, 1024));
+            RoaringBitmap matching = bitmaps.matching(criteria);
+            if (direction == Sort.Direction.DESC) {
+                // counted from the end by rank, previousValue misreads keys with the high bit set in this version
+                long before = Objects.isNull(afterId) ? matching.getLongCardinality()
+                        : matching.rankLong(toKey(afterId)) - (matching.contains(toKey(afterId)) ? 1 : 0);
+                for (long position = before - 1; position >= 0 && ids.size() < limit; position--) {
+                    ids.add(toId(matching.select((int) position)));
+                }
+            } else {
+                PeekableIntIterator keys = matching.getIntIterator();
+                if (!Objects.isNull(afterId)) {
+                    keys.advanceIfNeeded(toKey(afterId));
+                    if (keys.hasNext() && keys.peekNext() == toKey(afterId)) {
+                        keys.next();
+                    }
+                }
+                while (keys.hasNext() && ids.size() < limit) {
+                    ids.add(toId(keys.next()));
+                }
+            }
+            return ids;
+        }, List.of());
+    }
+
+    /**
+     * Ids of the recipes having at most maxMissing ingredients that are not in the pantry, and at least one that is,
+     * ranked by the share of their ingredients in the pantry, then by fewest missing and by id.
+     * <p>
+     * The pantry bitmaps are counted into one array per 2^16 keys, then the recipes of every number of ingredients
+     * are sorted into one bitmap per rank, so a search allocates a few of these arrays rather than new bitmaps for
+     * every pantry ingredient and count.
+     *
+     * @param pantry ingredient keys
+     * @param limit  ids returned at most
+     */
+    public List<Integer> findCovered(Set<String> pantry, int maxMissing, int limit) {
+        return read(bitmaps -> bitmaps.covered(pantry, maxMissing, limit), List.of());
+    }
+
+    /**
+     * Applies a committed change. Runs ahead of {@link RecipeQueryCache}, which reloads invalidated pages right away.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        changed(event);
+    }
+
+    /**
+     * Drops the change when a state at least as new is indexed already. The keys of the state before the change are
+     * removed directly only when that state is the indexed one; otherwise, for the first change of a recipe since
+     * the load or when an intermediate change is still on its way, every bitmap is visited.
+     */
+    @Override
+    protected void apply(Bitmaps bitmaps, RecipeChangedEvent event) {
+        Integer id = event.getId();
+        Long applied = bitmaps.versions.get(id);
+        if (isOutdated(event, applied)) {
+            log.debug("dropping outdated change of recipeId: " + id + ", version: " + event.getAfter().getVersion());
+            return;
+        }
+        Recipe before = event.getBefore();
+        if (before != null && applied != null && applied.equals(before.getVersion())) {
+            bitmaps.remove(before);
+        } else if (before != null || event.isDelete()) {
+            bitmaps.removeEverywhere(id);
+        }
+        if (event.isDelete()) {
+            bitmaps.versions.remove(id);
+        } else {
+            bitmaps.add(event.getAfter());
+            bitmaps.versions.put(id, event.getAfter().getVersion());
+        }
+        log.debug("bitmap index updated for recipeId: " + id);
+    }
+
+    private long sizeInBytes() {
+        return read(Bitmaps::sizeInBytes, 0L);
+    }
+
+    private static int toKey(int id) {
+        return id ^ Integer.MIN_VALUE;
+    }
+
+    private static int toId(int key) {
+        return key ^ Integer.MIN_VALUE;
+    }
+
+    /** the bitmaps themselves, guarded by the lock of the index */
+    static final class Bitmaps {
+
+        private final RoaringBitmap all = new RoaringBitmap();
+
+        /** version of the indexed state of the recipes changed since the load */
+        private final Map<Integer, Long> versions = new HashMap<>();
+
+        private final Map<String, RoaringBitmap> byType = new HashMap<>();
+
+        private final NavigableMap<Integer, RoaringBitmap> byServing = new TreeMap<>();
+
+        private final Map<String, RoaringBitmap> byIngredient = new HashMap<>();
+
+        /** recipes by their number of distinct ingredients */
+        private final NavigableMap<Integer, RoaringBitmap> byIngredientCount = new TreeMap<>();
+
+        /** a new bitmap, or one of the index itself, which must not be modified */
+        RoaringBitmap matching(RecipeSearchCriteria criteria) {
+            List<RoaringBitmap> required = new ArrayList<>();
+            if (!StringUtils.isEmpty(criteria.getType())) {
+                required.add(byType.getOrDefault(toSearchKey(criteria.getType()), new RoaringBitmap()));
+            }
+            if (!Objects.isNull(criteria.getServing()) && criteria.getServing() > 0) {
+                required.add(or(byServing.tailMap(criteria.getServing(), true).values()));
+            }
+            Set<String> include = toIngredientKeys(criteria.getIncludeIngredients());
+            if (!include.isEmpty()) {
+                List<RoaringBitmap> included = include.stream()
+                        .map(ingredient -> byIngredient.getOrDefault(ingredient, new RoaringBitmap()))
+                        .collect(Collectors.toList());
+                if (criteria.getIncludeMatch() == IngredientMatch.ANY) {
+                    required.add(or(included));
+                } else {
+                    required.addAll(included);
+                }
+            }
+
+            RoaringBitmap matching = required.isEmpty() ? all
+                    : required.size() == 1 ? required.get(0) : FastAggregation.and(required.iterator());
+            Set<String> exclude = toIngredientKeys(criteria.getExcludeIngredients());
+            List<RoaringBitmap> excluded = exclude.stream()
+                    .map(byIngredient::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            return excluded.isEmpty() ? matching : RoaringBitmap.andNot(matching, or(excluded));
+        }
+
+        List<Integer> covered(Set<String> pantry, int maxMissing, int limit) {
+            List<RoaringBitmap> onHand = pantry.stream()
+                    .map(byIngredient::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            if (onHand.isEmpty()) {
+                return List.of();
+            }
+            // counts[key >>> 16][key & 0xFFFF] is the number of pantry ingredients of the recipe
+            short[][] counts = new short[1 << 16][];
+            for (RoaringBitmap bitmap : onHand) {
+                bitmap.forEach((IntConsumer) key -> {
+                    short[] chunk = counts[key >>> 16];
+                    if (chunk == null) {
+                        chunk = new short[1 << 16];
+                        counts[key >>> 16] = chunk;
+                    }
+                    chunk[key & 0xFFFF]++;
+                });
+            }
+
+            // recipes by have out of total ingredients on hand, best coverage first; recipes of equal rank, such as
+            // all fully covered ones, share a bitmap and are listed in id order
+            NavigableMap<int[], RoaringBitmap> byRank = new TreeMap<>(COVERAGE_RANKING);
+            byIngredientCount.forEach((total, recipes) -> {
+                int fewest = Math.max(total - maxMissing, 1);
+                RoaringBitmap[] byHave = new RoaringBitmap[total + 1];
+                recipes.forEach((IntConsumer) key -> {
+                    short[] chunk = counts[key >>> 16];
+                    int have = chunk == null ? 0 : chunk[key & 0xFFFF];
+                    if (have >= fewest) {
+                        if (byHave[have] == null) {
+                            byHave[have] = new RoaringBitmap();
+                        }
+                        byHave[have].add(key);
+                    }
+                });
+                for (int have = fewest; have <= total; have++) {
+                    if (byHave[have] != null) {
+                        byRank.computeIfAbsent(new int[]{have, total}, rank -> new RoaringBitmap()).or(byHave[have]);
+                    }
+                }
+            });
+
+            List<Integer> ids = new ArrayList<>(Math.min(limit, 1024));
+            for (Iterator<RoaringBitmap> groups = byRank.values().iterator(); groups.hasNext() && ids.size() < limit; ) {
+                IntIterator keys = groups.next().getIntIterator();
+                while (keys.hasNext() && ids.size() < limit) {
+                    ids.add(toId(keys.next()));
+                }
+            }
+            return ids;
+        }
+
+        void add(Recipe recipe) {
+            add(recipe.getId(), toSearchKey(recipe.getType()), recipe.getServing(),
+                    toIngredientKeys(recipe.getIngredients()));
+        }
+
+        void add(Integer id, String typeKey, Integer serving, Set<String> ingredients) {
+            int key = toKey(id);
+            all.add(key);
+            byType.computeIfAbsent(typeKey, k -> new RoaringBitmap()).add(key);
+            byServing.computeIfAbsent(serving, k -> new RoaringBitmap()).add(key);
+            ingredients.forEach(ingredient -> byIngredient.computeIfAbsent(ingredient, k -> new RoaringBitmap()).add(key));
+            byIngredientCount.computeIfAbsent(ingredients.size(), k -> new RoaringBitmap()).add(key);
+        }
+
+        void remove(Recipe recipe) {
+            int key = toKey(recipe.getId());
+            all.remove(key);
+            remove(byType, toSearchKey(recipe.getType()), key);
+            remove(byServing, recipe.getServing(), key);
+            Set<String> ingredients = toIngredientKeys(recipe.getIngredients());
+            ingredients.forEach(ingredient -> remove(byIngredient, ingredient, key));
+            remove(byIngredientCount, ingredients.size(), key);
+        }
+
+        /** for deletes that did not load the recipe, visits every bitmap */
+        void removeEverywhere(Integer id) {
+            int key = toKey(id);
+            all.remove(key);
+            List.of(byType, byServing, byIngredient, byIngredientCount)
+                    .forEach(bitmaps -> removeEverywhere(bitmaps, key));
+        }
+
+        long sizeInBytes() {
+            long size = all.getLongSizeInBytes();
+            for (Map<?, RoaringBitmap> bitmaps : List.of(byType, byServing, byIngredient, byIngredientCount)) {
+                size += bitmaps.values().stream().mapToLong(RoaringBitmap::getLongSizeInBytes).sum();
+            }
+            return size;
+        }
+
+        private static <K> void remove(Map<K, RoaringBitmap> bitmaps, K value, int key) {
+            RoaringBitmap bitmap = bitmaps.get(value);
+            if (bitmap != null) {
+                bitmap.remove(key);
+                if (bitmap.isEmpty()) {
+                    bitmaps.remove(value);
+                }
+            }
+        }
+
+        private static void removeEverywhere(Map<?, RoaringBitmap> bitmaps, int key) {
+            Iterator<RoaringBitmap> iterator = bitmaps.values().iterator();
+            while (iterator.hasNext()) {
+                RoaringBitmap bitmap = iterator.next();
+                if (bitmap.checkedRemove(key) && bitmap.isEmpty()) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        private static RoaringBitmap or(Collection<RoaringBitmap> bitmaps) {
+            return bitmaps.isEmpty() ? new RoaringBitmap() : FastAggregation.or(bitmaps.iterator());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.config.MetricsConfig;
+import com.abna.recipe.config.RecipeProperties;
+import com.abna.recipe.entity.RecipeChangeData;
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.exceptions.BadRequestException;
+import com.abna.recipe.exceptions.ErrorMessages;
+import com.abna.recipe.models.RecipeChange;
+import com.abna.recipe.models.RecipeChangePage;
+import com.abna.recipe.repository.RecipeChangeRepository;
+import com.abna.recipe.repository.RecipeRepository;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.abna.recipe.util.CommonUtil.mapToRecipeModel;
+
+/**
+ * Delta sync for clients that keep a copy of the catalogue. Every create, update and delete appends a row to the
+ * change log from within the transaction that writes the recipe, so the log and the recipes commit or roll back
+ * together; a sync reads the log after the client's token and only loads the recipes found there, so its cost
+ * follows the number of changes rather than the size of the catalogue.
+ * <p>
+ * The sequence values of the log rows are taken before commit, so a slow write can commit after a later value is
+ * already visible, and a client whose token had passed it would never see it. The token is therefore a separate
+ * feed position, handed out by the feed to committed rows only: a write committing later always lands behind every
+ * position a client can have seen, and rolled back writes or sequence blocks left unused by a restart leave no
+ * gap to wait for.
+ * <p>
+ * A sync positions the pending changes before it opens the transaction reading them, so a sync never holds a
+ * pooled connection while it waits for another one; with more concurrent syncs than pooled connections, a nested
+ * positioning transaction would otherwise find every connection held by syncs waiting for it.
+ */
+@Service
+@Timed(MetricsConfig.SERVICE_METRIC)
+@Slf4j
+public class RecipeChangeFeed {
+
+    private final RecipeChangeRepository recipeChangeRepository;
+
+    private final RecipeRepository recipeRepository;
+
+    private final RecipeProperties recipeProperties;
+
+    private final TransactionTemplate positionTransaction;
+
+    private final TransactionTemplate readTransaction;
+
+    public RecipeChangeFeed(RecipeChangeRepository recipeChangeRepository, RecipeRepository recipeRepository,
+                            RecipeProperties recipeProperties, PlatformTransactionManager transactionManager) {
+        this.recipeChangeRepository = recipeChangeRepository;
+        this.recipeRepository = recipeRepository;
+        this.recipeProperties = recipeProperties;
+        // commits the positions before the sync reads them, whatever transaction the caller runs in
+        this.positionTransaction = new TransactionTemplate(transactionManager);
+        this.positionTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    /** runs synchronously inside the writing transaction, unlike the listeners that act on committed data */
+    @EventListener
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        recipeChangeRepository.save(RecipeChangeData.builder()
+                .recipeId(event.getId())
+                .deleted(event.isDelete())
+                .changedAt(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Recipes changed after the given token, each once with its current state or as a tombstone.
+     *
+     * @param since token from the previous sync, 0 for a client starting from scratch
+     */
+    public RecipeChangePage getChanges(long since, Integer limit) {
+        log.info("getting recipe changes since: " + since);
+        if (since < 0) {
+            log.error("negative change token requested");
+            throw new BadRequestException(ErrorMessages.BAD_REQUEST);
+        }
+        int pageLimit = pageLimit(limit);
+
+        // one extra row tells whether more changes follow; a backlog of pending changes is positioned a page at a time
+        assignPositions(pageLimit + 1);
+        return Objects.requireNonNull(readTransaction.execute(status -> readChanges(since, pageLimit)));
+    }
+
+    private RecipeChangePage readChanges(long since, int pageLimit) {
+        List<RecipeChangeData> logged = recipeChangeRepository.findAfter(since, PageRequest.of(0, pageLimit + 1));
+        boolean hasMore = logged.size() > pageLimit;
+        List<RecipeChangeData> page = hasMore ? logged.subList(0, pageLimit) : logged;
+        if (page.isEmpty()) {
+            log.debug("no recipe changes since: " + since);
+            return new RecipeChangePage(List.of(), since, false);
+        }
+
+        // a recipe written several times is sent once, at the position of its last change
+        Map<Integer, Boolean> deletedById = new LinkedHashMap<>();
+        for (RecipeChangeData change : page) {
+            deletedById.remove(change.getRecipeId());
+            deletedById.put(change.getRecipeId(), change.isDeleted());
+        }
+        Map<Integer, RecipeData> current = recipeRepository.findAllById(deletedById.entrySet().stream()
+                        .filter(entry -> !entry.getValue())
+                        .map(Map.Entry::getKey)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(RecipeData::getId, Function.identity()));
+
+        List<RecipeChange> changes = new ArrayList<>(deletedById.size());
+        for (Integer id : deletedById.keySet()) {
+            // deleted after this change was logged, the delete follows later in the log as well
+            RecipeData recipeData = current.get(id);
+            changes.add(Objects.isNull(recipeData) ? RecipeChange.tombstone(id)
+                    : RecipeChange.upserted(mapToRecipeModel(recipeData)));
+        }
+        log.debug("recipe changes: " + page.size() + ", recipes: " + changes.size());
+        return new RecipeChangePage(changes, page.get(page.size() - 1).getPosition(), hasMore);
+    }
+
+    /**
+     * Gives up to {@code limit} pending changes the next feed positions in a transaction of its own. Only committed
+     * rows are visible to it, and the positions it hands out are committed before any client can read them, so
+     * every change committing afterwards gets a higher position. Another instance positioning the same rows at the
+     * same time collides on the unique position index; the loser rolls back and leaves the rows to the winner.
+     */
+    synchronized void assignPositions(int limit) {
+        try {
+            positionTransaction.executeWithoutResult(status -> {
+                List<RecipeChangeData> pending = recipeChangeRepository.findPending(PageRequest.of(0, limit));
+                if (pending.isEmpty()) {
+                    return;
+                }
+                long position = recipeChangeRepository.findMaxPosition();
+                for (RecipeChangeData change : pending) {
+                    change.setPosition(++position);
+                }
+                log.debug("positioned recipe changes: " + pending.size() + ", up to: " + position);
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.info("recipe changes positioned concurrently elsewhere: " + e.getMessage());
+        }
+    }
+
+    private int pageLimit(Integer requested) {
+        RecipeProperties.Search search = recipeProperties.getSearch();
+        if (Objects.isNull(requested) || requested < 1) {
+            return Math.min(search.getDefaultPageSize(), search.getMaxPageSize());
+        }
+        return Math.min(requested, search.getMaxPageSize());
+    }
+}
@@ -0,0 +1,36 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.models.Recipe;
+import lombok.Value;
+
+/**
+ * Published inside the transaction that creates, updates or deletes a recipe; listeners that act on committed data
+ * use {@link org.springframework.transaction.event.TransactionalEventListener}.
+ */
+@Value
+public class RecipeChangedEvent {
+
+    Integer id;
+
+    /** state before the change, null for creates and for deletes that did not load the recipe */
+    Recipe before;
+
+    /** state after the change, null for deletes */
+    Recipe after;
+
+    public static RecipeChangedEvent created(Recipe recipe) {
+        return new RecipeChangedEvent(recipe.getId(), null, recipe);
+    }
+
+    public static RecipeChangedEvent updated(Recipe before, Recipe after) {
+        return new RecipeChangedEvent(after.getId(), before, after);
+    }
+
+    public static RecipeChangedEvent deleted(Integer id, Recipe before) {
+        return new RecipeChangedEvent(id, before, null);
+    }
+
+    public boolean isDelete() {
+        return after == null;
+    }
+}
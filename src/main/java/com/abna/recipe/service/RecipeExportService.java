@@ -0,0 +1,87 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.config.MetricsConfig;
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.repository.RecipeRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import static com.abna.recipe.util.CommonUtil.mapToRecipeModel;
+
+/**
+ * Writes the whole catalogue as newline-delimited JSON while reading it through a database cursor, so memory
+ * use does not depend on the number of recipes.
+ */
+@Service
+@Timed(MetricsConfig.SERVICE_METRIC)
+@Slf4j
+public class RecipeExportService {
+
+    private static final int FLUSH_EVERY = 500;
+
+    private final RecipeRepository recipeRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public RecipeExportService(RecipeRepository recipeRepository, ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager) {
+        this.recipeRepository = recipeRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public long exportRecipes(OutputStream outputStream) {
+        log.info("exporting all recipes");
+
+        Long exported = readOnlyTransaction.execute(status -> {
+            ObjectWriter writer = objectMapper.writerFor(Recipe.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            long count = 0;
+            try (Stream<RecipeData> recipes = recipeRepository.streamAllByOrderById();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                // lines are terminated explicitly instead of Jackson's space between root values
+                generator.setRootValueSeparator(null);
+                Iterator<RecipeData> iterator = recipes.iterator();
+                while (iterator.hasNext()) {
+                    RecipeData recipeData = iterator.next();
+                    writer.writeValue(generator, mapToRecipeModel(recipeData));
+                    generator.writeRaw('\n');
+                    entityManager.detach(recipeData);
+                    // flush the first line right away so the client sees bytes without waiting for a full batch
+                    if (++count == 1 || count % FLUSH_EVERY == 0) {
+                        generator.flush();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return count;
+        });
+
+        log.info("number of recipes exported: " + exported);
+        return exported == null ? 0 : exported;
+    }
+}
@@ -0,0 +1,153 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.config.RecipeProperties;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.util.RecipeETags;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized JSON of single recipes, keyed by id and tagged with the entity tag of the recipe it was written from,
+ * i.e. its create time and version. The read endpoints send these bytes as they are and build list bodies by
+ * concatenating them, so a recipe is serialized once per version instead of once per request. An entry written from
+ * another version is never served, it is replaced on the next read; the create time keeps a recipe deleted and
+ * created again under the same id, whose version starts over, from being served the bytes of the old one.
+ */
+@Component
+@Slf4j
+public class RecipeJsonCache {
+
+    public static final String JSON_CACHE = "recipe.json";
+
+    private final ObjectWriter writer;
+
+    private final int gzipMinSize;
+
+    private final Cache<Integer, RecipeJson> cache;
+
+    public RecipeJsonCache(ObjectMapper objectMapper, RecipeProperties recipeProperties, MeterRegistry meterRegistry) {
+        this.writer = objectMapper.writerFor(Recipe.class);
+        this.gzipMinSize = recipeProperties.getJsonCache().getGzipMinSize();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(recipeProperties.getJsonCache().getMaxWeightBytes())
+                .weigher((Integer id, RecipeJson json) -> json.weight())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, JSON_CACHE);
+    }
+
+    /** the recipe as the JSON message converter would write it */
+    public byte[] json(Recipe recipe) {
+        return entry(recipe).json;
+    }
+
+    /**
+     * The gzip compressed JSON of the recipe, or null when the recipe is too small for compression to pay off.
+     * The compressed copy is made on first request and kept next to the plain one.
+     */
+    public byte[] gzip(Recipe recipe) {
+        RecipeJson entry = entry(recipe);
+        if (entry.json.length < gzipMinSize) {
+            return null;
+        }
+        if (entry.gzip == null) {
+            RecipeJson compressed = new RecipeJson(entry.tag, entry.json, compress(entry.json));
+            // replace rather than put, a newer version may have been written meanwhile
+            cache.asMap().replace(recipe.getId(), entry, compressed);
+            return compressed.gzip;
+        }
+        return entry.gzip;
+    }
+
+    /** a JSON array of the recipes, assembled from their cached bytes */
+    public byte[] jsonArray(List<Recipe> recipes) {
+        byte[][] elements = new byte[recipes.size()][];
+        int size = 2 + Math.max(0, recipes.size() - 1);
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = json(recipes.get(i));
+            size += elements[i].length;
+        }
+
+        byte[] array = new byte[size];
+        int position = 0;
+        array[position++] = '[';
+        for (int i = 0; i < elements.length; i++) {
+            if (i > 0) {
+                array[position++] = ',';
+            }
+            System.arraycopy(elements[i], 0, array, position, elements[i].length);
+            position += elements[i].length;
+        }
+        array[position] = ']';
+        return array;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        cache.invalidate(event.getId());
+    }
+
+    private RecipeJson entry(Recipe recipe) {
+        String tag = RecipeETags.of(recipe.getId(), recipe.getCreateDateTime(), recipe.getVersion());
+        RecipeJson entry = cache.getIfPresent(recipe.getId());
+        if (entry != null && entry.tag.equals(tag)) {
+            return entry;
+        }
+        log.debug("serializing recipe with recipeId: " + recipe.getId());
+        entry = new RecipeJson(tag, serialize(recipe), null);
+        cache.put(recipe.getId(), entry);
+        return entry;
+    }
+
+    private byte[] serialize(Recipe recipe) {
+        try {
+            return writer.writeValueAsBytes(recipe);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static byte[] compress(byte[] json) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 2);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+            gzipOutputStream.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static final class RecipeJson {
+
+        /** entity tag of the recipe the bytes were written from */
+        private final String tag;
+
+        private final byte[] json;
+
+        private final byte[] gzip;
+
+        private RecipeJson(String tag, byte[] json, byte[] gzip) {
+            this.tag = tag;
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        private int weight() {
+            return 64 + json.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+}
@@ -1,42 +1,132 @@
 package com.abna.recipe.service;
 
+import com.abna.recipe.config.MetricsConfig;
+import com.abna.recipe.config.RecipeProperties;
 import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.exceptions.BadRequestException;
+import com.abna.recipe.exceptions.ErrorMessages;
+import com.abna.recipe.exceptions.NoSuchRecipeException;
+import com.abna.recipe.exceptions.PreconditionFailedException;
+import com.abna.recipe.exceptions.ResourceConflictException;
+import com.abna.recipe.models.IngredientMatch;
 import com.abna.recipe.models.Recipe;
+import com.abna.recipe.models.RecipeCursor;
+import com.abna.recipe.models.RecipePage;
+import com.abna.recipe.models.RecipePageRequest;
+import com.abna.recipe.models.RecipeSearchCriteria;
+import com.abna.recipe.models.RecipeSortKey;
+import com.abna.recipe.models.RecipeSummary;
+import com.abna.recipe.models.RecipeSummaryPage;
+import com.abna.recipe.repository.RecipeFullTextSearch;
 import com.abna.recipe.repository.RecipeRepository;
 import com.abna.recipe.util.CommonUtil;
+import com.abna.recipe.util.RecipeETags;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import static com.abna.recipe.config.CacheConfig.RECIPES_CACHE;
 import static com.abna.recipe.repository.RecipeDataSpecification.*;
 import static com.abna.recipe.util.CommonUtil.mapToRecipeData;
 import static com.abna.recipe.util.CommonUtil.mapToRecipeModel;
+import static com.abna.recipe.util.CommonUtil.toIngredientKeys;
 
 @Service
+@Timed(MetricsConfig.SERVICE_METRIC)
 @Slf4j
 public class RecipeManagerService {
 
+    /** ranked results are paged by offset, which gets expensive deep into the hit list */
+    private static final int MAX_RELEVANCE_WINDOW = 10000;
+
     private final RecipeRepository recipeRepository;
 
-    public RecipeManagerService(RecipeRepository recipeRepository) {
+    private final RecipeFullTextSearch recipeFullTextSearch;
+
+    private final RecipeProperties recipeProperties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final RecipeQueryCache recipeQueryCache;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final RecipesCacheUpdater recipesCacheUpdater;
+
+    private final RecipeBitmapIndex recipeBitmapIndex;
+
+    private final Timer queryTimer;
+
+    private final Timer fullTextQueryTimer;
+
+    private final Timer summaryQueryTimer;
+
+    private final Timer mappingTimer;
+
+    private final Timer bitmapIndexTimer;
+
+    public RecipeManagerService(RecipeRepository recipeRepository, RecipeFullTextSearch recipeFullTextSearch,
+                                RecipeProperties recipeProperties, MeterRegistry meterRegistry,
+                                RecipeQueryCache recipeQueryCache, ApplicationEventPublisher eventPublisher,
+                                RecipesCacheUpdater recipesCacheUpdater, RecipeBitmapIndex recipeBitmapIndex) {
         this.recipeRepository = recipeRepository;
+        this.recipeFullTextSearch = recipeFullTextSearch;
+        this.recipeProperties = recipeProperties;
+        this.meterRegistry = meterRegistry;
+        this.recipeQueryCache = recipeQueryCache;
+        this.eventPublisher = eventPublisher;
+        this.recipesCacheUpdater = recipesCacheUpdater;
+        this.recipeBitmapIndex = recipeBitmapIndex;
+        this.queryTimer = searchPhaseTimer("query");
+        this.fullTextQueryTimer = searchPhaseTimer("full_text_query");
+        this.summaryQueryTimer = searchPhaseTimer("summary_query");
+        this.mappingTimer = searchPhaseTimer("mapping");
+        this.bitmapIndexTimer = searchPhaseTimer("bitmap_index");
     }
 
+    @Transactional
+    @CachePut(cacheNames = RECIPES_CACHE, key = "#result.id")
     public Recipe createRecipe(Recipe newRecipe) {
         log.info("saving recipe with recipeId: " + newRecipe.getId());
 
         RecipeData recipeData = mapToRecipeData(newRecipe);
-        RecipeData savedRecipe = recipeRepository.save(recipeData);
-        return mapToRecipeModel(savedRecipe);
+        try {
+            recipeRepository.insert(recipeData);
+        } catch (DataIntegrityViolationException e) {
+            if (!isDuplicateKey(e)) {
+                throw e;
+            }
+            log.error("recipe already available with recipeId: " + newRecipe.getId());
+            throw new ResourceConflictException(ErrorMessages.RESOURCE_CONFLICT);
+        }
+        Recipe created = mapToRecipeModel(recipeData);
+        eventPublisher.publishEvent(RecipeChangedEvent.created(created));
+        return created;
     }
 
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = RECIPES_CACHE, key = "#id", unless = "#result == null")
     public Recipe getRecipeById(Integer id) {
         log.info("getting recipe with recipeId: " + id);
 
@@ -44,53 +134,332 @@ public class RecipeManagerService {
         return recipeDataOpt.map(CommonUtil::mapToRecipeModel).orElse(null);
     }
 
+    @Transactional(readOnly = true)
     public List<Recipe> getAllRecipes(String name, Integer serving, List<String> includeIngredients,
                                       List<String> excludeIngredients, String type, String instructions) {
+        RecipeSearchCriteria criteria = RecipeSearchCriteria.builder()
+                .name(name)
+                .serving(serving)
+                .includeIngredients(includeIngredients)
+                .excludeIngredients(excludeIngredients)
+                .type(type)
+                .instructions(instructions)
+                .build();
+        return getAllRecipes(criteria, RecipePageRequest.builder().build()).getRecipes();
+    }
+
+    @Transactional(readOnly = true)
+    public RecipePage getAllRecipes(RecipeSearchCriteria criteria, RecipePageRequest pageRequest) {
+        countFilters(criteria);
+        if (!StringUtils.isEmpty(criteria.getQ())) {
+            return searchFullText(criteria, pageRequest);
+        }
+
+        RecipeSortKey sortBy = structuredSortKey(pageRequest);
+        Sort.Direction direction = Objects.requireNonNullElse(pageRequest.getDirection(), Sort.Direction.ASC);
+        int limit = pageLimit(pageRequest.getLimit());
+        if (!recipeQueryCache.isEnabled()) {
+            return searchStructured(criteria, sortBy, direction, limit, pageRequest);
+        }
 
+        RecipeQueryKey key = RecipeQueryKey.of(criteria, sortBy, direction, limit, pageRequest.getCursor());
+        RecipePage page = recipeQueryCache.get(key, () -> searchStructured(criteria, sortBy, direction, limit,
+                RecipePageRequest.builder().cursor(pageRequest.getCursor()).build()));
+        if (RecipeETags.matchesAny(pageRequest.getIfNoneMatch(), page.getEtag())) {
+            log.debug("cached page not modified");
+            return new RecipePage(List.of(), page.getNextCursor(), page.getEtag(), true);
+        }
+        return page;
+    }
+
+    private RecipePage searchStructured(RecipeSearchCriteria criteria, RecipeSortKey sortBy, Sort.Direction direction,
+                                        int limit, RecipePageRequest pageRequest) {
         List<RecipeData> allRecipes;
 
+        Specification<RecipeData> spec = pageSpecification(criteria, sortBy, direction, pageRequest.getCursor(), limit);
+
+        // one extra row tells whether another page follows
+        Timer.Sample querySample = Timer.start(meterRegistry);
+        allRecipes = recipeRepository.findPage(spec, pageSort(sortBy, direction), limit + 1);
+        querySample.stop(queryTimer);
+        log.debug("total recipes: " + allRecipes.size());
+
+        boolean hasMore = allRecipes.size() > limit;
+        List<RecipeData> pageRows = hasMore ? allRecipes.subList(0, limit) : allRecipes;
+        String nextCursor = hasMore
+                ? RecipeCursor.after(mapToRecipeModel(pageRows.get(pageRows.size() - 1)), sortBy, direction).encode()
+                : null;
+        return toRecipePage(pageRows, nextCursor, pageRequest);
+    }
+
+    /**
+     * Structured search returning only the columns list views show; full-text queries are not supported here
+     * because their hits come back from the index as whole recipes.
+     */
+    @Transactional(readOnly = true)
+    public RecipeSummaryPage getRecipeSummaries(RecipeSearchCriteria criteria, RecipePageRequest pageRequest) {
+        countFilters(criteria);
+        if (!StringUtils.isEmpty(criteria.getQ())) {
+            log.error("full-text query requested for recipe summaries");
+            throw new BadRequestException(ErrorMessages.BAD_REQUEST);
+        }
+        RecipeSortKey sortBy = structuredSortKey(pageRequest);
+        Sort.Direction direction = Objects.requireNonNullElse(pageRequest.getDirection(), Sort.Direction.ASC);
+        int limit = pageLimit(pageRequest.getLimit());
+
+        Specification<RecipeData> spec = pageSpecification(criteria, sortBy, direction, pageRequest.getCursor(), limit);
+        Timer.Sample querySample = Timer.start(meterRegistry);
+        List<RecipeSummary> summaries = recipeRepository.findSummaryPage(spec, pageSort(sortBy, direction), limit + 1);
+        querySample.stop(summaryQueryTimer);
+        log.debug("total recipe summaries: " + summaries.size());
+
+        boolean hasMore = summaries.size() > limit;
+        List<RecipeSummary> pageRows = hasMore ? summaries.subList(0, limit) : summaries;
+        RecipeSummary last = hasMore ? pageRows.get(pageRows.size() - 1) : null;
+        String nextCursor = hasMore
+                ? RecipeCursor.after(last.getId(), last.getUpdateDateTime(), sortBy, direction).encode()
+                : null;
+        String etag = RecipeETags.ofSummaryPage(pageRows, nextCursor);
+        if (RecipeETags.matchesAny(pageRequest.getIfNoneMatch(), etag)) {
+            log.debug("page of recipe summaries not modified");
+            return new RecipeSummaryPage(List.of(), nextCursor, etag, true);
+        }
+        return new RecipeSummaryPage(pageRows, nextCursor, etag, false);
+    }
+
+    private RecipePage searchFullText(RecipeSearchCriteria criteria, RecipePageRequest pageRequest) {
+        log.info("Running full-text search");
+
+        RecipeSortKey sortBy = Objects.requireNonNullElse(pageRequest.getSortBy(), RecipeSortKey.RELEVANCE);
+        if (sortBy != RecipeSortKey.RELEVANCE) {
+            log.error("full-text results can only be ordered by relevance");
+            throw new BadRequestException(ErrorMessages.BAD_REQUEST);
+        }
+        int offset = 0;
+        if (!StringUtils.isEmpty(pageRequest.getCursor())) {
+            RecipeCursor cursor = RecipeCursor.decode(pageRequest.getCursor());
+            if (cursor.getSortBy() != RecipeSortKey.RELEVANCE) {
+                throw new BadRequestException(ErrorMessages.INVALID_CURSOR);
+            }
+            offset = cursor.getOffset();
+        }
+        int limit = pageLimit(pageRequest.getLimit());
+
+        Timer.Sample querySample = Timer.start(meterRegistry);
+        List<RecipeData> hits = recipeFullTextSearch.search(criteria, offset, limit + 1);
+        querySample.stop(fullTextQueryTimer);
+        log.debug("total full-text hits: " + hits.size());
+
+        boolean hasMore = hits.size() > limit && offset + limit < MAX_RELEVANCE_WINDOW;
+        List<RecipeData> pageRows = hits.size() > limit ? hits.subList(0, limit) : hits;
+        String nextCursor = hasMore
+                ? RecipeCursor.atOffset(mapToRecipeModel(pageRows.get(pageRows.size() - 1)), offset + limit).encode()
+                : null;
+        return toRecipePage(pageRows, nextCursor, pageRequest);
+    }
+
+    private RecipePage toRecipePage(List<RecipeData> pageRows, String nextCursor, RecipePageRequest pageRequest) {
+        String etag = RecipeETags.ofPage(pageRows, nextCursor);
+        if (RecipeETags.matchesAny(pageRequest.getIfNoneMatch(), etag)) {
+            log.debug("page not modified, skipping mapping");
+            return new RecipePage(List.of(), nextCursor, etag, true);
+        }
+
+        Timer.Sample mappingSample = Timer.start(meterRegistry);
+        List<Recipe> recipesList = pageRows.stream()
+                .map(CommonUtil::mapToRecipeModel)
+                .collect(Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
+        mappingSample.stop(mappingTimer);
+        log.debug("total mapped recipes: " + recipesList.size());
+        return new RecipePage(recipesList, nextCursor, etag, false);
+    }
+
+    /**
+     * Counts the combination of filters a search uses; the tag value lists the filter names in a fixed order, which
+     * keeps the number of distinct series bounded.
+     */
+    private void countFilters(RecipeSearchCriteria criteria) {
+        List<String> filters = new ArrayList<>();
+        if (!StringUtils.isEmpty(criteria.getQ())) {
+            filters.add("q");
+        }
+        if (!StringUtils.isEmpty(criteria.getName())) {
+            filters.add("name");
+        }
+        if (!Objects.isNull(criteria.getServing()) && criteria.getServing() > 0) {
+            filters.add("serving");
+        }
+        if (!StringUtils.isEmpty(criteria.getType())) {
+            filters.add("type");
+        }
+        if (!StringUtils.isEmpty(criteria.getInstructions())) {
+            filters.add("instructions");
+        }
+        if (!toIngredientKeys(criteria.getIncludeIngredients()).isEmpty()) {
+            filters.add(criteria.getIncludeMatch() == IngredientMatch.ANY ? "includeAny" : "includeAll");
+        }
+        if (!toIngredientKeys(criteria.getExcludeIngredients()).isEmpty()) {
+            filters.add("exclude");
+        }
+        meterRegistry.counter(MetricsConfig.SEARCH_FILTERS_METRIC,
+                "filters", filters.isEmpty() ? "none" : String.join("+", filters)).increment();
+    }
+
+    private Timer searchPhaseTimer(String phase) {
+        return Timer.builder(MetricsConfig.SEARCH_PHASE_METRIC)
+                .description("time getAllRecipes spends per phase")
+                .tag("phase", phase)
+                .register(meterRegistry);
+    }
+
+    private RecipeSortKey structuredSortKey(RecipePageRequest pageRequest) {
+        RecipeSortKey sortBy = Objects.requireNonNullElse(pageRequest.getSortBy(), RecipeSortKey.ID);
+        if (sortBy == RecipeSortKey.RELEVANCE) {
+            log.error("relevance sort requested without full-text query");
+            throw new BadRequestException(ErrorMessages.BAD_REQUEST);
+        }
+        return sortBy;
+    }
+
+    /**
+     * Selects the rows of the page, without the extra row telling whether another page follows. When the bitmap index
+     * can resolve the filters of an id ordered search the page is selected by the ids it finds, so the database only
+     * loads those rows; the filters are applied to them again, so a recipe the index has not caught up with yet is
+     * left out rather than returned against the filters.
+     */
+    private Specification<RecipeData> pageSpecification(RecipeSearchCriteria criteria, RecipeSortKey sortBy,
+                                                        Sort.Direction direction, String cursorToken, int limit) {
+        RecipeCursor cursor = null;
+        if (!StringUtils.isEmpty(cursorToken)) {
+            cursor = RecipeCursor.decode(cursorToken);
+            if (cursor.getSortBy() != sortBy || cursor.getDirection() != direction) {
+                throw new BadRequestException(ErrorMessages.INVALID_CURSOR);
+            }
+        }
+
+        if (sortBy == RecipeSortKey.ID && recipeBitmapIndex.canResolve(criteria)) {
+            log.info("Resolving search criteria from bitmap index");
+            Timer.Sample indexSample = Timer.start(meterRegistry);
+            List<Integer> ids = recipeBitmapIndex.findIds(criteria, direction,
+                    Objects.isNull(cursor) ? null : cursor.getLastId(), limit + 1);
+            indexSample.stop(bitmapIndexTimer);
+            return buildSpecification(criteria).and(getByIds(ids));
+        }
+
         log.info("Building search criteria");
+        Specification<RecipeData> spec = buildSpecification(criteria);
+        if (!Objects.isNull(cursor)) {
+            spec = spec.and(getAfterCursor(cursor));
+        }
+        return spec;
+    }
+
+    private static Sort pageSort(RecipeSortKey sortBy, Sort.Direction direction) {
+        return sortBy == RecipeSortKey.ID
+                ? Sort.by(direction, "id")
+                : Sort.by(direction, sortBy.getProperty(), "id");
+    }
+
+    private Specification<RecipeData> buildSpecification(RecipeSearchCriteria criteria) {
         Specification<RecipeData> spec = Specification.where(getRecipeByIdNotNull());
 
-        if (!StringUtils.isEmpty(name)) {
-            spec = spec.and(getByName(name));
+        if (!StringUtils.isEmpty(criteria.getName())) {
+            spec = spec.and(getByName(criteria.getName()));
         }
-        if (!Objects.isNull(serving) && serving > 0) {
-            spec = spec.and(getByServing(serving));
+        if (!Objects.isNull(criteria.getServing()) && criteria.getServing() > 0) {
+            spec = spec.and(getByServing(criteria.getServing()));
         }
-        if (!StringUtils.isEmpty(type)) {
-            spec = spec.and(getByType(type));
+        if (!StringUtils.isEmpty(criteria.getType())) {
+            spec = spec.and(getByType(criteria.getType()));
         }
-        if (!StringUtils.isEmpty(instructions)) {
-            spec = spec.and(getByInstructions(instructions));
+        if (!StringUtils.isEmpty(criteria.getInstructions())) {
+            spec = spec.and(getByInstructions(criteria.getInstructions()));
         }
-        if (!CollectionUtils.isEmpty(includeIngredients)) {
-            String include = String.join(", ", includeIngredients);
-            spec = spec.and(getByIncludeIngredients(include));
+        Set<String> include = toIngredientKeys(criteria.getIncludeIngredients());
+        if (!include.isEmpty()) {
+            IngredientMatch match = Objects.requireNonNullElse(criteria.getIncludeMatch(), IngredientMatch.ALL);
+            spec = spec.and(getByIncludeIngredients(include, match));
         }
-        if (!CollectionUtils.isEmpty(excludeIngredients)) {
-            String exclude = String.join(", ", excludeIngredients);
+        Set<String> exclude = toIngredientKeys(criteria.getExcludeIngredients());
+        if (!exclude.isEmpty()) {
             spec = spec.and(getByExcludeIngredients(exclude));
         }
+        return spec;
+    }
 
-        allRecipes = recipeRepository.findAll(spec);
-        log.debug("total recipes: " + allRecipes.size());
-
-        List<Recipe> recipesList = allRecipes.stream().map(CommonUtil::mapToRecipeModel).collect(Collectors.toList());
-        log.debug("total mapped recipes: " + recipesList.size());
-
-        return recipesList;
+    private int pageLimit(Integer requested) {
+        RecipeProperties.Search search = recipeProperties.getSearch();
+        if (Objects.isNull(requested) || requested < 1) {
+            return Math.min(search.getDefaultPageSize(), search.getMaxPageSize());
+        }
+        return Math.min(requested, search.getMaxPageSize());
     }
 
-    public Recipe updateRecipe(Recipe recipe) {
+    /**
+     * Writes the recipe over the stored one without taking a lock. The stored state is read for the If-Match check
+     * and the change listeners, then a single update statement conditional on the version that was read replaces it,
+     * and its row count decides the outcome: when another update or a delete commits in between, nothing is written
+     * and this one fails fast with 404 when the recipe is gone, with 412 when the caller sent If-Match, since the
+     * tagged version is gone, and with 409 otherwise. Nothing is retried here, the caller decides whether to reapply
+     * its change on the latest version. The cached recipe is refreshed after commit by {@link RecipesCacheUpdater}.
+     *
+     * @param ifMatch entity tags from the If-Match header, empty for an unconditional update
+     */
+    @Transactional
+    public Recipe updateRecipe(Recipe recipe, List<String> ifMatch) {
         log.info("updating recipe with recipeId: " + recipe.getId());
 
-        return createRecipe(recipe);
+        boolean conditional = !CollectionUtils.isEmpty(ifMatch);
+        Optional<RecipeData> recipeDataOpt = recipeRepository.findById(recipe.getId());
+        if (conditional && (recipeDataOpt.isEmpty() || !RecipeETags.matchesAnyStrong(ifMatch, RecipeETags.of(
+                recipe.getId(), recipeDataOpt.get().getCreateDateTime(), recipeDataOpt.get().getVersion())))) {
+            log.error("recipe does not match If-Match, recipeId: " + recipe.getId());
+            // the caller most likely got its tag from a cached copy that has not caught up with the last commit yet
+            recipeDataOpt.ifPresent(stored -> recipesCacheUpdater.refresh(mapToRecipeModel(stored)));
+            throw new PreconditionFailedException(ErrorMessages.PRECONDITION_FAILED);
+        }
+        Recipe before = mapToRecipeModel(recipeDataOpt.orElseThrow(() -> {
+            log.error("recipe not available, recipeId: " + recipe.getId());
+            return new NoSuchRecipeException(ErrorMessages.RECIPE_NOT_FOUND);
+        }));
+
+        RecipeData recipeData = mapToRecipeData(recipe);
+        recipeData.setCreateDateTime(before.getCreateDateTime());
+        recipeData.setVersion(before.getVersion());
+        if (recipeRepository.update(recipeData, toIngredientKeys(before.getIngredients())) == 0) {
+            if (!recipeRepository.existsById(recipe.getId())) {
+                log.error("recipe was deleted concurrently, recipeId: " + recipe.getId());
+                throw new NoSuchRecipeException(ErrorMessages.RECIPE_NOT_FOUND);
+            }
+            log.error("recipe was modified concurrently, recipeId: " + recipe.getId());
+            throw conditional
+                    ? new PreconditionFailedException(ErrorMessages.PRECONDITION_FAILED)
+                    : new ResourceConflictException(ErrorMessages.CONCURRENT_UPDATE);
+        }
+        Recipe updated = mapToRecipeModel(recipeData);
+        eventPublisher.publishEvent(RecipeChangedEvent.updated(before, updated));
+        return updated;
     }
 
+    @Transactional
+    @CacheEvict(cacheNames = RECIPES_CACHE, key = "#id")
     public void deleteRecipeFromRepository(Integer id) {
         log.info("deleting recipe with recipeId: " + id);
 
-        recipeRepository.deleteById(id);
+        if (recipeRepository.deleteRecipeById(id) == 0) {
+            log.error("recipe not available, recipeId: " + id);
+            throw new NoSuchRecipeException(ErrorMessages.RECIPE_NOT_FOUND);
+        }
+        eventPublisher.publishEvent(RecipeChangedEvent.deleted(id, null));
+    }
+
+    /** SQLState 23505 is the standard unique violation code, used by H2 and PostgreSQL */
+    private static boolean isDuplicateKey(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException && "23505".equals(((SQLException) cause).getSQLState())) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -0,0 +1,112 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.config.MetricsConfig;
+import com.abna.recipe.config.RecipeProperties;
+import com.abna.recipe.exceptions.BadRequestException;
+import com.abna.recipe.exceptions.ErrorMessages;
+import com.abna.recipe.models.PantryMatch;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.repository.RecipeRepository;
+import com.abna.recipe.util.CommonUtil;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.abna.recipe.util.CommonUtil.toIngredientKey;
+import static com.abna.recipe.util.CommonUtil.toIngredientKeys;
+
+/**
+ * Finds the recipes that can be cooked from a pantry: those whose ingredients are all in it, or all but a tolerated
+ * number, best covered first. With the bitmap index loaded the recipes are counted and ranked from its bitmaps;
+ * otherwise the database groups the ingredient index rows of the recipes holding any pantry ingredient. Either way
+ * only the recipes returned are loaded.
+ */
+@Service
+@Timed(MetricsConfig.SERVICE_METRIC)
+@Slf4j
+public class RecipePantrySearch {
+
+    private final RecipeRepository recipeRepository;
+
+    private final RecipeBitmapIndex recipeBitmapIndex;
+
+    private final RecipeProperties recipeProperties;
+
+    public RecipePantrySearch(RecipeRepository recipeRepository, RecipeBitmapIndex recipeBitmapIndex,
+                              RecipeProperties recipeProperties) {
+        this.recipeRepository = recipeRepository;
+        this.recipeBitmapIndex = recipeBitmapIndex;
+        this.recipeProperties = recipeProperties;
+    }
+
+    /**
+     * @param pantry     ingredients on hand, matched like the ingredient filters of the recipe search
+     * @param maxMissing ingredients a recipe may need beyond the pantry, 0 when null
+     * @param limit      recipes returned at most, capped by the maximum page size
+     */
+    @Transactional(readOnly = true)
+    public List<PantryMatch> findCookable(List<String> pantry, Integer maxMissing, Integer limit) {
+        Set<String> pantryKeys = toIngredientKeys(pantry);
+        int missing = Objects.requireNonNullElse(maxMissing, 0);
+        RecipeProperties.Pantry properties = recipeProperties.getPantry();
+        if (pantryKeys.isEmpty() || pantryKeys.size() > properties.getMaxIngredients()
+                || missing < 0 || missing > properties.getMaxMissing()) {
+            log.error("invalid pantry search, ingredients: " + pantryKeys.size() + ", maxMissing: " + missing);
+            throw new BadRequestException(ErrorMessages.BAD_REQUEST);
+        }
+        log.info("searching recipes for pantry of ingredients: " + pantryKeys.size() + ", maxMissing: " + missing);
+
+        int pageLimit = pageLimit(limit);
+        List<Integer> ids = recipeBitmapIndex.isLoaded()
+                ? recipeBitmapIndex.findCovered(pantryKeys, missing, pageLimit)
+                : recipeRepository.findCoveredBy(pantryKeys, missing, PageRequest.of(0, pageLimit));
+        log.debug("recipes covered by the pantry: " + ids.size());
+
+        Map<Integer, Recipe> recipes = recipeRepository.findAllById(ids).stream()
+                .map(CommonUtil::mapToRecipeModel)
+                .collect(Collectors.toMap(Recipe::getId, Function.identity()));
+        // a recipe deleted since it was ranked is left out, as is one the index ranked from a state it no longer has
+        return ids.stream()
+                .map(recipes::get)
+                .filter(Objects::nonNull)
+                .map(recipe -> match(recipe, pantryKeys))
+                .filter(match -> match.getMissingIngredients().size() <= missing)
+                .collect(Collectors.toList());
+    }
+
+    /** coverage counts distinct ingredients, as the ranking does */
+    static PantryMatch match(Recipe recipe, Set<String> pantryKeys) {
+        Set<String> keys = toIngredientKeys(recipe.getIngredients());
+        Set<String> missingKeys = new HashSet<>();
+        List<String> missingIngredients = new ArrayList<>();
+        if (recipe.getIngredients() != null) {
+            for (String ingredient : recipe.getIngredients()) {
+                String key = toIngredientKey(ingredient);
+                if (!key.isEmpty() && !pantryKeys.contains(key) && missingKeys.add(key)) {
+                    missingIngredients.add(ingredient);
+                }
+            }
+        }
+        double coverage = keys.isEmpty() ? 0 : (double) (keys.size() - missingKeys.size()) / keys.size();
+        return new PantryMatch(recipe, coverage, missingIngredients);
+    }
+
+    private int pageLimit(Integer requested) {
+        RecipeProperties.Search search = recipeProperties.getSearch();
+        if (Objects.isNull(requested) || requested < 1) {
+            return Math.min(search.getDefaultPageSize(), search.getMaxPageSize());
+        }
+        return Math.min(requested, search.getMaxPageSize());
+    }
+}
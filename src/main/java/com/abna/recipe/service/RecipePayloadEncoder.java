@@ -0,0 +1,118 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.config.PayloadFormatConfig;
+import com.abna.recipe.models.Recipe;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Response bodies of the endpoints that build their bytes themselves, in the format the client asked for. JSON
+ * comes from {@link RecipeJsonCache}; CBOR and Smile are written by the mappers of their message converters.
+ * <p>
+ * These responses carry strong entity tags, and Tomcat does not compress a response with a strong entity tag, so
+ * they are gzip compressed here, following the server.compression settings that apply to all other responses.
+ */
+@Component
+@Slf4j
+public class RecipePayloadEncoder {
+
+    public enum Format {
+        JSON(MediaType.APPLICATION_JSON),
+        CBOR(MediaType.APPLICATION_CBOR),
+        SMILE(PayloadFormatConfig.APPLICATION_SMILE);
+
+        @Getter
+        private final MediaType mediaType;
+
+        Format(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        /** the format the client prefers, JSON when it accepts anything or sends no Accept header */
+        public static Format negotiate(List<MediaType> accept) {
+            List<MediaType> acceptable = new ArrayList<>(accept);
+            MediaType.sortBySpecificityAndQuality(acceptable);
+            for (MediaType mediaType : acceptable) {
+                for (Format format : values()) {
+                    if (mediaType.isCompatibleWith(format.mediaType)) {
+                        return format;
+                    }
+                }
+            }
+            return JSON;
+        }
+    }
+
+    private final RecipeJsonCache recipeJsonCache;
+
+    private final ObjectMapper jsonMapper;
+
+    private final ObjectMapper cborMapper;
+
+    private final ObjectMapper smileMapper;
+
+    private final Compression compression;
+
+    public RecipePayloadEncoder(RecipeJsonCache recipeJsonCache, ObjectMapper objectMapper,
+                                MappingJackson2CborHttpMessageConverter cborHttpMessageConverter,
+                                MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter,
+                                @Nullable ServerProperties serverProperties) {
+        this.recipeJsonCache = recipeJsonCache;
+        this.jsonMapper = objectMapper;
+        this.cborMapper = cborHttpMessageConverter.getObjectMapper();
+        this.smileMapper = smileHttpMessageConverter.getObjectMapper();
+        // absent when the application runs without a web server, there is nothing to compress then
+        this.compression = Objects.isNull(serverProperties) ? new Compression() : serverProperties.getCompression();
+    }
+
+    public byte[] recipe(Recipe recipe, Format format) {
+        return format == Format.JSON ? recipeJsonCache.json(recipe) : write(recipe, format);
+    }
+
+    public byte[] recipes(List<Recipe> recipes, Format format) {
+        return format == Format.JSON ? recipeJsonCache.jsonArray(recipes) : write(recipes, format);
+    }
+
+    public byte[] write(Object value, Format format) {
+        try {
+            return mapper(format).writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** whether a body of this size goes out compressed to a client accepting gzip */
+    public boolean shouldCompress(int size) {
+        return compression.getEnabled() && size >= compression.getMinResponseSize().toBytes();
+    }
+
+    public byte[] gzip(byte[] body) {
+        log.debug("compressing response body of bytes: " + body.length);
+        return RecipeJsonCache.compress(body);
+    }
+
+    private ObjectMapper mapper(Format format) {
+        switch (format) {
+            case CBOR:
+                return cborMapper;
+            case SMILE:
+                return smileMapper;
+            default:
+                return jsonMapper;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.config.RecipeProperties;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.models.RecipePage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the result pages of structured searches, keyed by the normalized filter combination. A committed recipe
+ * change only drops the pages that contain the recipe or whose filters match its old or new state, so popular
+ * combinations unaffected by a write stay warm; dropped pages that were hit often are reloaded in the background.
+ * <p>
+ * Every change bumps a generation counter. A load that started before a change may have read the old state, so
+ * its result is not kept if the generation moved while it ran.
+ * <p>
+ * Reloads run on a bounded executor, each in a read-only transaction of its own, so a reloaded page is read from
+ * one snapshot just like a page loaded on a miss inside the read-only transaction of the search.
+ */
+@Component
+@Slf4j
+public class RecipeQueryCache {
+
+    public static final String QUERY_CACHE = "recipe.query";
+
+    private final RecipeProperties.QueryCache properties;
+
+    private final Cache<RecipeQueryKey, CachedPage> cache;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Executor rewarmExecutor;
+
+    private final TransactionTemplate rewarmTransaction;
+
+    public RecipeQueryCache(RecipeProperties recipeProperties, MeterRegistry meterRegistry,
+                            @Qualifier("recipeRewarmExecutor") Executor rewarmExecutor,
+                            PlatformTransactionManager transactionManager) {
+        this.properties = recipeProperties.getQueryCache();
+        this.rewarmExecutor = rewarmExecutor;
+        this.rewarmTransaction = new TransactionTemplate(transactionManager);
+        this.rewarmTransaction.setReadOnly(true);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxWeightBytes())
+                .weigher((RecipeQueryKey key, CachedPage page) -> key.estimatedSize() + page.weight)
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, QUERY_CACHE);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Returns the cached page for the key, or runs the loader and caches its result.
+     *
+     * @param loader runs the search; it must not depend on per-request state such as If-None-Match
+     */
+    public RecipePage get(RecipeQueryKey key, Supplier<RecipePage> loader) {
+        CachedPage cached = cache.getIfPresent(key);
+        if (cached != null) {
+            cached.hits.increment();
+            return cached.page;
+        }
+        return load(key, loader, 0);
+    }
+
+    private RecipePage load(RecipeQueryKey key, Supplier<RecipePage> loader, long hits) {
+        long token = generation.get();
+        RecipePage page = loader.get();
+        CachedPage cached = new CachedPage(page, loader, hits);
+        cache.put(key, cached);
+        if (generation.get() != token) {
+            // a write committed while the query ran, the page may predate it
+            cache.asMap().remove(key, cached);
+        }
+        return page;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        generation.incrementAndGet();
+        int invalidated = 0;
+        Iterator<Map.Entry<RecipeQueryKey, CachedPage>> entries = cache.asMap().entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<RecipeQueryKey, CachedPage> entry = entries.next();
+            if (!isAffected(entry.getKey(), entry.getValue(), event)) {
+                continue;
+            }
+            entries.remove();
+            invalidated++;
+            long hits = entry.getValue().hits.sum();
+            if (hits >= properties.getRewarmMinHits()) {
+                rewarm(entry.getKey(), entry.getValue(), hits);
+            }
+        }
+        log.debug("recipe " + event.getId() + " changed, invalidated " + invalidated + " cached pages");
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    private static boolean isAffected(RecipeQueryKey key, CachedPage cached, RecipeChangedEvent event) {
+        if (cached.contains(event.getId())) {
+            return true;
+        }
+        if (event.getBefore() == null && event.getAfter() == null) {
+            // a delete of unknown state can only shift pages that have a successor
+            return cached.page.getNextCursor() != null;
+        }
+        return (event.getBefore() != null && key.matches(event.getBefore()))
+                || (event.getAfter() != null && key.matches(event.getAfter()));
+    }
+
+    private void rewarm(RecipeQueryKey key, CachedPage stale, long hits) {
+        try {
+            CompletableFuture.runAsync(() -> rewarmTransaction.executeWithoutResult(status ->
+                            load(key, stale.loader, hits)), rewarmExecutor)
+                    .exceptionally(e -> {
+                        log.warn("could not rewarm cached search page: " + e.getMessage());
+                        return null;
+                    });
+        } catch (RejectedExecutionException e) {
+            log.debug("rewarm queue full, cached search page left to its next request");
+        }
+    }
+
+    /** approximate retained heap of a page: object headers plus the character data of its recipes */
+    static int estimateWeight(RecipePage page) {
+        int weight = 64 + (page.getNextCursor() == null ? 0 : 40 + page.getNextCursor().length());
+        for (Recipe recipe : page.getRecipes()) {
+            weight += 160 + length(recipe.getName()) + length(recipe.getType()) + length(recipe.getInstructions());
+            for (String ingredient : recipe.getIngredients()) {
+                weight += 40 + length(ingredient);
+            }
+        }
+        return weight;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static final class CachedPage {
+
+        private final RecipePage page;
+
+        private final Supplier<RecipePage> loader;
+
+        private final LongAdder hits = new LongAdder();
+
+        private final int weight;
+
+        private CachedPage(RecipePage page, Supplier<RecipePage> loader, long hits) {
+            this.page = page;
+            this.loader = loader;
+            this.hits.add(hits);
+            this.weight = estimateWeight(page);
+        }
+
+        private boolean contains(Integer id) {
+            List<Recipe> recipes = page.getRecipes();
+            for (Recipe recipe : recipes) {
+                if (Objects.equals(recipe.getId(), id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
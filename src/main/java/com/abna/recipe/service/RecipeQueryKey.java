@@ -0,0 +1,119 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.models.IngredientMatch;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.models.RecipeSearchCriteria;
+import com.abna.recipe.models.RecipeSortKey;
+import lombok.Value;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.Sort;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static com.abna.recipe.util.CommonUtil.toIngredientKeys;
+import static com.abna.recipe.util.CommonUtil.toSearchKey;
+
+/**
+ * Normalized form of a structured recipe search, used as the key of the query result cache: blank filters are
+ * dropped, ingredient lists become sorted sets of index keys and the page size is the effective one.
+ */
+@Value
+public class RecipeQueryKey {
+
+    String name;
+
+    Integer serving;
+
+    String type;
+
+    String instructions;
+
+    SortedSet<String> includeIngredients;
+
+    IngredientMatch includeMatch;
+
+    SortedSet<String> excludeIngredients;
+
+    RecipeSortKey sortBy;
+
+    Sort.Direction direction;
+
+    int limit;
+
+    String cursor;
+
+    public static RecipeQueryKey of(RecipeSearchCriteria criteria, RecipeSortKey sortBy, Sort.Direction direction,
+                                    int limit, String cursor) {
+        SortedSet<String> include = sortedKeys(criteria.getIncludeIngredients());
+        return new RecipeQueryKey(
+                StringUtils.isEmpty(criteria.getName()) ? null : criteria.getName(),
+                Objects.isNull(criteria.getServing()) || criteria.getServing() <= 0 ? null : criteria.getServing(),
+                StringUtils.isEmpty(criteria.getType()) ? null : criteria.getType(),
+                StringUtils.isEmpty(criteria.getInstructions()) ? null : criteria.getInstructions(),
+                include,
+                include.isEmpty() ? null : Objects.requireNonNullElse(criteria.getIncludeMatch(), IngredientMatch.ALL),
+                sortedKeys(criteria.getExcludeIngredients()),
+                sortBy,
+                direction,
+                limit,
+                StringUtils.isEmpty(cursor) ? null : cursor);
+    }
+
+    /**
+     * Whether the recipe could be part of this search's results. Text filters are compared ignoring case, so this
+     * never says no where the database query would say yes; a false positive only costs an extra invalidation.
+     */
+    public boolean matches(Recipe recipe) {
+        if (!Objects.isNull(name) && !containsIgnoreCase(recipe.getName(), name)) {
+            return false;
+        }
+        if (!Objects.isNull(serving) && (Objects.isNull(recipe.getServing()) || recipe.getServing() < serving)) {
+            return false;
+        }
+        if (!Objects.isNull(type) && !toSearchKey(type).equals(toSearchKey(recipe.getType()))) {
+            return false;
+        }
+        if (!Objects.isNull(instructions) && !containsIgnoreCase(recipe.getInstructions(), instructions)) {
+            return false;
+        }
+        Set<String> ingredientKeys = toIngredientKeys(recipe.getIngredients());
+        if (!includeIngredients.isEmpty()) {
+            boolean included = includeMatch == IngredientMatch.ANY
+                    ? !Collections.disjoint(ingredientKeys, includeIngredients)
+                    : ingredientKeys.containsAll(includeIngredients);
+            if (!included) {
+                return false;
+            }
+        }
+        return Collections.disjoint(ingredientKeys, excludeIngredients);
+    }
+
+    /** rough heap footprint of the key in bytes, for weighing cache entries */
+    public int estimatedSize() {
+        int size = 96;
+        for (String value : new String[]{name, type, instructions, cursor}) {
+            size += value == null ? 0 : 40 + value.length();
+        }
+        for (String ingredient : includeIngredients) {
+            size += 72 + ingredient.length();
+        }
+        for (String ingredient : excludeIngredients) {
+            size += 72 + ingredient.length();
+        }
+        return size;
+    }
+
+    private static SortedSet<String> sortedKeys(Collection<String> ingredients) {
+        return Collections.unmodifiableSortedSet(new TreeSet<>(toIngredientKeys(ingredients)));
+    }
+
+    private static boolean containsIgnoreCase(String value, String fragment) {
+        return !Objects.isNull(value) && value.toLowerCase(Locale.ROOT).contains(fragment.toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,399 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.config.MetricsConfig;
+import com.abna.recipe.config.RecipeProperties;
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.repository.RecipeRepository;
+import com.abna.recipe.util.CommonUtil;
+import com.abna.recipe.util.IngredientCodec;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.abna.recipe.util.CommonUtil.toIngredientKeys;
+
+/**
+ * In-process index finding recipes with alike ingredients. Every recipe has a MinHash signature of bands * rows
+ * hashes, the minimum of each hash function over its ingredient keys; the share of positions two signatures agree on
+ * estimates the Jaccard similarity of the ingredient sets. Each band of the signature is hashed to a bucket, so
+ * recipes agreeing on all rows of at least one band meet in a bucket, and only those are compared. A lookup costs the
+ * same whatever the number of recipes, and a recipe costs its signature plus one bucket entry per band.
+ * <p>
+ * With the default 16 bands of 4 rows, recipes sharing half of their ingredients are found with a probability of
+ * about 2/3, recipes sharing 80% almost always, and recipes sharing a third less than one time in five.
+ * <p>
+ * Like {@link RecipeBitmapIndex}, the index is opt-in, loaded from the database at startup and follows the writes of
+ * this instance once they commit, see {@link LoadedRecipeIndex}. The version of the last update applied is kept per
+ * recipe, so an older change reaching the index late does not bring back the ingredients it replaced; creates need
+ * no entry, no change of the recipe can be older than its create.
+ */
+@Component
+@Slf4j
+public class RecipeSimilarityIndex extends LoadedRecipeIndex<RecipeSimilarityIndex.Signatures, Recipe> {
+
+    /** fixed, so the signatures of an ingredient set do not change between restarts */
+    private static final long HASH_SEED = 0x5DEECE66DL;
+
+    private final RecipeRepository recipeRepository;
+
+    private final int bands;
+
+    private final int rows;
+
+    private final int maxCandidates;
+
+    private final int maxBucketSize;
+
+    /** one per signature position, each picking a different hash function */
+    private final long[] seeds;
+
+    public RecipeSimilarityIndex(RecipeRepository recipeRepository, TransactionTemplate transactionTemplate,
+                                 RecipeProperties recipeProperties, MeterRegistry meterRegistry) {
+        super("similarity", recipeProperties.getSimilarity().isEnabled(), recipeRepository, transactionTemplate);
+        RecipeProperties.Similarity similarity = recipeProperties.getSimilarity();
+        if (similarity.getBands() < 1 || similarity.getRows() < 1) {
+            throw new IllegalArgumentException("recipe.similarity.bands and rows must be positive");
+        }
+        this.recipeRepository = recipeRepository;
+        this.bands = similarity.getBands();
+        this.rows = similarity.getRows();
+        this.maxCandidates = similarity.getMaxCandidates();
+        this.maxBucketSize = similarity.getMaxBucketSize();
+        this.seeds = new SplittableRandom(HASH_SEED).longs((long) bands * rows).toArray();
+        Gauge.builder(MetricsConfig.SIMILARITY_INDEX_METRIC, this, index -> index.read(index::size, 0))
+                .description("recipes with a MinHash signature in the similarity index")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected Signatures build() {
+        Signatures loaded = new Signatures();
+        try (Stream<Object[]> rows = recipeRepository.streamFilterKeys()) {
+            rows.forEach(row -> loaded.add((Integer) row[0],
+                    Objects.isNull(row[3]) ? Set.of() : toIngredientKeys(IngredientCodec.split((String) row[3]))));
+        }
+        return loaded;
+    }
+
+    @Override
+    protected Recipe entry(RecipeData recipeData) {
+        return CommonUtil.mapToRecipeModel(recipeData);
+    }
+
+    @Override
+    protected void reload(Signatures signatures, Integer id, @Nullable Recipe recipe) {
+        signatures.remove(id);
+        signatures.versions.remove(id);
+        if (recipe != null) {
+            signatures.add(id, toIngredientKeys(recipe.getIngredients()));
+            signatures.versions.put(id, recipe.getVersion());
+        }
+    }
+
+    @Override
+    protected int size(Signatures signatures) {
+        return signatures.byRecipe.size();
+    }
+
+    /**
+     * Ids of the recipes sharing an LSH bucket with the ingredients, most similar by estimate first, then by id. The
+     * recipes sharing the most buckets are compared, at most the configured number of candidates.
+     *
+     * @param id             recipe left out of the result
+     * @param ingredientKeys ingredient keys the recipes are compared with
+     * @param limit          ids returned at most
+     */
+    public List<Integer> findSimilar(int id, Set<String> ingredientKeys, int limit) {
+        if (ingredientKeys.isEmpty()) {
+            return List.of();
+        }
+        int[] signature = signature(ingredientKeys);
+        return read(signatures -> signatures.similar(id, signature, limit), List.of());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        changed(event);
+    }
+
+    /**
+     * Drops the change when a state at least as new is indexed already.
+     */
+    @Override
+    protected void apply(Signatures signatures, RecipeChangedEvent event) {
+        Integer id = event.getId();
+        if (isOutdated(event, signatures.versions.get(id))) {
+            log.debug("dropping outdated change of recipeId: " + id + ", version: " + event.getAfter().getVersion());
+            return;
+        }
+        signatures.remove(id);
+        signatures.versions.remove(id);
+        if (!event.isDelete()) {
+            signatures.add(id, toIngredientKeys(event.getAfter().getIngredients()));
+            if (event.getBefore() != null) {
+                signatures.versions.put(id, event.getAfter().getVersion());
+            }
+        }
+        log.debug("similarity index updated for recipeId: " + id);
+    }
+
+    private int[] signature(Set<String> ingredientKeys) {
+        int[] signature = new int[seeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (String key : ingredientKeys) {
+            long hash = hash(key);
+            for (int position = 0; position < seeds.length; position++) {
+                signature[position] = Math.min(signature[position], (int) mix(hash ^ seeds[position]));
+            }
+        }
+        return signature;
+    }
+
+    /** odd, so zero can mark the empty slots of a band table */
+    private int bucket(int[] signature, int band) {
+        long bucket = band;
+        for (int row = band * rows; row < (band + 1) * rows; row++) {
+            bucket = mix(bucket * 31 + signature[row]);
+        }
+        return (int) bucket | 1;
+    }
+
+    /** FNV-1a over the characters of the key */
+    private static long hash(String key) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /** the finalizer of SplitMix64, every input bit affects every output bit */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /** signatures and buckets, guarded by the lock of the index */
+    final class Signatures {
+
+        private final Map<Integer, int[]> byRecipe = new HashMap<>();
+
+        /** version of the indexed state of the recipes updated since the load */
+        private final Map<Integer, Long> versions = new HashMap<>();
+
+        private final BandTable[] tables = new BandTable[bands];
+
+        Signatures() {
+            Arrays.setAll(tables, band -> new BandTable());
+        }
+
+        /** a recipe without ingredients is similar to none */
+        void add(int id, Set<String> ingredientKeys) {
+            if (ingredientKeys.isEmpty()) {
+                return;
+            }
+            int[] signature = signature(ingredientKeys);
+            byRecipe.put(id, signature);
+            for (int band = 0; band < bands; band++) {
+                tables[band].add(bucket(signature, band), id, maxBucketSize);
+            }
+        }
+
+        void remove(int id) {
+            int[] signature = byRecipe.remove(id);
+            if (signature == null) {
+                return;
+            }
+            for (int band = 0; band < bands; band++) {
+                tables[band].remove(bucket(signature, band), id);
+            }
+        }
+
+        List<Integer> similar(int id, int[] signature, int limit) {
+            IntStream.Builder found = IntStream.builder();
+            for (int band = 0; band < bands; band++) {
+                tables[band].forEach(bucket(signature, band), found);
+            }
+            // once per bucket shared with the signature, so sorted the recipes sharing more buckets form longer runs
+            int[] sorted = found.build().sorted().toArray();
+            // {id, shared buckets}, then {id, agreeing signature positions}
+            List<int[]> candidates = new ArrayList<>();
+            for (int from = 0, to; from < sorted.length; from = to) {
+                to = from + 1;
+                while (to < sorted.length && sorted[to] == sorted[from]) {
+                    to++;
+                }
+                if (sorted[from] != id) {
+                    candidates.add(new int[]{sorted[from], to - from});
+                }
+            }
+            Comparator<int[]> descending = Comparator.<int[]>comparingInt(candidate -> -candidate[1])
+                    .thenComparingInt(candidate -> candidate[0]);
+            return candidates.stream()
+                    .sorted(descending)
+                    .limit(maxCandidates)
+                    .map(candidate -> new int[]{candidate[0], agreement(signature, byRecipe.get(candidate[0]))})
+                    .sorted(descending)
+                    .limit(limit)
+                    .map(candidate -> candidate[0])
+                    .collect(Collectors.toList());
+        }
+
+        private int agreement(int[] signature, int[] other) {
+            int agreeing = 0;
+            for (int position = 0; position < signature.length; position++) {
+                if (signature[position] == other[position]) {
+                    agreeing++;
+                }
+            }
+            return agreeing;
+        }
+    }
+
+    /**
+     * The buckets of one band in an open addressed table with linear probing. Most buckets hold a single recipe, kept
+     * inline, so a recipe costs about 24 bytes per band; larger buckets keep their recipes in an array that grows up
+     * to the maximum bucket size, recipes beyond it are only found through their other bands.
+     */
+    private static final class BandTable {
+
+        /** bucket hashes, zero marks an empty slot */
+        private int[] hashes = new int[64];
+
+        /** the recipe of a bucket holding one */
+        private int[] single = new int[64];
+
+        /** the recipes of a bucket holding more, after their number */
+        private int[][] multiple = new int[64][];
+
+        private int size;
+
+        void add(int hash, int id, int maxBucketSize) {
+            int slot = find(hash);
+            if (hashes[slot] == 0) {
+                if ((size + 1) * 2 > hashes.length) {
+                    resize();
+                    slot = find(hash);
+                }
+                hashes[slot] = hash;
+                single[slot] = id;
+                size++;
+                return;
+            }
+            int[] ids = multiple[slot];
+            if (ids == null) {
+                multiple[slot] = new int[]{2, single[slot], id, 0};
+            } else if (ids[0] < maxBucketSize) {
+                if (ids[0] + 1 == ids.length) {
+                    ids = Arrays.copyOf(ids, ids.length * 2);
+                    multiple[slot] = ids;
+                }
+                ids[++ids[0]] = id;
+            }
+        }
+
+        void remove(int hash, int id) {
+            int slot = find(hash);
+            if (hashes[slot] == 0) {
+                return;
+            }
+            int[] ids = multiple[slot];
+            if (ids == null) {
+                if (single[slot] == id) {
+                    delete(slot);
+                }
+                return;
+            }
+            for (int i = 1; i <= ids[0]; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[ids[0]--];
+                    if (ids[0] == 1) {
+                        single[slot] = ids[1];
+                        multiple[slot] = null;
+                    }
+                    return;
+                }
+            }
+        }
+
+        void forEach(int hash, IntConsumer action) {
+            int slot = find(hash);
+            if (hashes[slot] == 0) {
+                return;
+            }
+            int[] ids = multiple[slot];
+            if (ids == null) {
+                action.accept(single[slot]);
+                return;
+            }
+            for (int i = 1; i <= ids[0]; i++) {
+                action.accept(ids[i]);
+            }
+        }
+
+        /** the slot of the bucket, or the empty slot its probe ends on */
+        private int find(int hash) {
+            int mask = hashes.length - 1;
+            int slot = (hash >>> 1) & mask;
+            while (hashes[slot] != 0 && hashes[slot] != hash) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /** empties the slot, moving back the buckets that probed past it so they are still found */
+        private void delete(int slot) {
+            int mask = hashes.length - 1;
+            int hole = slot;
+            for (int next = (hole + 1) & mask; hashes[next] != 0; next = (next + 1) & mask) {
+                int home = (hashes[next] >>> 1) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    hashes[hole] = hashes[next];
+                    single[hole] = single[next];
+                    multiple[hole] = multiple[next];
+                    hole = next;
+                }
+            }
+            hashes[hole] = 0;
+            multiple[hole] = null;
+            size--;
+        }
+
+        private void resize() {
+            int[] oldHashes = hashes;
+            int[] oldSingle = single;
+            int[][] oldMultiple = multiple;
+            hashes = new int[oldHashes.length * 2];
+            single = new int[oldHashes.length * 2];
+            multiple = new int[oldHashes.length * 2][];
+            for (int slot = 0; slot < oldHashes.length; slot++) {
+                if (oldHashes[slot] != 0) {
+                    int target = find(oldHashes[slot]);
+                    hashes[target] = oldHashes[slot];
+                    single[target] = oldSingle[slot];
+                    multiple[target] = oldMultiple[slot];
+                }
+            }
+        }
+    }
+}
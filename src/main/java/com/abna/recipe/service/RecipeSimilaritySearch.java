@@ -0,0 +1,96 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.config.MetricsConfig;
+import com.abna.recipe.config.RecipeProperties;
+import com.abna.recipe.exceptions.ErrorMessages;
+import com.abna.recipe.exceptions.NoSuchRecipeException;
+import com.abna.recipe.exceptions.ServiceUnavailableException;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.models.SimilarRecipe;
+import com.abna.recipe.repository.RecipeRepository;
+import com.abna.recipe.util.CommonUtil;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.abna.recipe.util.CommonUtil.toIngredientKeys;
+
+/**
+ * Finds the recipes whose ingredients are most alike those of a recipe, by their Jaccard similarity: the ingredients
+ * both have over the ingredients either has. The candidates and their order by estimated similarity come from the
+ * LSH buckets of {@link RecipeSimilarityIndex}, so no recipe is compared one by one; only the best ranked ones are
+ * loaded and ordered by their exact similarity.
+ */
+@Service
+@Timed(MetricsConfig.SERVICE_METRIC)
+@Slf4j
+public class RecipeSimilaritySearch {
+
+    private final RecipeRepository recipeRepository;
+
+    private final RecipeSimilarityIndex recipeSimilarityIndex;
+
+    private final RecipeProperties recipeProperties;
+
+    public RecipeSimilaritySearch(RecipeRepository recipeRepository, RecipeSimilarityIndex recipeSimilarityIndex,
+                                  RecipeProperties recipeProperties) {
+        this.recipeRepository = recipeRepository;
+        this.recipeSimilarityIndex = recipeSimilarityIndex;
+        this.recipeProperties = recipeProperties;
+    }
+
+    /**
+     * @param id    recipe the others are compared with, not part of the result
+     * @param limit recipes returned at most, capped by the configured maximum
+     */
+    @Transactional(readOnly = true)
+    public List<SimilarRecipe> findSimilar(Integer id, Integer limit) {
+        if (!recipeSimilarityIndex.isLoaded()) {
+            log.error("similarity index not available, recipeId: " + id);
+            throw new ServiceUnavailableException(ErrorMessages.SERVICE_UNAVAILABLE);
+        }
+        Recipe recipe = recipeRepository.findById(id).map(CommonUtil::mapToRecipeModel).orElseThrow(() -> {
+            log.error("recipe not available, recipeId: " + id);
+            return new NoSuchRecipeException(ErrorMessages.RECIPE_NOT_FOUND);
+        });
+        log.info("searching recipes similar to recipeId: " + id);
+
+        int resultLimit = resultLimit(limit);
+        Set<String> ingredientKeys = toIngredientKeys(recipe.getIngredients());
+        // twice as many are ranked by estimate, so the exact similarity can still reorder those near the cut
+        List<Integer> ids = recipeSimilarityIndex.findSimilar(id, ingredientKeys, resultLimit * 2);
+        log.debug("candidate recipes similar to recipeId: " + id + ", count: " + ids.size());
+
+        // a recipe deleted since it was ranked is not loaded
+        return recipeRepository.findAllById(ids).stream()
+                .map(CommonUtil::mapToRecipeModel)
+                .map(candidate -> new SimilarRecipe(candidate,
+                        jaccard(ingredientKeys, toIngredientKeys(candidate.getIngredients()))))
+                .filter(similar -> similar.getSimilarity() > 0)
+                .sorted(Comparator.comparingDouble(SimilarRecipe::getSimilarity).reversed()
+                        .thenComparing(similar -> similar.getRecipe().getId()))
+                .limit(resultLimit)
+                .collect(Collectors.toList());
+    }
+
+    static double jaccard(Set<String> keys, Set<String> otherKeys) {
+        long shared = keys.stream().filter(otherKeys::contains).count();
+        long either = keys.size() + otherKeys.size() - shared;
+        return either == 0 ? 0 : (double) shared / either;
+    }
+
+    private int resultLimit(Integer requested) {
+        RecipeProperties.Similarity similarity = recipeProperties.getSimilarity();
+        if (Objects.isNull(requested) || requested < 1) {
+            return Math.min(similarity.getDefaultResults(), similarity.getMaxResults());
+        }
+        return Math.min(requested, similarity.getMaxResults());
+    }
+}
@@ -0,0 +1,61 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.models.Recipe;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.abna.recipe.config.CacheConfig.RECIPES_CACHE;
+
+/**
+ * Writes updated recipes into the single recipe cache once their transaction has committed. Concurrent updates of a
+ * recipe can reach this point in any order, so an entry is only replaced by a version at least as new; a plain
+ * put could leave an older version cached, and every conditional update made from it would then fail.
+ * <p>
+ * The entry still trails the database between the commit and this listener running, which takes a while since
+ * the search index is written in between. Updates that fail on a stale entity tag read the committed recipe
+ * anyway and hand it to {@link #refresh(Recipe)}, so clients retrying from the cache see the new version at once.
+ */
+@Component
+@Slf4j
+public class RecipesCacheUpdater {
+
+    private static final Comparator<Long> VERSION_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private final ConcurrentMap<Object, Object> recipes;
+
+    @SuppressWarnings("unchecked")
+    public RecipesCacheUpdater(CacheManager cacheManager) {
+        this.recipes = ((com.github.benmanes.caffeine.cache.Cache<Object, Object>)
+                Objects.requireNonNull(cacheManager.getCache(RECIPES_CACHE)).getNativeCache()).asMap();
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        if (event.isDelete() || event.getBefore() == null) {
+            // deletes and creates are cached by the annotations on the service methods
+            return;
+        }
+        refresh(event.getAfter());
+    }
+
+    /**
+     * Caches the recipe unless a newer version is cached already.
+     *
+     * @param recipe a committed state of the recipe
+     */
+    public void refresh(Recipe recipe) {
+        log.debug("refreshing cached recipe with recipeId: " + recipe.getId());
+        recipes.merge(recipe.getId(), recipe, (cached, candidate) -> !(cached instanceof Recipe)
+                || VERSION_ORDER.compare(((Recipe) candidate).getVersion(), ((Recipe) cached).getVersion()) >= 0
+                ? candidate : cached);
+    }
+}
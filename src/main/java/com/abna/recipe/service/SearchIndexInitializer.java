@@ -0,0 +1,105 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.repository.RecipeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.search.mapper.orm.Search;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Makes sure the full-text index agrees with the recipes stored at startup. With recipe.search.reindex-on-startup
+ * the index is always rebuilt from the database, which suits the in-memory database. Without it the index directory
+ * left by the previous run is kept, which keeps restarts over a persistent database fast, and only rebuilt when it
+ * does not match the rows: a different document count, or a different watermark, the id, update time and version of
+ * the most recently written recipe. The watermark catches writes the index lost with equal counts, e.g. an update
+ * committed just before a crash.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@Slf4j
+public class SearchIndexInitializer implements ApplicationRunner {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final RecipeRepository recipeRepository;
+
+    private final boolean reindexOnStartup;
+
+    public SearchIndexInitializer(EntityManagerFactory entityManagerFactory, RecipeRepository recipeRepository,
+                                  @Value("${recipe.search.reindex-on-startup:true}") boolean reindexOnStartup) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.recipeRepository = recipeRepository;
+        this.reindexOnStartup = reindexOnStartup;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        if (!reindexOnStartup) {
+            long indexed = indexedRecipes();
+            long stored = recipeRepository.count();
+            String indexedWatermark = indexedWatermark();
+            String storedWatermark = recipeRepository.findFirstByOrderByUpdateDateTimeDescIdDesc()
+                    .map(recipeData -> watermark(recipeData.getId(), recipeData.getUpdateDateTime(),
+                            recipeData.getVersion()))
+                    .orElse(null);
+            if (indexed == stored && Objects.equals(indexedWatermark, storedWatermark)) {
+                log.info("full-text index of recipes is up to date, recipes: " + stored);
+                return;
+            }
+            log.warn("full-text index holds " + indexed + " recipes up to " + indexedWatermark + " but " + stored
+                    + " are stored up to " + storedWatermark);
+        }
+
+        log.info("rebuilding full-text index of recipes");
+        Search.mapping(entityManagerFactory)
+                .scope(RecipeData.class)
+                .massIndexer()
+                .startAndWait();
+        log.info("full-text index of recipes rebuilt");
+    }
+
+    private long indexedRecipes() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return Search.session(entityManager)
+                    .search(RecipeData.class)
+                    .where(f -> f.matchAll())
+                    .fetchTotalHitCount();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /** ordered like {@link RecipeRepository#findFirstByOrderByUpdateDateTimeDescIdDesc}, null for an empty index */
+    private String indexedWatermark() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            List<List<?>> latest = Search.session(entityManager)
+                    .search(RecipeData.class)
+                    .select(f -> f.composite(f.id(Integer.class), f.field("updateDateTime", LocalDateTime.class),
+                            f.field("version", Long.class)))
+                    .where(f -> f.matchAll())
+                    .sort(f -> f.field("updateDateTime").desc().then().field("recipeId").desc())
+                    .fetchHits(1);
+            return latest.isEmpty() ? null : watermark((Integer) latest.get(0).get(0),
+                    (LocalDateTime) latest.get(0).get(1), (Long) latest.get(0).get(2));
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private static String watermark(Integer id, LocalDateTime updateDateTime, Long version) {
+        return "recipe " + id + " at " + updateDateTime + " version " + version;
+    }
+}
@@ -5,8 +5,12 @@ import com.abna.recipe.models.Recipe;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.Set;
 
 @Slf4j
 public class CommonUtil {
@@ -18,23 +22,49 @@ public class CommonUtil {
                 .type(recipe.getType())
                 .serving(recipe.getServing())
                 .instructions(recipe.getInstructions())
-                .ingredients(String.join(", ", recipe.getIngredients()))
+                .ingredients(IngredientCodec.join(recipe.getIngredients()))
+                .ingredientKeys(toIngredientKeys(recipe.getIngredients()))
                 .build();
 
         if (recipe.getCreateDateTime() == null) {
             log.debug("new recipe, need to set create time");
-            LocalDateTime currentDateTime = LocalDateTime.now();
+            LocalDateTime currentDateTime = now();
             recipeData.setCreateDateTime(currentDateTime);
             recipeData.setUpdateDateTime(currentDateTime);
         } else {
             log.debug("updating recipe, need to update update time");
             recipeData.setCreateDateTime(recipe.getCreateDateTime());
-            recipeData.setUpdateDateTime(LocalDateTime.now());
+            recipeData.setUpdateDateTime(now());
         }
 
         return recipeData;
     }
 
+    /**
+     * Copies the user editable attributes of the recipe onto an already persisted entity and touches its
+     * update time, leaving id and create time as stored.
+     */
+    public static void updateRecipeData(RecipeData recipeData, Recipe recipe) {
+        recipeData.setName(recipe.getName());
+        recipeData.setType(recipe.getType());
+        recipeData.setServing(recipe.getServing());
+        recipeData.setInstructions(recipe.getInstructions());
+        recipeData.setIngredients(IngredientCodec.join(recipe.getIngredients()));
+        // mutate the managed set in place so only the changed index rows are written
+        Set<String> ingredientKeys = toIngredientKeys(recipe.getIngredients());
+        recipeData.getIngredientKeys().retainAll(ingredientKeys);
+        recipeData.getIngredientKeys().addAll(ingredientKeys);
+        recipeData.setUpdateDateTime(now());
+    }
+
+    /**
+     * The current time at the precision the timestamp columns keep, so a recipe returned right after a write has
+     * the same times, and entity tag, as the stored one read back later.
+     */
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
     public static Recipe mapToRecipeModel(RecipeData recipeData) {
 
         return Recipe.builder()
@@ -45,17 +75,40 @@ public class CommonUtil {
                 .instructions(recipeData.getInstructions())
                 .createDateTime(recipeData.getCreateDateTime())
                 .updateDateTime(recipeData.getUpdateDateTime())
-                .ingredients(Arrays.asList(recipeData.getIngredients().split("\\s*, \\s*")))
+                .version(recipeData.getVersion())
+                .ingredients(IngredientCodec.split(recipeData.getIngredients()))
                 .build();
     }
 
+    public static Set<String> toIngredientKeys(Collection<String> ingredients) {
+        Set<String> keys = new HashSet<>();
+        if (ingredients != null) {
+            for (String ingredient : ingredients) {
+                String key = toIngredientKey(ingredient);
+                if (!key.isEmpty()) {
+                    keys.add(key);
+                }
+            }
+        }
+        return keys;
+    }
+
+    public static String toIngredientKey(String ingredient) {
+        return ingredient == null ? "" : ingredient.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** case-folded form of a name or type, as stored in the search key columns */
+    public static String toSearchKey(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
     public static Boolean sanitizeRecipe(Recipe recipe) {
         if (Objects.isNull(recipe)) {
             log.error("recipe data is null");
             return false;
         } else if (Objects.isNull(recipe.getId())
-                || recipe.getName().isBlank()
-                || recipe.getType().isBlank()
+                || Objects.isNull(recipe.getName()) || recipe.getName().isBlank()
+                || Objects.isNull(recipe.getType()) || recipe.getType().isBlank()
                 || Objects.isNull(recipe.getServing())) {
             log.error("required parameters are null");
             return false;
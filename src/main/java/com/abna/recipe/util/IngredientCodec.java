@@ -0,0 +1,64 @@
+package com.abna.recipe.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Converts between the ingredient list of a recipe and the comma separated column it is stored in.
+ * <p>
+ * {@link #split(String)} gives the same result as {@code value.split("\\s*, \\s*")} but scans the string once
+ * instead of compiling that pattern for every row read.
+ */
+public final class IngredientCodec {
+
+    public static final String SEPARATOR = ", ";
+
+    private IngredientCodec() {
+    }
+
+    public static String join(Collection<String> ingredients) {
+        return String.join(SEPARATOR, ingredients);
+    }
+
+    public static List<String> split(String value) {
+        List<String> ingredients = new ArrayList<>();
+        int length = value.length();
+        int start = 0;
+        int i = 0;
+        boolean separated = false;
+        while (i < length - 1) {
+            if (value.charAt(i) == ',' && value.charAt(i + 1) == ' ') {
+                int end = i;
+                while (end > start && isWhitespace(value.charAt(end - 1))) {
+                    end--;
+                }
+                ingredients.add(value.substring(start, end));
+                i += 2;
+                while (i < length && isWhitespace(value.charAt(i))) {
+                    i++;
+                }
+                start = i;
+                separated = true;
+            } else {
+                i++;
+            }
+        }
+        if (!separated) {
+            ingredients.add(value);
+            return ingredients;
+        }
+        ingredients.add(value.substring(start));
+        // like String.split, trailing empty entries are dropped
+        int size = ingredients.size();
+        while (size > 0 && ingredients.get(size - 1).isEmpty()) {
+            ingredients.remove(--size);
+        }
+        return ingredients;
+    }
+
+    /** matches the {@code \s} character class of java.util.regex */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,131 @@
+package com.abna.recipe.util;
+
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.models.RecipeSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Strong entity tags for recipe representations. A recipe's tag changes whenever its version does, a page's
+ * tag whenever any recipe on it or the continuation cursor does, so tags can be computed from the stored rows
+ * without mapping or serializing them.
+ */
+public final class RecipeETags {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private RecipeETags() {
+    }
+
+    /**
+     * The tag of a single recipe. Versions restart when a recipe is deleted and created again under the same id, the
+     * create time tells those apart.
+     */
+    public static String of(Integer id, LocalDateTime createDateTime, Long version) {
+        return "\"" + id + "-" + Long.toHexString(toEpochMicros(createDateTime)) + "-" + version + "\"";
+    }
+
+    public static String ofPage(List<RecipeData> recipes, String nextCursor) {
+        PageDigest digest = new PageDigest();
+        for (RecipeData recipeData : recipes) {
+            digest.add(recipeData.getId(), recipeData.getUpdateDateTime());
+        }
+        return digest.tag(nextCursor);
+    }
+
+    public static String ofSummaryPage(List<RecipeSummary> summaries, String nextCursor) {
+        PageDigest digest = new PageDigest();
+        for (RecipeSummary summary : summaries) {
+            digest.add(summary.getId(), summary.getUpdateDateTime());
+        }
+        return digest.tag(nextCursor);
+    }
+
+    /**
+     * Weak comparison as used for If-None-Match: the W/ prefix of a client tag is ignored.
+     */
+    public static boolean matchesAny(Collection<String> ifNoneMatch, String etag) {
+        if (Objects.isNull(ifNoneMatch)) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || stripWeak(tag).equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Strong comparison as used for If-Match: weak client tags never match.
+     */
+    public static boolean matchesAnyStrong(Collection<String> ifMatch, String etag) {
+        for (String candidate : ifMatch) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** the Last-Modified value of a recipe; update times are taken on the server clock, HTTP dates have second precision */
+    public static long lastModified(LocalDateTime updateDateTime) {
+        return updateDateTime.truncatedTo(ChronoUnit.SECONDS).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static long toEpochMicros(LocalDateTime dateTime) {
+        if (Objects.isNull(dateTime)) {
+            return 0L;
+        }
+        return ChronoUnit.MICROS.between(LocalDateTime.of(1970, 1, 1, 0, 0), dateTime);
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class PageDigest {
+
+        private final MessageDigest digest = sha256();
+
+        private final StringBuilder entry = new StringBuilder();
+
+        private void add(Integer id, LocalDateTime updateDateTime) {
+            entry.setLength(0);
+            entry.append(id).append('-').append(toEpochMicros(updateDateTime)).append(';');
+            digest.update(entry.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+
+        private String tag(String nextCursor) {
+            digest.update(String.valueOf(nextCursor).getBytes(StandardCharsets.US_ASCII));
+
+            byte[] hash = digest.digest();
+            char[] tag = new char[34];
+            tag[0] = '"';
+            for (int i = 0; i < 16; i++) {
+                tag[1 + 2 * i] = HEX[(hash[i] >> 4) & 0xf];
+                tag[2 + 2 * i] = HEX[hash[i] & 0xf];
+            }
+            tag[33] = '"';
+            return new String(tag);
+        }
+    }
+}
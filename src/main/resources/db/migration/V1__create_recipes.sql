@@ -0,0 +1,31 @@
+-- name_key and type_key hold lower-cased copies of name and type, so the case-insensitive filters compare plain
+-- column values and the type filter can use an index
+create table recipes (
+    id               integer      not null,
+    name             varchar(255) not null,
+    name_key         varchar(255) not null,
+    type             varchar(255) not null,
+    type_key         varchar(255) not null,
+    serving          integer      not null,
+    ingredients      varchar(255),
+    instructions     varchar(255),
+    create_date_time timestamp,
+    update_date_time timestamp,
+    primary key (id)
+);
+
+-- type equality, type with a serving range, and the type filter on its own as a prefix
+create index idx_recipes_type_key_serving on recipes (type_key, serving);
+-- serving range without a type
+create index idx_recipes_serving on recipes (serving);
+-- keyset pages ordered by update time, id breaks ties
+create index idx_recipes_update_date_time on recipes (update_date_time, id);
+
+create table recipe_ingredients (
+    recipe_id  integer      not null,
+    ingredient varchar(255) not null,
+    primary key (recipe_id, ingredient),
+    constraint fk_recipe_ingredients_recipe foreign key (recipe_id) references recipes (id) on delete cascade
+);
+
+create index idx_recipe_ingredients_ingredient on recipe_ingredients (ingredient, recipe_id);
@@ -0,0 +1,2 @@
+-- optimistic lock version, incremented by every update; existing rows start at 0
+alter table recipes add column version bigint default 0 not null;
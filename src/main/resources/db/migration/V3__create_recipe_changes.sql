@@ -0,0 +1,17 @@
+-- append-only log of recipe writes for delta sync; seq is the change token clients pass back, so the primary key
+-- is the only index the feed needs. Hibernate takes seq values from the sequence in blocks of 50.
+create sequence recipe_change_seq start with 1 increment by 50;
+
+create table recipe_changes (
+    seq        bigint    not null,
+    recipe_id  integer   not null,
+    deleted    boolean   not null,
+    changed_at timestamp not null,
+    primary key (seq)
+);
+
+-- recipes written before the log existed, so a client syncing from the start sees every recipe
+insert into recipe_changes (seq, recipe_id, deleted, changed_at)
+select next value for recipe_change_seq, id, false, coalesce(update_date_time, create_date_time, current_timestamp)
+from recipes
+order by id;
@@ -0,0 +1,8 @@
+-- position of a change in the delta feed, handed out in commit order once the writing transaction has committed;
+-- null until then. Rows logged so far keep their seq, so tokens already given to clients stay valid.
+alter table recipe_changes add column position bigint;
+
+update recipe_changes set position = seq;
+
+-- the feed scans by position, finds the unpositioned rows and takes the next position from the maximum
+create unique index recipe_changes_position on recipe_changes (position);
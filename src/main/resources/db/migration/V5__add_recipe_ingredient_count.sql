@@ -0,0 +1,5 @@
+-- number of ingredient index rows of the recipe, kept by the entity; the pantry search compares it with the rows
+-- matching the pantry instead of grouping every ingredient of the recipes found
+alter table recipes add column ingredient_count integer default 0 not null;
+
+update recipes r set ingredient_count = (select count(*) from recipe_ingredients i where i.recipe_id = r.id);
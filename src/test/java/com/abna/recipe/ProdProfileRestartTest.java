@@ -0,0 +1,100 @@
+package com.abna.recipe;
+
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.models.RecipePageRequest;
+import com.abna.recipe.models.RecipeSearchCriteria;
+import com.abna.recipe.service.RecipeManagerService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Starts the service on the prod profile over the same storage directory: a restart has to find the recipes and the
+ * full-text index of the previous run without rebuilding anything, unless the rows changed behind the back of the
+ * index.
+ */
+@ExtendWith(OutputCaptureExtension.class)
+class ProdProfileRestartTest {
+
+    private static final String REBUILDING = "rebuilding full-text index of recipes";
+
+    @TempDir
+    Path storageDir;
+
+    @Test
+    void recipesAndSearchIndexSurviveRestart(CapturedOutput output) {
+        try (ConfigurableApplicationContext context = start()) {
+            context.getBean(RecipeManagerService.class).createRecipe(Recipe.builder()
+                    .id(1)
+                    .name("Tomato soup")
+                    .type("Italian")
+                    .serving(2)
+                    .ingredients(List.of("Tomatoes", "Basil"))
+                    .instructions("Simmer the tomatoes and blend")
+                    .build());
+        }
+
+        int restartedAt = output.length();
+        try (ConfigurableApplicationContext context = start()) {
+            RecipeManagerService recipeManagerService = context.getBean(RecipeManagerService.class);
+
+            assertNotNull(recipeManagerService.getRecipeById(1));
+            assertEquals(List.of(1), search(recipeManagerService, "tomato"));
+        }
+        String restart = output.toString().substring(restartedAt);
+        assertTrue(restart.contains("full-text index of recipes is up to date"), restart);
+        assertFalse(restart.contains(REBUILDING), restart);
+    }
+
+    @Test
+    void searchIndexIsRebuiltWhenRowsChangedWithEqualCount(CapturedOutput output) {
+        try (ConfigurableApplicationContext context = start()) {
+            context.getBean(RecipeManagerService.class).createRecipe(Recipe.builder()
+                    .id(1)
+                    .name("Tomato soup")
+                    .type("Italian")
+                    .serving(2)
+                    .ingredients(List.of("Tomatoes", "Basil"))
+                    .instructions("Simmer the tomatoes and blend")
+                    .build());
+            // an update whose index work was lost, as in a crash right after the commit
+            context.getBean(JdbcTemplate.class).update("update recipes set name = 'Lentil soup', "
+                    + "name_key = 'lentil soup', version = version + 1, "
+                    + "update_date_time = dateadd(minute, 1, update_date_time) where id = 1");
+        }
+
+        int restartedAt = output.length();
+        try (ConfigurableApplicationContext context = start()) {
+            assertEquals(List.of(1), search(context.getBean(RecipeManagerService.class), "lentil"));
+        }
+        assertTrue(output.toString().substring(restartedAt).contains(REBUILDING));
+    }
+
+    private static List<Integer> search(RecipeManagerService recipeManagerService, String q) {
+        return recipeManagerService.getAllRecipes(RecipeSearchCriteria.builder().q(q).build(),
+                        RecipePageRequest.builder().build())
+                .getRecipes().stream().map(Recipe::getId).collect(Collectors.toList());
+    }
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(RecipeManagerServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("prod")
+                .run("--recipe.storage.dir=" + storageDir.toAbsolutePath());
+    }
+}
@@ -0,0 +1,72 @@
+package com.abna.recipe.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    void rejectsBeyondTheLimitUntilAPermitIsReleased() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 10);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+
+        limit.release(FAST);
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void growsWhileSaturatedAndLatencyIsSteady() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 32);
+
+        runSaturated(limit, FAST, 200);
+
+        assertEquals(32, limit.getLimit());
+    }
+
+    @Test
+    void doesNotGrowWhenTheLimitIsNotUsed() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 32);
+
+        for (int i = 0; i < 200; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(FAST);
+        }
+
+        assertEquals(4, limit.getLimit());
+    }
+
+    @Test
+    void shrinksWhenLatencyRisesAndRecoversWhenItFalls() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 64);
+        runSaturated(limit, FAST, 300);
+        int grown = limit.getLimit();
+
+        runSaturated(limit, FAST * 4, 100);
+        int shrunk = limit.getLimit();
+        assertTrue(shrunk <= grown / 2, "limit " + shrunk + " after latency rose, " + grown + " before");
+
+        runSaturated(limit, FAST, 300);
+        assertEquals(grown, limit.getLimit());
+    }
+
+    /** keeps every permit in use and completes the requests with the given latency */
+    private static void runSaturated(AdaptiveConcurrencyLimit limit, long rttNanos, int requests) {
+        for (int i = 0; i < requests; i++) {
+            while (limit.tryAcquire()) {
+                // fill up to the current limit
+            }
+            limit.release(rttNanos);
+        }
+        while (limit.getInFlight() > 0) {
+            limit.release(rttNanos);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.abna.recipe.config;
+
+import com.abna.recipe.config.RecipeLoadSheddingFilter.RequestClass;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipeLoadSheddingFilterTest {
+
+    private RecipeProperties.Limits limits;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RecipeLoadSheddingFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        limits = new RecipeProperties.Limits();
+        limits.setSearch(new RecipeProperties.Limits.Budget(2, 0.001, 1, 1));
+        limits.setRead(new RecipeProperties.Limits.Budget(100, 100, 1, 1));
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RecipeLoadSheddingFilter(limits, new ObjectMapper(), meterRegistry);
+    }
+
+    @Test
+    void requestsAreClassifiedByEndpoint() {
+        assertEquals(RequestClass.SEARCH, RequestClass.of("GET", "/api/v1/recipes"));
+        assertEquals(RequestClass.SEARCH, RequestClass.of("GET", "/api/v1/recipes/summary"));
+        assertEquals(RequestClass.READ, RequestClass.of("GET", "/api/v1/recipe/7"));
+        assertEquals(RequestClass.WRITE, RequestClass.of("PUT", "/api/v1/recipe"));
+        assertEquals(RequestClass.WRITE, RequestClass.of("POST", "/api/v1/recipes:batchCreate"));
+        assertNull(RequestClass.of("GET", "/actuator/health"));
+    }
+
+    @Test
+    void clientOverItsSearchRateIsRejectedWithRetryAfter() throws Exception {
+        assertEquals(200, search("10.0.0.1").getStatus());
+        assertEquals(200, search("10.0.0.1").getStatus());
+
+        MockHttpServletResponse rejected = search("10.0.0.1");
+
+        assertEquals(429, rejected.getStatus());
+        assertTrue(Long.parseLong(rejected.getHeader("Retry-After")) > 1);
+        assertTrue(rejected.getContentAsString().contains("\"status\":429"));
+        assertEquals(1, meterRegistry.get(MetricsConfig.REJECTED_REQUESTS_METRIC)
+                .tags("class", "search", "reason", "rate_limit").counter().count());
+    }
+
+    @Test
+    void budgetsAreSeparatePerClientAndRequestClass() throws Exception {
+        search("10.0.0.1");
+        search("10.0.0.1");
+        assertEquals(429, search("10.0.0.1").getStatus());
+
+        assertEquals(200, search("10.0.0.2").getStatus());
+        assertEquals(200, perform(get("/api/v1/recipe/1", "10.0.0.1"), new MockFilterChain()).getStatus());
+    }
+
+    @Test
+    void requestBeyondTheConcurrencyLimitIsShedWithServiceUnavailable() throws Exception {
+        MockHttpServletRequest slowRead = get("/api/v1/recipe/1", "10.0.0.1");
+        slowRead.setAsyncSupported(true);
+        MockHttpServletResponse slowResponse = new MockHttpServletResponse();
+        filter.doFilter(slowRead, slowResponse, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+                request.startAsync();
+            }
+        }));
+        assertEquals(1, filter.concurrencyLimit(RequestClass.READ).getInFlight());
+
+        MockHttpServletResponse shed = perform(get("/api/v1/recipe/2", "10.0.0.2"), new MockFilterChain());
+        assertEquals(503, shed.getStatus());
+        assertEquals("1", shed.getHeader("Retry-After"));
+
+        slowRead.getAsyncContext().complete();
+        assertEquals(0, filter.concurrencyLimit(RequestClass.READ).getInFlight());
+        assertEquals(200, perform(get("/api/v1/recipe/2", "10.0.0.2"), new MockFilterChain()).getStatus());
+    }
+
+    @Test
+    void requestsOutsideTheApiAreNotLimited() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(200, perform(get("/actuator/health", "10.0.0.1"), new MockFilterChain()).getStatus());
+        }
+    }
+
+    @Test
+    void unauthenticatedClientCannotEscapeItsRateWithNewHeaders() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequest request = get("/api/v1/recipes", "10.0.0.1");
+            request.addHeader("X-API-Key", "key-" + i);
+            assertEquals(200, perform(request, new MockFilterChain()).getStatus());
+        }
+        MockHttpServletRequest request = get("/api/v1/recipes", "10.0.0.1");
+        request.addHeader("X-API-Key", "key-2");
+
+        assertEquals(429, perform(request, new MockFilterChain()).getStatus());
+    }
+
+    @Test
+    void authenticatedUsersBehindOneAddressHaveTheirOwnRate() throws Exception {
+        search("10.0.0.1");
+        search("10.0.0.1");
+        assertEquals(429, search("10.0.0.1").getStatus());
+
+        MockHttpServletRequest request = get("/api/v1/recipes", "10.0.0.1");
+        request.setUserPrincipal(() -> "alice");
+
+        assertEquals(200, perform(request, new MockFilterChain()).getStatus());
+    }
+
+    @Test
+    void bucketRefillsAtItsRate() {
+        long start = 0;
+        TokenBucket bucket = new TokenBucket(1, 10, start);
+
+        assertEquals(0, bucket.tryConsume(start));
+        long wait = bucket.tryConsume(start);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), wait, TimeUnit.MICROSECONDS.toNanos(1));
+        assertEquals(0, bucket.tryConsume(start + wait));
+    }
+
+    private MockHttpServletResponse search(String client) throws Exception {
+        return perform(get("/api/v1/recipes", client), new MockFilterChain());
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request, MockFilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private MockHttpServletRequest get(String path, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRemoteAddr(client);
+        return request;
+    }
+}
@@ -0,0 +1,66 @@
+package com.abna.recipe.config;
+
+import com.abna.recipe.exceptions.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipeRequestExecutorTest {
+
+    @Test
+    void servletModeRunsOnTheCallingThread() {
+        RecipeRequestExecutor recipeRequestExecutor = new RecipeRequestExecutor(null);
+
+        CompletableFuture<String> result = recipeRequestExecutor.submit(() -> Thread.currentThread().getName());
+
+        assertTrue(result.isDone());
+        assertEquals(Thread.currentThread().getName(), result.join());
+    }
+
+    @Test
+    void asyncModeRunsOnTheExecutor() {
+        RecipeRequestExecutor recipeRequestExecutor = new RecipeRequestExecutor(executor(1, 1));
+
+        CompletableFuture<String> result = recipeRequestExecutor.submit(() -> Thread.currentThread().getName());
+
+        assertTrue(result.join().startsWith("test-request-"));
+        recipeRequestExecutor.destroy();
+    }
+
+    @Test
+    void asyncModeRejectsWhenSaturated() {
+        RecipeRequestExecutor recipeRequestExecutor = new RecipeRequestExecutor(executor(1, 1));
+        CountDownLatch release = new CountDownLatch(1);
+
+        recipeRequestExecutor.submit(() -> await(release));
+        recipeRequestExecutor.submit(() -> await(release));
+
+        assertThrows(ServiceUnavailableException.class, () -> recipeRequestExecutor.submit(() -> await(release)));
+        release.countDown();
+        recipeRequestExecutor.destroy();
+    }
+
+    private static ThreadPoolTaskExecutor executor(int poolSize, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("test-request-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+        return executor;
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
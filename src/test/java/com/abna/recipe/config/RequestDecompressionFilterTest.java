@@ -0,0 +1,98 @@
+package com.abna.recipe.config;
+
+import com.abna.recipe.exceptions.PayloadTooLargeException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestDecompressionFilterTest {
+
+    private RequestDecompressionFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        RecipeProperties recipeProperties = new RecipeProperties();
+        recipeProperties.getRequestDecompression().setMaxSize(DataSize.ofBytes(1000));
+        filter = new RequestDecompressionFilter(recipeProperties, new ObjectMapper());
+    }
+
+    @Test
+    void gzipBodyIsInflatedAndNoLongerLooksEncoded() throws Exception {
+        String json = "[{\"id\":1,\"name\":\"Chicken Biryani\"}]";
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request("gzip", gzip(json)), new MockHttpServletResponse(), chain);
+
+        HttpServletRequest inflated = (HttpServletRequest) chain.getRequest();
+        assertNull(inflated.getHeader("Content-Encoding"));
+        assertEquals(-1, inflated.getContentLength());
+        assertFalse(Collections.list(inflated.getHeaderNames()).contains("Content-Length"));
+        assertEquals(json, StreamUtils.copyToString(inflated.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void bodyInflatingBeyondTheLimitIsRejectedWhileRead() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request("gzip", gzip("a".repeat(5000))), new MockHttpServletResponse(), chain);
+
+        HttpServletRequest inflated = (HttpServletRequest) chain.getRequest();
+        assertThrows(PayloadTooLargeException.class, () -> StreamUtils.copyToByteArray(inflated.getInputStream()));
+    }
+
+    @Test
+    void unsupportedEncodingIsRejected() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request("br", new byte[]{1, 2, 3}), response, chain);
+
+        assertNull(chain.getRequest());
+        assertEquals(415, response.getStatus());
+        assertEquals("gzip", response.getHeader("Accept-Encoding"));
+        assertTrue(response.getContentAsString().contains("\"status\":415"));
+    }
+
+    @Test
+    void plainBodyPassesUntouched() throws Exception {
+        MockHttpServletRequest request = request(null, "[1,2]".getBytes(StandardCharsets.UTF_8));
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertSame(request, chain.getRequest());
+    }
+
+    private static MockHttpServletRequest request(String contentEncoding, byte[] body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/recipes:batchCreate");
+        request.setContentType("application/json");
+        if (contentEncoding != null) {
+            request.addHeader("Content-Encoding", contentEncoding);
+        }
+        request.addHeader("Content-Length", body.length);
+        request.setContent(body);
+        return request;
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+            gzipOutputStream.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,122 @@
+package com.abna.recipe.repository;
+
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.models.IngredientMatch;
+import com.abna.recipe.models.RecipeCursor;
+import com.abna.recipe.models.RecipeSortKey;
+import com.abna.recipe.models.RecipeSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.abna.recipe.repository.RecipeDataSpecification.getAfterCursor;
+import static com.abna.recipe.repository.RecipeDataSpecification.getByExcludeIngredients;
+import static com.abna.recipe.repository.RecipeDataSpecification.getByIncludeIngredients;
+import static com.abna.recipe.repository.RecipeDataSpecification.getByName;
+import static com.abna.recipe.repository.RecipeDataSpecification.getByType;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+class RecipeDataSpecificationTest {
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @BeforeEach
+    void setUp() {
+        recipeRepository.saveAll(List.of(
+                recipe(1, "Rice, Chicken, Spices", Set.of("rice", "chicken", "spices")),
+                recipe(2, "Chicken, Potato", Set.of("chicken", "potato")),
+                recipe(3, "Spices, Rice", Set.of("spices", "rice"))));
+    }
+
+    @Test
+    void includeAllMatchesRegardlessOfIngredientOrder() {
+        List<Integer> ids = ids(recipeRepository.findAll(
+                getByIncludeIngredients(Set.of("spices", "rice"), IngredientMatch.ALL)));
+
+        assertEquals(List.of(1, 3), ids);
+    }
+
+    @Test
+    void includeAnyMatchesOneOfTheIngredients() {
+        List<Integer> ids = ids(recipeRepository.findAll(
+                getByIncludeIngredients(Set.of("potato", "spices"), IngredientMatch.ANY)));
+
+        assertEquals(List.of(1, 2, 3), ids);
+    }
+
+    @Test
+    void excludeDropsRecipesHavingAnyOfTheIngredients() {
+        List<Integer> ids = ids(recipeRepository.findAll(getByExcludeIngredients(Set.of("chicken"))));
+
+        assertEquals(List.of(3), ids);
+    }
+
+    @Test
+    void typeAndNameMatchIgnoringCase() {
+        recipeRepository.save(RecipeData.builder()
+                .id(4)
+                .name("Chicken Biryani")
+                .type("Indian")
+                .serving(4)
+                .ingredients("Chicken, Rice")
+                .ingredientKeys(Set.of("chicken", "rice"))
+                .instructions("instructions")
+                .build());
+
+        assertEquals(List.of(4), ids(recipeRepository.findAll(getByType("INDIAN"))));
+        assertEquals(List.of(4), ids(recipeRepository.findAll(getByType("indian").and(getByName("biryani")))));
+        assertEquals(List.of(), ids(recipeRepository.findAll(getByType("Ind"))));
+    }
+
+    @Test
+    void keysetPageByUpdateTimeContinuesAfterTheCursor() {
+        LocalDateTime sameTime = LocalDateTime.of(2022, 1, 1, 10, 0);
+        recipeRepository.saveAll(List.of(
+                recipe(4, "Salt", Set.of("salt")),
+                recipe(5, "Salt", Set.of("salt"))));
+        recipeRepository.findAll().forEach(recipeData -> recipeData.setUpdateDateTime(
+                recipeData.getId() == 1 ? sameTime.minusHours(1) : sameTime));
+        Sort sort = Sort.by(Sort.Direction.ASC, "updateDateTime", "id");
+        RecipeCursor cursor = new RecipeCursor(RecipeSortKey.UPDATE_DATE_TIME, Sort.Direction.ASC, 3, sameTime, null);
+
+        List<RecipeData> page = recipeRepository.findPage(getAfterCursor(cursor), sort, 10);
+
+        assertEquals(List.of(4, 5), page.stream().map(RecipeData::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void summaryPageSelectsSummaryColumnsOfMatchingRecipes() {
+        List<RecipeSummary> summaries = recipeRepository.findSummaryPage(
+                getByIncludeIngredients(Set.of("chicken"), IngredientMatch.ALL), Sort.by(Sort.Direction.DESC, "id"), 10);
+
+        assertEquals(List.of(
+                        new RecipeSummary(2, "recipe 2", "type", 2, summaries.get(0).getUpdateDateTime()),
+                        new RecipeSummary(1, "recipe 1", "type", 2, summaries.get(1).getUpdateDateTime())),
+                summaries);
+    }
+
+    private static RecipeData recipe(int id, String ingredients, Set<String> ingredientKeys) {
+        return RecipeData.builder()
+                .id(id)
+                .name("recipe " + id)
+                .type("type")
+                .serving(2)
+                .ingredients(ingredients)
+                .ingredientKeys(ingredientKeys)
+                .instructions("instructions")
+                .build();
+    }
+
+    private static List<Integer> ids(List<RecipeData> recipes) {
+        return recipes.stream().map(RecipeData::getId).sorted().collect(Collectors.toList());
+    }
+}
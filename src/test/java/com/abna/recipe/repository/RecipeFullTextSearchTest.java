@@ -0,0 +1,111 @@
+package com.abna.recipe.repository;
+
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.models.RecipePage;
+import com.abna.recipe.models.RecipePageRequest;
+import com.abna.recipe.models.RecipeSearchCriteria;
+import com.abna.recipe.service.RecipeManagerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+class RecipeFullTextSearchTest {
+
+    @Autowired
+    private RecipeManagerService recipeManagerService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @BeforeEach
+    void setUp() {
+        recipeManagerService.createRecipe(recipe(1, "Tomato soup", "Italian", List.of("Tomatoes", "Basil"),
+                "Simmer the tomatoes and blend"));
+        recipeManagerService.createRecipe(recipe(2, "Chicken curry", "Indian", List.of("Chicken", "Tomato", "Spices"),
+                "Fry the spices, add chicken"));
+        recipeManagerService.createRecipe(recipe(3, "Pancakes", "Breakfast", List.of("Flour", "Milk", "Eggs"),
+                "Whisk and fry in a pan"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        recipeRepository.findAll().forEach(recipeData -> recipeManagerService.deleteRecipeFromRepository(recipeData.getId()));
+    }
+
+    @Test
+    void searchMatchesStemmedTermsAcrossFieldsRankedByRelevance() {
+        RecipePage page = search(RecipeSearchCriteria.builder().q("tomato").build(), 10);
+
+        assertEquals(List.of(1, 2), ids(page));
+    }
+
+    @Test
+    void searchAppliesStructuredFilters() {
+        RecipePage page = search(RecipeSearchCriteria.builder()
+                .q("fry")
+                .type("indian")
+                .excludeIngredients(List.of("milk"))
+                .build(), 10);
+
+        assertEquals(List.of(2), ids(page));
+    }
+
+    @Test
+    void searchPagesThroughRankedHits() {
+        RecipeSearchCriteria criteria = RecipeSearchCriteria.builder().q("tomato").build();
+        RecipePage first = search(criteria, 1);
+        RecipePage second = recipeManagerService.getAllRecipes(criteria,
+                RecipePageRequest.builder().limit(1).cursor(first.getNextCursor()).build());
+
+        assertNotNull(first.getNextCursor());
+        assertEquals(List.of(1), ids(first));
+        assertEquals(List.of(2), ids(second));
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void deletedRecipesLeaveTheIndex() {
+        recipeManagerService.deleteRecipeFromRepository(1);
+
+        assertEquals(List.of(2), ids(search(RecipeSearchCriteria.builder().q("tomato").build(), 10)));
+    }
+
+    @Test
+    void updatedRecipesAreIndexedAgain() {
+        recipeManagerService.updateRecipe(recipe(3, "Tomato pancakes", "Breakfast", List.of("Flour", "Tomato"),
+                "Whisk and fry in a pan"), List.of());
+
+        assertEquals(List.of(1, 2, 3), ids(search(RecipeSearchCriteria.builder().q("tomato").build(), 10)).stream()
+                .sorted().collect(Collectors.toList()));
+        assertEquals(List.of(), ids(search(RecipeSearchCriteria.builder().q("milk").build(), 10)));
+    }
+
+    private RecipePage search(RecipeSearchCriteria criteria, int limit) {
+        return recipeManagerService.getAllRecipes(criteria, RecipePageRequest.builder().limit(limit).build());
+    }
+
+    private static List<Integer> ids(RecipePage page) {
+        return page.getRecipes().stream().map(Recipe::getId).collect(Collectors.toList());
+    }
+
+    private static Recipe recipe(int id, String name, String type, List<String> ingredients, String instructions) {
+        return Recipe.builder()
+                .id(id)
+                .name(name)
+                .type(type)
+                .serving(2)
+                .ingredients(ingredients)
+                .instructions(instructions)
+                .build();
+    }
+}
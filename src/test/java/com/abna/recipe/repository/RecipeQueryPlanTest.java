@@ -0,0 +1,113 @@
+package com.abna.recipe.repository;
+
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.models.IngredientMatch;
+import com.abna.recipe.models.RecipeCursor;
+import com.abna.recipe.models.RecipeSortKey;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.abna.recipe.repository.RecipeDataSpecification.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs EXPLAIN on the statements Hibernate generates for the search specifications, including their order by and
+ * limit, so a schema or query change that leaves a filter without its index shows up as a failing test rather than
+ * as a full table scan in production. H2 plans the statements as they are, with their parameters unbound.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.abna.recipe.repository.RecipeQueryPlanTest$CapturingStatementInspector")
+class RecipeQueryPlanTest {
+
+    private static final int LIMIT = 51;
+
+    private static final String[] TYPES = {"indian", "italian", "mexican", "thai", "french"};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @BeforeEach
+    void setUp() {
+        List<Object[]> recipes = new ArrayList<>();
+        List<Object[]> ingredients = new ArrayList<>();
+        LocalDateTime time = LocalDateTime.of(2022, 1, 1, 0, 0);
+        for (int id = 1; id <= 500; id++) {
+            String type = TYPES[id % TYPES.length];
+            recipes.add(new Object[]{id, "recipe " + id, "recipe " + id, type, type, 1 + id % 10,
+                    Timestamp.valueOf(time.plusMinutes(id))});
+            ingredients.add(new Object[]{id, "ingredient " + id % 50});
+        }
+        jdbcTemplate.batchUpdate("insert into recipes (id, name, name_key, type, type_key, serving, update_date_time) "
+                + "values (?, ?, ?, ?, ?, ?, ?)", recipes);
+        jdbcTemplate.batchUpdate("insert into recipe_ingredients (recipe_id, ingredient) values (?, ?)", ingredients);
+    }
+
+    @Test
+    void typeFilterUsesTypeIndex() {
+        assertUsesIndex("idx_recipes_type_key_serving", getByType("Indian"), Sort.by("id"));
+    }
+
+    @Test
+    void typeAndServingFiltersUseCompositeIndex() {
+        assertUsesIndex("idx_recipes_type_key_serving", getByType("Indian").and(getByServing(8)), Sort.by("id"));
+    }
+
+    @Test
+    void servingFilterUsesServingIndex() {
+        assertUsesIndex("idx_recipes_serving", getByServing(9), Sort.by("id"));
+    }
+
+    @Test
+    void updateTimeKeysetPageUsesUpdateTimeIndex() {
+        RecipeCursor cursor = RecipeCursor.after(480, LocalDateTime.of(2022, 1, 1, 8, 0),
+                RecipeSortKey.UPDATE_DATE_TIME, Sort.Direction.ASC);
+        assertUsesIndex("idx_recipes_update_date_time", getAfterCursor(cursor), Sort.by("updateDateTime", "id"));
+    }
+
+    @Test
+    void ingredientFilterUsesIngredientIndex() {
+        assertUsesIndex("idx_recipe_ingredients_ingredient",
+                getByIncludeIngredients(Set.of("ingredient 1", "ingredient 2"), IngredientMatch.ANY), Sort.by("id"));
+    }
+
+    /** the page statement of the specification, composed and sorted as the service does */
+    private void assertUsesIndex(String index, Specification<RecipeData> spec, Sort sort) {
+        CapturingStatementInspector.STATEMENTS.clear();
+        recipeRepository.findPage(Specification.where(getRecipeByIdNotNull()).and(spec), sort, LIMIT);
+        assertEquals(1, CapturingStatementInspector.STATEMENTS.size(), CapturingStatementInspector.STATEMENTS::toString);
+        String sql = CapturingStatementInspector.STATEMENTS.get(0);
+        assertTrue(sql.contains(" order by ") && sql.contains(" limit ?"), () -> "expected a page statement: " + sql);
+
+        String plan = jdbcTemplate.queryForObject("explain " + sql, String.class);
+        assertTrue(plan.toLowerCase().contains(index), () -> "expected " + index + " in plan:\n" + plan);
+    }
+
+    /** registered with Hibernate by class name, hence the static list */
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
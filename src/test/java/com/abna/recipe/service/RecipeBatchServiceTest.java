@@ -0,0 +1,90 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.models.BatchItemResult;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.repository.RecipeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+class RecipeBatchServiceTest {
+
+    @Autowired
+    private RecipeBatchService recipeBatchService;
+
+    @Autowired
+    private RecipeManagerService recipeManagerService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @AfterEach
+    void tearDown() {
+        recipeRepository.deleteAll();
+    }
+
+    @Test
+    void createRecipesReportsAResultPerItem() {
+        Recipe invalid = recipe(3, "Soup");
+        invalid.setType(" ");
+
+        List<BatchItemResult> results = recipeBatchService.createRecipes(
+                List.of(recipe(1, "Pasta"), recipe(2, "Pizza"), recipe(1, "Pasta again"), invalid));
+
+        assertEquals(List.of(201, 201, 409, 400), statuses(results));
+        assertEquals(2, recipeRepository.count());
+        assertEquals(List.of("Tomato", "Cheese"), recipeManagerService.getRecipeById(2).getIngredients());
+    }
+
+    @Test
+    void updateRecipesReportsMissingRecipesAndRefreshesTheCache() {
+        recipeBatchService.createRecipes(List.of(recipe(1, "Pasta")));
+        recipeManagerService.getRecipeById(1);
+        Recipe updated = recipe(1, "Pasta Arrabbiata");
+        updated.setIngredients(List.of("Tomato", "Chilli"));
+
+        List<BatchItemResult> results = recipeBatchService.updateRecipes(List.of(updated, recipe(9, "Missing")));
+
+        assertEquals(List.of(200, 404), statuses(results));
+        Recipe stored = recipeManagerService.getRecipeById(1);
+        assertEquals("Pasta Arrabbiata", stored.getName());
+        assertEquals(List.of("Tomato", "Chilli"), stored.getIngredients());
+    }
+
+    @Test
+    void deleteRecipesReportsMissingRecipes() {
+        recipeBatchService.createRecipes(List.of(recipe(1, "Pasta"), recipe(2, "Pizza")));
+        recipeManagerService.getRecipeById(1);
+
+        List<BatchItemResult> results = recipeBatchService.deleteRecipes(Arrays.asList(1, 7, null));
+
+        assertEquals(List.of(200, 404, 400), statuses(results));
+        assertFalse(recipeRepository.existsById(1));
+        assertNull(recipeManagerService.getRecipeById(1));
+    }
+
+    private static List<Integer> statuses(List<BatchItemResult> results) {
+        return results.stream().map(BatchItemResult::getStatus).collect(Collectors.toList());
+    }
+
+    private static Recipe recipe(int id, String name) {
+        return Recipe.builder()
+                .id(id)
+                .name(name)
+                .type("Italian")
+                .serving(2)
+                .ingredients(List.of("Tomato", "Cheese"))
+                .instructions("Bake")
+                .build();
+    }
+}
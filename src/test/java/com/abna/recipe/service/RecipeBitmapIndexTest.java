@@ -0,0 +1,207 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.config.MetricsConfig;
+import com.abna.recipe.models.IngredientMatch;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.models.RecipePage;
+import com.abna.recipe.models.RecipePageRequest;
+import com.abna.recipe.models.RecipeSearchCriteria;
+import com.abna.recipe.repository.RecipeRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Sort;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.abna.recipe.config.CacheConfig.RECIPES_CACHE;
+import static com.abna.recipe.util.CommonUtil.mapToRecipeData;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "recipe.bitmap-index.enabled=true")
+class RecipeBitmapIndexTest {
+
+    private static final List<String> TYPES = List.of("Indian", "Italian", "Mexican");
+
+    private static final List<String> INGREDIENTS = List.of("Rice", "Tomato", "Onion", "Garlic", "Cheese");
+
+    @Autowired
+    private RecipeBitmapIndex recipeBitmapIndex;
+
+    @Autowired
+    private RecipeManagerService recipeManagerService;
+
+    @Autowired
+    private RecipeQueryCache recipeQueryCache;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        assertTrue(recipeBitmapIndex.awaitLoaded(Duration.ofSeconds(10)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        recipeRepository.deleteAll();
+        recipeBitmapIndex.load();
+        recipeQueryCache.invalidateAll();
+        cacheManager.getCache(RECIPES_CACHE).clear();
+    }
+
+    @Test
+    void filtersResolveToTheMatchingRecipesInIdOrder() {
+        List<Recipe> recipes = IntStream.rangeClosed(-10, 30).mapToObj(RecipeBitmapIndexTest::recipe)
+                .collect(Collectors.toList());
+        recipes.forEach(recipeManagerService::createRecipe);
+        double lookups = lookups();
+
+        assertSearch(recipes, RecipeSearchCriteria.builder().build(), recipe -> true);
+        assertSearch(recipes, RecipeSearchCriteria.builder().type("italian").build(),
+                recipe -> recipe.getType().equals("Italian"));
+        assertSearch(recipes, RecipeSearchCriteria.builder().serving(4).build(), recipe -> recipe.getServing() >= 4);
+        assertSearch(recipes, RecipeSearchCriteria.builder().includeIngredients(List.of("rice", "Onion")).build(),
+                recipe -> recipe.getIngredients().containsAll(List.of("Rice", "Onion")));
+        assertSearch(recipes, RecipeSearchCriteria.builder().includeIngredients(List.of("Cheese", "Garlic"))
+                        .includeMatch(IngredientMatch.ANY).build(),
+                recipe -> recipe.getIngredients().contains("Cheese") || recipe.getIngredients().contains("Garlic"));
+        assertSearch(recipes, RecipeSearchCriteria.builder().type("Indian").serving(3)
+                        .includeIngredients(List.of("Tomato")).excludeIngredients(List.of("Garlic", "Saffron")).build(),
+                recipe -> recipe.getType().equals("Indian") && recipe.getServing() >= 3
+                        && recipe.getIngredients().contains("Tomato") && !recipe.getIngredients().contains("Garlic"));
+        assertSearch(recipes, RecipeSearchCriteria.builder().includeIngredients(List.of("Saffron")).build(),
+                recipe -> false);
+
+        assertTrue(lookups() > lookups, "searches were resolved by the bitmap index");
+    }
+
+    @Test
+    void indexFollowsCommittedWrites() {
+        recipeManagerService.createRecipe(recipe(1));
+        recipeManagerService.createRecipe(recipe(2));
+        RecipeSearchCriteria mexicanWithCheese = RecipeSearchCriteria.builder().type("Mexican")
+                .includeIngredients(List.of("Cheese")).build();
+        assertEquals(List.of(2), search(mexicanWithCheese, Sort.Direction.ASC));
+
+        Recipe updated = recipe(1);
+        updated.setType("Mexican");
+        updated.setIngredients(List.of("Cheese", "Beans"));
+        recipeManagerService.updateRecipe(updated, List.of());
+        assertEquals(List.of(1, 2), search(mexicanWithCheese, Sort.Direction.ASC));
+        assertEquals(List.of(), search(RecipeSearchCriteria.builder().type(recipe(1).getType()).build(),
+                Sort.Direction.ASC));
+
+        recipeManagerService.deleteRecipeFromRepository(1);
+        assertEquals(List.of(2), search(mexicanWithCheese, Sort.Direction.ASC));
+        assertEquals(List.of(2), search(RecipeSearchCriteria.builder().build(), Sort.Direction.ASC));
+    }
+
+    @Test
+    void loadPicksUpRecipesStoredWithoutEvents() {
+        recipeRepository.saveAll(List.of(mapToRecipeData(recipe(5)), mapToRecipeData(recipe(6))));
+        assertEquals(List.of(), search(RecipeSearchCriteria.builder().build(), Sort.Direction.ASC));
+
+        recipeBitmapIndex.load();
+        recipeQueryCache.invalidateAll();
+
+        assertEquals(List.of(5, 6), search(RecipeSearchCriteria.builder().build(), Sort.Direction.ASC));
+        assertEquals(List.of(6), search(RecipeSearchCriteria.builder().type(recipe(6).getType()).build(),
+                Sort.Direction.DESC));
+    }
+
+    @Test
+    void changesArrivingOutOfOrderLeaveTheLatestState() {
+        Recipe v0 = recipeManagerService.createRecipe(recipe(1));
+        assertEquals("Italian", v0.getType());
+        Recipe v1 = withType(v0, "Mexican", 1L);
+        Recipe v2 = withType(v0, "Indian", 2L);
+
+        // the listener of the second update runs before the one of the first
+        recipeBitmapIndex.onRecipeChanged(RecipeChangedEvent.updated(v1, v2));
+        recipeBitmapIndex.onRecipeChanged(RecipeChangedEvent.updated(v0, v1));
+
+        assertEquals(List.of(1), findIds(RecipeSearchCriteria.builder().type("Indian").build()));
+        assertEquals(List.of(), findIds(RecipeSearchCriteria.builder().type("Mexican").build()));
+        assertEquals(List.of(), findIds(RecipeSearchCriteria.builder().type(v0.getType()).build()));
+    }
+
+    @Test
+    void searchesDoNotReturnRecipesTheIndexHasWrong() {
+        Recipe stored = recipeManagerService.createRecipe(recipe(1));
+        Recipe notCommitted = withType(stored, "Mexican", 1L);
+        recipeBitmapIndex.onRecipeChanged(RecipeChangedEvent.updated(stored, notCommitted));
+
+        RecipeSearchCriteria mexican = RecipeSearchCriteria.builder().type("Mexican").build();
+        assertEquals(List.of(1), findIds(mexican));
+        assertEquals(List.of(), search(mexican, Sort.Direction.ASC));
+    }
+
+    private List<Integer> findIds(RecipeSearchCriteria criteria) {
+        return recipeBitmapIndex.findIds(criteria, Sort.Direction.ASC, null, 10);
+    }
+
+    private static Recipe withType(Recipe recipe, String type, Long version) {
+        Recipe changed = recipe(recipe.getId());
+        changed.setType(type);
+        changed.setVersion(version);
+        return changed;
+    }
+
+    private void assertSearch(List<Recipe> recipes, RecipeSearchCriteria criteria, Predicate<Recipe> matches) {
+        List<Integer> expected = recipes.stream().filter(matches).map(Recipe::getId).sorted()
+                .collect(Collectors.toList());
+        assertEquals(expected, search(criteria, Sort.Direction.ASC), criteria.toString());
+        expected.sort(Comparator.reverseOrder());
+        assertEquals(expected, search(criteria, Sort.Direction.DESC), criteria.toString());
+    }
+
+    /** every page of the search, three recipes at a time */
+    private List<Integer> search(RecipeSearchCriteria criteria, Sort.Direction direction) {
+        List<Integer> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            RecipePage page = recipeManagerService.getAllRecipes(criteria,
+                    RecipePageRequest.builder().limit(3).direction(direction).cursor(cursor).build());
+            page.getRecipes().forEach(recipe -> ids.add(recipe.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private double lookups() {
+        return meterRegistry.get(MetricsConfig.SEARCH_PHASE_METRIC).tag("phase", "bitmap_index").timer().count();
+    }
+
+    private static Recipe recipe(int id) {
+        int n = Math.abs(id);
+        List<String> ingredients = INGREDIENTS.stream()
+                .filter(ingredient -> (n + ingredient.length()) % 3 != 0 || ingredient.length() == n % 7)
+                .collect(Collectors.toList());
+        return Recipe.builder()
+                .id(id)
+                .name("Recipe " + id)
+                .type(TYPES.get(n % TYPES.size()))
+                .serving(1 + n % 6)
+                .ingredients(ingredients)
+                .instructions("Cook recipe " + id)
+                .build();
+    }
+}
@@ -0,0 +1,229 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.exceptions.BadRequestException;
+import com.abna.recipe.exceptions.NoSuchRecipeException;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.models.RecipeChange;
+import com.abna.recipe.models.RecipeChangePage;
+import com.abna.recipe.repository.RecipeChangeRepository;
+import com.abna.recipe.repository.RecipeRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.abna.recipe.config.CacheConfig.RECIPES_CACHE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class RecipeChangeFeedTest {
+
+    @Autowired
+    private RecipeChangeFeed recipeChangeFeed;
+
+    @Autowired
+    private RecipeManagerService recipeManagerService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private RecipeChangeRepository recipeChangeRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private HikariDataSource dataSource;
+
+    @AfterEach
+    void tearDown() {
+        recipeRepository.deleteAll();
+        cacheManager.getCache(RECIPES_CACHE).clear();
+    }
+
+    @Test
+    void changesCarryLatestStatesAndTombstonesInOrderOfLastChange() {
+        long since = caughtUp();
+        recipeManagerService.createRecipe(recipe(1, "Chicken Biryani"));
+        recipeManagerService.createRecipe(recipe(2, "Egg Fried Rice"));
+        recipeManagerService.createRecipe(recipe(3, "Vegetable Soup"));
+        recipeManagerService.updateRecipe(recipe(1, "Mutton Biryani"), List.of());
+        recipeManagerService.deleteRecipeFromRepository(2);
+
+        RecipeChangePage page = recipeChangeFeed.getChanges(since, null);
+
+        assertEquals(List.of(3, 1, 2), ids(page));
+        assertEquals("Vegetable Soup", page.getChanges().get(0).getRecipe().getName());
+        assertEquals("Mutton Biryani", page.getChanges().get(1).getRecipe().getName());
+        assertEquals(1L, page.getChanges().get(1).getRecipe().getVersion());
+        assertTrue(page.getChanges().get(2).isDeleted());
+        assertNull(page.getChanges().get(2).getRecipe());
+        assertEquals(recipeChangeRepository.findMaxPosition(), page.getToken());
+        assertFalse(page.isHasMore());
+    }
+
+    @Test
+    void syncFromTokenReturnsOnlyLaterChanges() {
+        long since = caughtUp();
+        recipeManagerService.createRecipe(recipe(1, "Chicken Biryani"));
+        recipeManagerService.createRecipe(recipe(2, "Egg Fried Rice"));
+        long token = recipeChangeFeed.getChanges(since, null).getToken();
+
+        RecipeChangePage unchanged = recipeChangeFeed.getChanges(token, null);
+        assertTrue(unchanged.getChanges().isEmpty());
+        assertEquals(token, unchanged.getToken());
+
+        recipeManagerService.updateRecipe(recipe(2, "Egg Fried Noodles"), List.of());
+        RecipeChangePage page = recipeChangeFeed.getChanges(token, null);
+        assertEquals(List.of(2), ids(page));
+        assertEquals("Egg Fried Noodles", page.getChanges().get(0).getRecipe().getName());
+    }
+
+    @Test
+    void pagesFollowLimitAndReportMore() {
+        long since = caughtUp();
+        recipeManagerService.createRecipe(recipe(1, "Chicken Biryani"));
+        recipeManagerService.createRecipe(recipe(2, "Egg Fried Rice"));
+        recipeManagerService.createRecipe(recipe(3, "Vegetable Soup"));
+
+        RecipeChangePage first = recipeChangeFeed.getChanges(since, 2);
+        assertEquals(List.of(1, 2), ids(first));
+        assertTrue(first.isHasMore());
+
+        RecipeChangePage second = recipeChangeFeed.getChanges(first.getToken(), 2);
+        assertEquals(List.of(3), ids(second));
+        assertFalse(second.isHasMore());
+    }
+
+    @Test
+    void failedWriteLogsNothing() {
+        recipeManagerService.createRecipe(recipe(1, "Chicken Biryani"));
+        long logged = recipeChangeRepository.count();
+
+        assertThrows(NoSuchRecipeException.class, () -> recipeManagerService.deleteRecipeFromRepository(2));
+
+        assertEquals(logged, recipeChangeRepository.count());
+    }
+
+    @Test
+    void negativeTokenIsRejected() {
+        assertThrows(BadRequestException.class, () -> recipeChangeFeed.getChanges(-1, null));
+    }
+
+    @Test
+    void writeCommittingAfterALaterOneIsStillDelivered() {
+        recipeManagerService.createRecipe(recipe(1, "Chicken Biryani"));
+        recipeManagerService.createRecipe(recipe(2, "Egg Fried Rice"));
+        long token = caughtUp();
+
+        // a slow update of recipe 1 that took its sequence value before the create of recipe 2 and commits now
+        logCommittedChange(firstLoggedSeq() - 1, 1);
+
+        RecipeChangePage page = recipeChangeFeed.getChanges(token, null);
+        assertEquals(List.of(1), ids(page));
+        assertEquals("Chicken Biryani", page.getChanges().get(0).getRecipe().getName());
+    }
+
+    @Test
+    void unusedSequenceValuesDoNotStallTheFeed() {
+        long token = caughtUp();
+        recipeManagerService.createRecipe(recipe(1, "Chicken Biryani"));
+        // the rest of a sequence block dropped by a restart
+        logCommittedChange(lastLoggedSeq() + 1000, 2);
+
+        RecipeChangePage page = recipeChangeFeed.getChanges(token, null);
+
+        assertEquals(List.of(1, 2), ids(page));
+        assertTrue(page.getChanges().get(1).isDeleted());
+    }
+
+    @Test
+    @Timeout(60)
+    void moreConcurrentSyncsThanPooledConnectionsAllSucceed() throws Exception {
+        long since = caughtUp();
+        int syncs = dataSource.getMaximumPoolSize() * 3;
+        ExecutorService executor = Executors.newFixedThreadPool(syncs);
+        try {
+            for (int round = 1; round <= 3; round++) {
+                recipeManagerService.createRecipe(recipe(round, "Recipe " + round));
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<RecipeChangePage>> pages = new ArrayList<>();
+                for (int sync = 0; sync < syncs; sync++) {
+                    pages.add(executor.submit(() -> {
+                        start.await();
+                        return recipeChangeFeed.getChanges(since, null);
+                    }));
+                }
+                start.countDown();
+                for (Future<RecipeChangePage> page : pages) {
+                    assertEquals(round, page.get().getChanges().size());
+                }
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    /** token of a client that has read every committed change */
+    private long caughtUp() {
+        long token = 0;
+        RecipeChangePage page;
+        do {
+            page = recipeChangeFeed.getChanges(token, null);
+            token = page.getToken();
+        } while (page.isHasMore());
+        return token;
+    }
+
+    private void logCommittedChange(long seq, int recipeId) {
+        jdbcTemplate.update("insert into recipe_changes (seq, recipe_id, deleted, changed_at) values (?, ?, false, ?)",
+                seq, recipeId, LocalDateTime.now());
+    }
+
+    private long firstLoggedSeq() {
+        return recipeChangeRepository.findAll(Sort.by(Sort.Direction.ASC, "seq")).get(0).getSeq();
+    }
+
+    private long lastLoggedSeq() {
+        return recipeChangeRepository.findAll(Sort.by(Sort.Direction.DESC, "seq")).get(0).getSeq();
+    }
+
+    private static List<Integer> ids(RecipeChangePage page) {
+        return page.getChanges().stream().map(RecipeChange::getId).collect(Collectors.toList());
+    }
+
+    private static Recipe recipe(int id, String name) {
+        return Recipe.builder()
+                .id(id)
+                .name(name)
+                .type("Indian")
+                .serving(4)
+                .ingredients(List.of("Rice", "Water"))
+                .instructions("Cook it")
+                .build();
+    }
+}
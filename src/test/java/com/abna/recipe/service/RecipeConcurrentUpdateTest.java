@@ -0,0 +1,136 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.exceptions.PreconditionFailedException;
+import com.abna.recipe.exceptions.ResourceConflictException;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.repository.RecipeRepository;
+import com.abna.recipe.util.RecipeETags;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
+
+import static com.abna.recipe.config.CacheConfig.RECIPES_CACHE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many writers applying read-modify-write cycles to recipes at once. Each successful update increments a counter
+ * kept in the instructions, so a lost update shows up as a final count below the number of successful updates.
+ * Their throughput against a single writer is measured by ConcurrentUpdateBenchmark.
+ */
+@SpringBootTest
+class RecipeConcurrentUpdateTest {
+
+    private static final int WRITERS = 64;
+
+    private static final int UPDATES_PER_WRITER = 5;
+
+    @Autowired
+    private RecipeManagerService recipeManagerService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @AfterEach
+    void tearDown() {
+        recipeRepository.deleteAll();
+        cacheManager.getCache(RECIPES_CACHE).clear();
+    }
+
+    @Test
+    @Timeout(120)
+    void conditionalUpdatesOfOneRecipeLoseNothingAndKeepGoing() throws Exception {
+        recipeManagerService.createRecipe(recipe(1, 0));
+
+        runWriters(WRITERS, UPDATES_PER_WRITER, writer -> 1, true, new AtomicLong());
+
+        Recipe stored = recipeManagerService.getRecipeById(1);
+        assertEquals(WRITERS * UPDATES_PER_WRITER, count(stored));
+        assertEquals(WRITERS * UPDATES_PER_WRITER, stored.getVersion());
+    }
+
+    @Test
+    @Timeout(120)
+    void unconditionalUpdatesOfDistinctRecipesNeverConflict() throws Exception {
+        for (int id = 1; id <= WRITERS; id++) {
+            recipeManagerService.createRecipe(recipe(id, 0));
+        }
+
+        AtomicLong conflicts = new AtomicLong();
+        runWriters(WRITERS, UPDATES_PER_WRITER, writer -> writer + 1, false, conflicts);
+
+        assertEquals(0, conflicts.get());
+        for (int id = 1; id <= WRITERS; id++) {
+            assertEquals(UPDATES_PER_WRITER, count(recipeManagerService.getRecipeById(id)));
+        }
+    }
+
+    /**
+     * Runs the writers until each has made its updates. After a conflict a writer reads the recipe again and
+     * reapplies its change on the latest version.
+     */
+    private void runWriters(int writers, int updatesPerWriter, IntUnaryOperator recipeOfWriter, boolean conditional,
+                            AtomicLong conflicts) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int writer = 0; writer < writers; writer++) {
+            int id = recipeOfWriter.applyAsInt(writer);
+            futures.add(executor.submit(() -> {
+                start.await();
+                int updated = 0;
+                while (updated < updatesPerWriter) {
+                    Recipe current = recipeManagerService.getRecipeById(id);
+                    List<String> ifMatch = conditional
+                            ? List.of(RecipeETags.of(id, current.getCreateDateTime(), current.getVersion()))
+                            : List.of();
+                    try {
+                        recipeManagerService.updateRecipe(recipe(id, count(current) + 1), ifMatch);
+                        updated++;
+                    } catch (PreconditionFailedException | ResourceConflictException e) {
+                        conflicts.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private static int count(Recipe recipe) {
+        return Integer.parseInt(recipe.getInstructions().substring("count ".length()));
+    }
+
+    private static Recipe recipe(int id, int count) {
+        return Recipe.builder()
+                .id(id)
+                .name("Recipe " + id)
+                .type("Indian")
+                .serving(4)
+                .ingredients(List.of("Rice", "Water"))
+                .instructions("count " + count)
+                .build();
+    }
+}
@@ -0,0 +1,64 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.repository.RecipeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class RecipeExportServiceTest {
+
+    @Autowired
+    private RecipeExportService recipeExportService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void tearDown() {
+        recipeRepository.deleteAll();
+    }
+
+    @Test
+    void exportWritesOneJsonRecipePerLineInIdOrder() throws Exception {
+        recipeRepository.saveAll(List.of(recipe(2, "Pasta"), recipe(1, "Pizza"), recipe(3, "Soup")));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        long exported = recipeExportService.exportRecipes(outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertEquals(3, exported);
+        assertEquals(4, lines.length);
+        assertTrue(lines[3].isEmpty());
+        assertEquals("Pizza", objectMapper.readValue(lines[0], Recipe.class).getName());
+        assertEquals(List.of("Tomato", "Cheese"), objectMapper.readValue(lines[0], Recipe.class).getIngredients());
+        assertEquals(3, objectMapper.readValue(lines[2], Recipe.class).getId());
+    }
+
+    private static RecipeData recipe(int id, String name) {
+        return RecipeData.builder()
+                .id(id)
+                .name(name)
+                .type("Italian")
+                .serving(2)
+                .ingredients("Tomato, Cheese")
+                .ingredientKeys(Set.of("tomato", "cheese"))
+                .instructions("Bake")
+                .build();
+    }
+}
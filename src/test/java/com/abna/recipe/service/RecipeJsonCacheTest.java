@@ -0,0 +1,109 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.config.RecipeProperties;
+import com.abna.recipe.models.Recipe;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipeJsonCacheTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private RecipeJsonCache recipeJsonCache;
+
+    @BeforeEach
+    void setUp() {
+        recipeJsonCache = new RecipeJsonCache(objectMapper, new RecipeProperties(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void jsonMatchesJacksonOutputAndIsReusedForSameVersion() throws Exception {
+        Recipe recipe = recipe(1, 0L, "Cook the rice");
+
+        byte[] first = recipeJsonCache.json(recipe);
+        byte[] second = recipeJsonCache.json(recipe(1, recipe.getVersion(), "Cook the rice"));
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(recipe), first);
+        assertSame(first, second);
+    }
+
+    @Test
+    void jsonIsRewrittenForNewVersion() throws Exception {
+        recipeJsonCache.json(recipe(1, 0L, "Cook the rice"));
+        Recipe updated = recipe(1, 1L, "Steam the rice");
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(updated), recipeJsonCache.json(updated));
+    }
+
+    @Test
+    void jsonIsRewrittenAfterRecipeChanged() {
+        Recipe recipe = recipe(1, 0L, "Cook the rice");
+        byte[] first = recipeJsonCache.json(recipe);
+
+        recipeJsonCache.onRecipeChanged(RecipeChangedEvent.deleted(1, null));
+
+        assertNotSame(first, recipeJsonCache.json(recipe));
+    }
+
+    @Test
+    void recreatedRecipeIsNotServedBytesOfDeletedOne() throws Exception {
+        Recipe deleted = recipe(1, 0L, "Cook the rice");
+        deleted.setCreateDateTime(LocalDateTime.of(2022, 1, 1, 10, 0));
+        recipeJsonCache.json(deleted);
+        recipeJsonCache.onRecipeChanged(RecipeChangedEvent.deleted(1, deleted));
+
+        // a reader still holding the deleted recipe caches its bytes again after the invalidation
+        recipeJsonCache.json(deleted);
+        Recipe recreated = recipe(1, 0L, "Steam the rice");
+        recreated.setCreateDateTime(LocalDateTime.of(2022, 1, 1, 11, 0));
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(recreated), recipeJsonCache.json(recreated));
+    }
+
+    @Test
+    void jsonArrayConcatenatesRecipes() throws Exception {
+        List<Recipe> recipes = List.of(
+                recipe(1, 0L, "Cook the rice"),
+                recipe(2, 0L, "Bake the bread"));
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(recipes), recipeJsonCache.jsonArray(recipes));
+        assertEquals("[]", new String(recipeJsonCache.jsonArray(List.of())));
+    }
+
+    @Test
+    void gzipIsOnlyMadeForLargerRecipes() throws Exception {
+        Recipe small = recipe(1, 0L, "Cook the rice");
+        Recipe large = recipe(2, 0L,
+                String.join(" ", Collections.nCopies(200, "stir")));
+
+        assertNull(recipeJsonCache.gzip(small));
+        byte[] compressed = recipeJsonCache.gzip(large);
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(recipeJsonCache.json(large), inputStream.readAllBytes());
+        }
+        assertSame(compressed, recipeJsonCache.gzip(large));
+    }
+
+    private static Recipe recipe(int id, Long version, String instructions) {
+        return Recipe.builder()
+                .id(id)
+                .name("Recipe " + id)
+                .type("Indian")
+                .serving(4)
+                .ingredients(List.of("Rice", "Water"))
+                .instructions(instructions)
+                .version(version)
+                .build();
+    }
+}
@@ -0,0 +1,93 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.repository.RecipeRepository;
+import com.abna.recipe.util.CommonUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.List;
+import java.util.Optional;
+
+import static com.abna.recipe.config.CacheConfig.RECIPES_CACHE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+class RecipeManagerServiceCacheTest {
+
+    @MockBean
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private RecipeManagerService recipeManagerService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.getCache(RECIPES_CACHE).clear();
+    }
+
+    @Test
+    void getRecipeByIdIsServedFromCacheAfterFirstLookup() {
+        when(recipeRepository.findById(1)).thenReturn(Optional.of(recipeData(1, "Chicken Biryani")));
+        long hitsBefore = nativeCache().stats().hitCount();
+
+        recipeManagerService.getRecipeById(1);
+        Recipe recipe = recipeManagerService.getRecipeById(1);
+
+        assertEquals("Chicken Biryani", recipe.getName());
+        verify(recipeRepository, times(1)).findById(1);
+        assertEquals(hitsBefore + 1, nativeCache().stats().hitCount());
+    }
+
+    @Test
+    void updateRecipeRefreshesTheCachedEntry() {
+        when(recipeRepository.findById(1)).thenReturn(Optional.of(recipeData(1, "Chicken Biryani")));
+        when(recipeRepository.update(any(RecipeData.class), any())).thenReturn(1);
+
+        recipeManagerService.getRecipeById(1);
+        recipeManagerService.updateRecipe(CommonUtil.mapToRecipeModel(recipeData(1, "Mutton Biryani")), List.of());
+
+        assertEquals("Mutton Biryani", recipeManagerService.getRecipeById(1).getName());
+        // one lookup for the first read and one for the update, the last read is served by the refreshed entry
+        verify(recipeRepository, times(2)).findById(1);
+    }
+
+    @Test
+    void deleteRecipeEvictsTheCachedEntry() {
+        when(recipeRepository.findById(1)).thenReturn(Optional.of(recipeData(1, "Chicken Biryani")));
+        when(recipeRepository.deleteRecipeById(1)).thenReturn(1);
+
+        recipeManagerService.getRecipeById(1);
+        recipeManagerService.deleteRecipeFromRepository(1);
+        recipeManagerService.getRecipeById(1);
+
+        verify(recipeRepository, times(2)).findById(1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<Object, Object> nativeCache() {
+        return ((CaffeineCache) cacheManager.getCache(RECIPES_CACHE)).getNativeCache();
+    }
+
+    private static RecipeData recipeData(int id, String name) {
+        return RecipeData.builder()
+                .id(id)
+                .name(name)
+                .type("Indian")
+                .serving(4)
+                .ingredients("Chicken, Rice")
+                .instructions("Cook")
+                .build();
+    }
+}
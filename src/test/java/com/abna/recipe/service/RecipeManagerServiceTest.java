@@ -1,24 +1,47 @@
 package com.abna.recipe.service;
 
+import com.abna.recipe.config.MetricsConfig;
+import com.abna.recipe.config.RecipeProperties;
 import com.abna.recipe.entity.RecipeData;
+import com.abna.recipe.exceptions.BadRequestException;
+import com.abna.recipe.exceptions.NoSuchRecipeException;
+import com.abna.recipe.exceptions.PreconditionFailedException;
+import com.abna.recipe.exceptions.ResourceConflictException;
 import com.abna.recipe.models.Recipe;
+import com.abna.recipe.models.RecipeCursor;
+import com.abna.recipe.models.RecipePage;
+import com.abna.recipe.models.RecipePageRequest;
+import com.abna.recipe.models.RecipeSearchCriteria;
+import com.abna.recipe.models.RecipeSortKey;
+import com.abna.recipe.models.RecipeSummary;
+import com.abna.recipe.models.RecipeSummaryPage;
+import com.abna.recipe.repository.RecipeFullTextSearch;
 import com.abna.recipe.repository.RecipeRepository;
 import com.abna.recipe.util.CommonUtil;
+import com.abna.recipe.util.RecipeETags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,11 +50,32 @@ class RecipeManagerServiceTest {
     @Mock
     private RecipeRepository recipeRepository;
 
+    @Mock
+    private RecipeFullTextSearch recipeFullTextSearch;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private RecipesCacheUpdater recipesCacheUpdater;
+
+    @Mock
+    private RecipeBitmapIndex recipeBitmapIndex;
+
     private RecipeManagerService recipeManagerService;
 
+    private SimpleMeterRegistry meterRegistry;
+
+    private RecipeQueryCache recipeQueryCache;
+
     @BeforeEach
     void setUp() {
-        recipeManagerService = new RecipeManagerService(recipeRepository);
+        meterRegistry = new SimpleMeterRegistry();
+        RecipeProperties recipeProperties = new RecipeProperties();
+        recipeQueryCache = new RecipeQueryCache(recipeProperties, meterRegistry, Runnable::run,
+                mock(PlatformTransactionManager.class));
+        recipeManagerService = new RecipeManagerService(recipeRepository, recipeFullTextSearch, recipeProperties,
+                meterRegistry, recipeQueryCache, eventPublisher, recipesCacheUpdater, recipeBitmapIndex);
     }
 
     @Test
@@ -52,15 +96,104 @@ class RecipeManagerServiceTest {
                         .instructions("Cook the chicken and rice together")
                         .build();
 
-        RecipeData recipeData = CommonUtil.mapToRecipeData(recipe);
-
-        when(recipeRepository.save(any(RecipeData.class))).thenReturn(recipeData);
-
         Recipe savedRecipe = recipeManagerService.createRecipe(recipe);
 
         assertEquals(recipe.getName(), savedRecipe.getName());
         assertEquals(recipe.getType(), savedRecipe.getType());
         assertEquals(recipe.getInstructions(), savedRecipe.getInstructions());
+        verify(recipeRepository, times(1)).insert(any(RecipeData.class));
+        verify(recipeRepository, never()).findById(any());
+    }
+
+    @Test
+    void createRecipeWhenIdIsTakenThenThrowConflict() {
+        Recipe recipe = recipe(1, "Chicken Biryani");
+        doThrow(new DataIntegrityViolationException("duplicate",
+                new SQLException("Unique index or primary key violation", "23505")))
+                .when(recipeRepository).insert(any(RecipeData.class));
+
+        assertThrows(ResourceConflictException.class, () -> recipeManagerService.createRecipe(recipe));
+    }
+
+    @Test
+    void updateRecipeWritesConditionalOnTheVersionThatWasRead() {
+        RecipeData stored = CommonUtil.mapToRecipeData(recipe(1, "Chicken Biryani"));
+        stored.setVersion(3L);
+        when(recipeRepository.findById(1)).thenReturn(Optional.of(stored));
+        when(recipeRepository.update(any(RecipeData.class), any())).thenAnswer(invocation -> {
+            RecipeData written = invocation.getArgument(0);
+            written.setVersion(written.getVersion() + 1);
+            return 1;
+        });
+
+        Recipe updatedRecipe = recipeManagerService.updateRecipe(recipe(1, "Mutton Biryani"), List.of());
+
+        assertEquals("Mutton Biryani", updatedRecipe.getName());
+        assertEquals(4L, updatedRecipe.getVersion());
+        assertEquals(stored.getCreateDateTime(), updatedRecipe.getCreateDateTime());
+        verify(recipeRepository).update(argThat(written -> written.getName().equals("Mutton Biryani")),
+                eq(Set.of("chicken", "rice", "spices")));
+        verify(recipeRepository, never()).save(any());
+        verify(recipeRepository, never()).flush();
+    }
+
+    @Test
+    void updateRecipeWhenRecipeIsMissingThenThrowNotFound() {
+        when(recipeRepository.findById(1)).thenReturn(Optional.empty());
+
+        Recipe recipe = recipe(1, "Mutton Biryani");
+        assertThrows(NoSuchRecipeException.class, () -> recipeManagerService.updateRecipe(recipe, List.of()));
+        verify(recipeRepository, never()).update(any(), any());
+    }
+
+    @Test
+    void updateRecipeWhenIfMatchIsStaleThenThrowPreconditionFailed() {
+        RecipeData stored = CommonUtil.mapToRecipeData(recipe(1, "Chicken Biryani"));
+        when(recipeRepository.findById(1)).thenReturn(Optional.of(stored));
+        stored.setVersion(2L);
+        List<String> ifMatch = List.of(RecipeETags.of(1, stored.getCreateDateTime(), 1L));
+
+        Recipe recipe = recipe(1, "Mutton Biryani");
+        assertThrows(PreconditionFailedException.class, () -> recipeManagerService.updateRecipe(recipe, ifMatch));
+        verify(recipeRepository, never()).update(any(), any());
+        verify(recipesCacheUpdater).refresh(argThat(cached -> cached.getVersion() == 2L));
+    }
+
+    @Test
+    void updateRecipeWhenAnotherUpdateCommittedFirstThenThrowConflict() {
+        RecipeData stored = CommonUtil.mapToRecipeData(recipe(1, "Chicken Biryani"));
+        when(recipeRepository.findById(1)).thenReturn(Optional.of(stored));
+        when(recipeRepository.update(any(RecipeData.class), any())).thenReturn(0);
+        when(recipeRepository.existsById(1)).thenReturn(true);
+
+        Recipe recipe = recipe(1, "Mutton Biryani");
+        assertThrows(ResourceConflictException.class, () -> recipeManagerService.updateRecipe(recipe, List.of()));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void updateRecipeWhenDeletedMeanwhileThenThrowNotFound() {
+        RecipeData stored = CommonUtil.mapToRecipeData(recipe(1, "Chicken Biryani"));
+        when(recipeRepository.findById(1)).thenReturn(Optional.of(stored));
+        when(recipeRepository.update(any(RecipeData.class), any())).thenReturn(0);
+        when(recipeRepository.existsById(1)).thenReturn(false);
+
+        Recipe recipe = recipe(1, "Mutton Biryani");
+        assertThrows(NoSuchRecipeException.class, () -> recipeManagerService.updateRecipe(recipe, List.of()));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void updateRecipeWhenTaggedVersionIsOverwrittenMeanwhileThenThrowPreconditionFailed() {
+        RecipeData stored = CommonUtil.mapToRecipeData(recipe(1, "Chicken Biryani"));
+        stored.setVersion(1L);
+        when(recipeRepository.findById(1)).thenReturn(Optional.of(stored));
+        when(recipeRepository.update(any(RecipeData.class), any())).thenReturn(0);
+        when(recipeRepository.existsById(1)).thenReturn(true);
+        List<String> ifMatch = List.of(RecipeETags.of(1, stored.getCreateDateTime(), 1L));
+
+        Recipe recipe = recipe(1, "Mutton Biryani");
+        assertThrows(PreconditionFailedException.class, () -> recipeManagerService.updateRecipe(recipe, ifMatch));
     }
 
     @Test
@@ -93,11 +226,11 @@ class RecipeManagerServiceTest {
     @Test
     void testGetRecipeById() {
         final Recipe expectedResult = new Recipe(0, "name", "type", 0, List.of("ingredients"), "instructions",
-                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0));
+                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0), 0L);
 
         final Optional<RecipeData> recipeData = Optional.of(
-                new RecipeData(0, "name", "type", 0, "ingredients", "instructions",
-                        LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0)));
+                new RecipeData(0, "name", "name", "type", "type", 0, "ingredients", "instructions",
+                        LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0), 0L, Set.of("ingredients"), 1));
         when(recipeRepository.findById(0)).thenReturn(recipeData);
 
         final Recipe result = recipeManagerService.getRecipeById(0);
@@ -117,11 +250,11 @@ class RecipeManagerServiceTest {
     @Test
     void testGetAllRecipes() {
         final List<Recipe> expectedResult = List.of(new Recipe(0, "name", "type", 0, List.of("ingredients"), "instructions",
-                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0)));
+                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0), 0L));
 
-        final List<RecipeData> recipeData = List.of(new RecipeData(0, "name", "type", 0, "ingredients", "instructions",
-                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0)));
-        when(recipeRepository.findAll(any(Specification.class))).thenReturn(recipeData);
+        final List<RecipeData> recipeData = List.of(new RecipeData(0, "name", "name", "type", "type", 0, "ingredients", "instructions",
+                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0), 0L, Set.of("ingredients"), 1));
+        when(recipeRepository.findPage(any(), any(), anyInt())).thenReturn(recipeData);
 
         final List<Recipe> result = recipeManagerService.getAllRecipes("name", 0, List.of("ingredients"),
                 List.of("ingredients"), "type", "instructions");
@@ -132,7 +265,7 @@ class RecipeManagerServiceTest {
     @Test
     void testGetAllRecipesRecipeRepositoryReturnsNoItems() {
         final List<Recipe> expectedResult = Collections.emptyList();
-        when(recipeRepository.findAll(any(Specification.class))).thenReturn(Collections.emptyList());
+        when(recipeRepository.findPage(any(), any(), anyInt())).thenReturn(Collections.emptyList());
 
         final List<Recipe> result = recipeManagerService.getAllRecipes("", 0, null, null, null, null);
 
@@ -161,7 +294,7 @@ class RecipeManagerServiceTest {
                         .ingredients("test")
                         .build();
 
-        lenient().when(recipeRepository.findAll((Specification<RecipeData>) any())).thenReturn(List.of(recipeData));
+        lenient().when(recipeRepository.findPage(any(), any(), anyInt())).thenReturn(List.of(recipeData));
 
         Recipe recipe = CommonUtil.mapToRecipeModel(recipeData);
 
@@ -171,11 +304,148 @@ class RecipeManagerServiceTest {
     @Test
     void deleteRecipeFromRepositoryWhenIdIsValid() {
         Integer id = 1;
-
-        recipeRepository.findById(id);
+        when(recipeRepository.deleteRecipeById(id)).thenReturn(1);
 
         recipeManagerService.deleteRecipeFromRepository(id);
 
-        verify(recipeRepository, times(1)).deleteById(id);
+        verify(recipeRepository, times(1)).deleteRecipeById(id);
+        verify(recipeRepository, never()).findById(any());
+    }
+
+    @Test
+    void deleteRecipeFromRepositoryWhenRecipeIsMissingThenThrowNotFound() {
+        when(recipeRepository.deleteRecipeById(1)).thenReturn(0);
+
+        assertThrows(NoSuchRecipeException.class, () -> recipeManagerService.deleteRecipeFromRepository(1));
+    }
+
+    @Test
+    void getAllRecipesReturnsCursorWhenMoreRecipesFollow() {
+        List<RecipeData> rows = List.of(
+                RecipeData.builder().id(1).name("one").type("t").serving(1).ingredients("a").instructions("i").build(),
+                RecipeData.builder().id(2).name("two").type("t").serving(1).ingredients("a").instructions("i").build(),
+                RecipeData.builder().id(3).name("three").type("t").serving(1).ingredients("a").instructions("i").build());
+        when(recipeRepository.findPage(any(), eq(Sort.by(Sort.Direction.ASC, "id")), eq(3))).thenReturn(rows);
+
+        RecipePage page = recipeManagerService.getAllRecipes(new RecipeSearchCriteria(),
+                RecipePageRequest.builder().limit(2).build());
+
+        assertEquals(2, page.getRecipes().size());
+        RecipeCursor cursor = RecipeCursor.decode(page.getNextCursor());
+        assertEquals(2, cursor.getLastId());
+        assertEquals(RecipeSortKey.ID, cursor.getSortBy());
+    }
+
+    @Test
+    void getAllRecipesCapsThePageSize() {
+        when(recipeRepository.findPage(any(), any(), anyInt())).thenReturn(Collections.emptyList());
+
+        recipeManagerService.getAllRecipes(new RecipeSearchCriteria(),
+                RecipePageRequest.builder().limit(100000).build());
+
+        verify(recipeRepository).findPage(any(), any(), eq(new RecipeProperties().getSearch().getMaxPageSize() + 1));
+    }
+
+    @Test
+    void getAllRecipesReportsNotModifiedPageWithoutMapping() {
+        List<RecipeData> rows = List.of(
+                RecipeData.builder().id(1).name("one").type("t").serving(1).ingredients("a").instructions("i").build());
+        when(recipeRepository.findPage(any(), any(), anyInt())).thenReturn(rows);
+        RecipePage firstResponse = recipeManagerService.getAllRecipes(new RecipeSearchCriteria(),
+                RecipePageRequest.builder().build());
+
+        RecipePage page = recipeManagerService.getAllRecipes(new RecipeSearchCriteria(),
+                RecipePageRequest.builder().ifNoneMatch(List.of(firstResponse.getEtag())).build());
+
+        assertFalse(firstResponse.isNotModified());
+        assertEquals(1, firstResponse.getRecipes().size());
+        assertTrue(page.isNotModified());
+        assertTrue(page.getRecipes().isEmpty());
+        assertEquals(firstResponse.getEtag(), page.getEtag());
+    }
+
+    @Test
+    void getAllRecipesServesRepeatedSearchFromQueryCacheUntilRecipeChanges() {
+        List<RecipeData> rows = List.of(CommonUtil.mapToRecipeData(recipe(1, "Chicken Biryani")));
+        when(recipeRepository.findPage(any(), any(), anyInt())).thenReturn(rows);
+        RecipeSearchCriteria criteria = RecipeSearchCriteria.builder().type("Indian").build();
+
+        recipeManagerService.getAllRecipes(criteria, RecipePageRequest.builder().build());
+        recipeManagerService.getAllRecipes(criteria, RecipePageRequest.builder().build());
+        verify(recipeRepository, times(1)).findPage(any(), any(), anyInt());
+
+        when(recipeRepository.deleteRecipeById(1)).thenReturn(1);
+        recipeManagerService.deleteRecipeFromRepository(1);
+        verify(eventPublisher).publishEvent(RecipeChangedEvent.deleted(1, null));
+        recipeQueryCache.onRecipeChanged(RecipeChangedEvent.deleted(1, null));
+        recipeManagerService.getAllRecipes(criteria, RecipePageRequest.builder().build());
+        verify(recipeRepository, times(2)).findPage(any(), any(), anyInt());
+    }
+
+    @Test
+    void getRecipeSummariesReturnsPageWithCursor() {
+        LocalDateTime time = LocalDateTime.of(2022, 10, 1, 12, 0);
+        when(recipeRepository.findSummaryPage(any(), eq(Sort.by(Sort.Direction.ASC, "id")), eq(3))).thenReturn(List.of(
+                new RecipeSummary(1, "one", "t", 2, time),
+                new RecipeSummary(2, "two", "t", 2, time),
+                new RecipeSummary(3, "three", "t", 2, time)));
+
+        RecipeSummaryPage page = recipeManagerService.getRecipeSummaries(new RecipeSearchCriteria(),
+                RecipePageRequest.builder().limit(2).build());
+
+        assertEquals(2, page.getSummaries().size());
+        assertEquals(2, RecipeCursor.decode(page.getNextCursor()).getLastId());
+        assertFalse(page.isNotModified());
+        verify(recipeRepository, never()).findPage(any(), any(), anyInt());
+    }
+
+    @Test
+    void getRecipeSummariesRejectsFullTextQuery() {
+        RecipeSearchCriteria criteria = RecipeSearchCriteria.builder().q("tomato").build();
+
+        assertThrows(BadRequestException.class,
+                () -> recipeManagerService.getRecipeSummaries(criteria, RecipePageRequest.builder().build()));
+    }
+
+    @Test
+    void getAllRecipesCountsFilterCombinationsAndTimesPhases() {
+        when(recipeRepository.findPage(any(), any(), anyInt())).thenReturn(Collections.emptyList());
+
+        recipeManagerService.getAllRecipes(RecipeSearchCriteria.builder()
+                .type("Indian")
+                .name("Biryani")
+                .includeIngredients(List.of("Rice"))
+                .build(), RecipePageRequest.builder().build());
+        recipeManagerService.getAllRecipes(new RecipeSearchCriteria(), RecipePageRequest.builder().build());
+
+        assertEquals(1.0, meterRegistry.get(MetricsConfig.SEARCH_FILTERS_METRIC)
+                .tag("filters", "name+type+includeAll").counter().count());
+        assertEquals(1.0, meterRegistry.get(MetricsConfig.SEARCH_FILTERS_METRIC)
+                .tag("filters", "none").counter().count());
+        assertEquals(2, meterRegistry.get(MetricsConfig.SEARCH_PHASE_METRIC).tag("phase", "query").timer().count());
+        assertEquals(2, meterRegistry.get(MetricsConfig.SEARCH_PHASE_METRIC).tag("phase", "mapping").timer().count());
+    }
+
+    @Test
+    void getAllRecipesRejectsCursorOfAnotherSortOrder() {
+        String cursor = new RecipeCursor(RecipeSortKey.ID, Sort.Direction.ASC, 5, null, null).encode();
+        RecipePageRequest pageRequest = RecipePageRequest.builder()
+                .cursor(cursor)
+                .direction(Sort.Direction.DESC)
+                .build();
+
+        assertThrows(BadRequestException.class,
+                () -> recipeManagerService.getAllRecipes(new RecipeSearchCriteria(), pageRequest));
+    }
+
+    private static Recipe recipe(int id, String name) {
+        return Recipe.builder()
+                .id(id)
+                .name(name)
+                .type("Indian")
+                .serving(4)
+                .ingredients(Arrays.asList("Chicken", "Rice", "Spices"))
+                .instructions("Cook the chicken and rice together")
+                .build();
     }
 }
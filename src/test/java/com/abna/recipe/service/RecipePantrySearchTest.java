@@ -0,0 +1,148 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.config.RecipeProperties;
+import com.abna.recipe.exceptions.BadRequestException;
+import com.abna.recipe.models.PantryMatch;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.repository.RecipeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.abna.recipe.config.CacheConfig.RECIPES_CACHE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class RecipePantrySearchTest {
+
+    private static final List<String> PANTRY = List.of("Rice", "water", "Salt", "Tomato", "Garlic");
+
+    @Autowired
+    private RecipePantrySearch recipePantrySearch;
+
+    @Autowired
+    private RecipeManagerService recipeManagerService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private RecipeProperties recipeProperties;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    /** the same search answered from a loaded bitmap index */
+    private RecipePantrySearch bitmapPantrySearch;
+
+    @BeforeEach
+    void setUp() {
+        recipeManagerService.createRecipe(recipe(1, "Rice", "Water", "Salt"));
+        recipeManagerService.createRecipe(recipe(2, "Rice", "Water"));
+        recipeManagerService.createRecipe(recipe(3, "Pasta", "Tomato", "Garlic", "Basil"));
+        recipeManagerService.createRecipe(recipe(4, "Tomato", "Garlic"));
+        recipeManagerService.createRecipe(recipe(5, "Bread"));
+        recipeManagerService.createRecipe(recipe(6, "Rice", "Chicken", "Onion", "Garlic", "Salt"));
+        recipeManagerService.createRecipe(recipe(7, "Tomato", "Garlic", "Onion"));
+        recipeManagerService.createRecipe(recipe(8, "Salt", "Pepper", "Chicken", "Rice", "Garlic"));
+
+        RecipeProperties enabled = new RecipeProperties();
+        enabled.getBitmapIndex().setEnabled(true);
+        RecipeBitmapIndex recipeBitmapIndex = new RecipeBitmapIndex(recipeRepository, transactionTemplate, enabled,
+                new SimpleMeterRegistry());
+        recipeBitmapIndex.load();
+        bitmapPantrySearch = new RecipePantrySearch(recipeRepository, recipeBitmapIndex, recipeProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        recipeRepository.deleteAll();
+        cacheManager.getCache(RECIPES_CACHE).clear();
+    }
+
+    @Test
+    void recipesFullyCoveredByThePantryAreFound() {
+        for (RecipePantrySearch search : List.of(recipePantrySearch, bitmapPantrySearch)) {
+            List<PantryMatch> matches = search.findCookable(PANTRY, null, null);
+
+            assertEquals(List.of(1, 2, 4), ids(matches));
+            matches.forEach(match -> {
+                assertEquals(1.0, match.getCoverage());
+                assertEquals(List.of(), match.getMissingIngredients());
+            });
+        }
+    }
+
+    @Test
+    void missingIngredientsAreToleratedAndRankedByCoverage() {
+        for (RecipePantrySearch search : List.of(recipePantrySearch, bitmapPantrySearch)) {
+            assertEquals(List.of(1, 2, 4, 7), ids(search.findCookable(PANTRY, 1, null)));
+
+            List<PantryMatch> matches = search.findCookable(PANTRY, 2, null);
+            // 7 has two of three on hand, 6 and 8 three of five, 3 two of four; bread alone shares nothing
+            assertEquals(List.of(1, 2, 4, 7, 6, 8, 3), ids(matches));
+            assertEquals(List.of("Onion"), matches.get(3).getMissingIngredients());
+            assertEquals(2.0 / 3, matches.get(3).getCoverage(), 1e-9);
+            assertEquals(List.of("Pepper", "Chicken"), matches.get(5).getMissingIngredients());
+
+            assertEquals(List.of(1, 2, 4), ids(search.findCookable(PANTRY, 2, 3)));
+        }
+    }
+
+    @Test
+    void resultsFollowWrites() {
+        recipeManagerService.deleteRecipeFromRepository(2);
+
+        assertEquals(List.of(1, 4), ids(recipePantrySearch.findCookable(PANTRY, 0, null)));
+        // the hand-built index misses the event, the recipe it still ranks is left out once loaded
+        assertEquals(List.of(1, 4), ids(bitmapPantrySearch.findCookable(PANTRY, 0, null)));
+    }
+
+    @Test
+    void recipesTheIndexRankedFromAnOlderStateAreCheckedAgain() {
+        recipeManagerService.updateRecipe(recipe(4, "Tomato", "Garlic", "Onion", "Chicken"), List.of());
+
+        assertEquals(List.of(1, 2), ids(recipePantrySearch.findCookable(PANTRY, 0, null)));
+        // the hand-built index misses the event and still ranks 4 as covered, it now misses two ingredients
+        assertEquals(List.of(1, 2), ids(bitmapPantrySearch.findCookable(PANTRY, 0, null)));
+        assertEquals(List.of(1, 2, 4), ids(bitmapPantrySearch.findCookable(PANTRY, 2, 3)));
+    }
+
+    @Test
+    void invalidPantrySearchesAreRejected() {
+        assertThrows(BadRequestException.class, () -> recipePantrySearch.findCookable(null, null, null));
+        assertThrows(BadRequestException.class, () -> recipePantrySearch.findCookable(List.of(" "), null, null));
+        assertThrows(BadRequestException.class, () -> recipePantrySearch.findCookable(PANTRY, -1, null));
+        assertThrows(BadRequestException.class, () -> recipePantrySearch.findCookable(PANTRY,
+                recipeProperties.getPantry().getMaxMissing() + 1, null));
+        assertFalse(recipePantrySearch.findCookable(List.of("salt", "PEPPER"), 3, null).isEmpty());
+    }
+
+    private static List<Integer> ids(List<PantryMatch> matches) {
+        return matches.stream().map(match -> match.getRecipe().getId()).collect(Collectors.toList());
+    }
+
+    private static Recipe recipe(int id, String... ingredients) {
+        return Recipe.builder()
+                .id(id)
+                .name("Recipe " + id)
+                .type("Home")
+                .serving(2)
+                .ingredients(List.of(ingredients))
+                .instructions("Cook it")
+                .build();
+    }
+}
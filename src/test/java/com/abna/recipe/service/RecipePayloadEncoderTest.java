@@ -0,0 +1,105 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.config.PayloadFormatConfig;
+import com.abna.recipe.config.RecipeProperties;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.service.RecipePayloadEncoder.Format;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipePayloadEncoderTest {
+
+    private ObjectMapper jsonMapper;
+
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    private ServerProperties serverProperties;
+
+    private RecipePayloadEncoder encoder;
+
+    @BeforeEach
+    void setUp() {
+        PayloadFormatConfig config = new PayloadFormatConfig();
+        jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+        cborConverter = config.cborHttpMessageConverter(Jackson2ObjectMapperBuilder.json());
+        smileConverter = config.smileHttpMessageConverter(Jackson2ObjectMapperBuilder.json());
+        serverProperties = new ServerProperties();
+        encoder = new RecipePayloadEncoder(
+                new RecipeJsonCache(jsonMapper, new RecipeProperties(), new SimpleMeterRegistry()), jsonMapper,
+                cborConverter, smileConverter, serverProperties);
+    }
+
+    @Test
+    void formatFollowsTheMostPreferredAcceptedType() {
+        assertEquals(Format.JSON, Format.negotiate(List.of()));
+        assertEquals(Format.JSON, Format.negotiate(MediaType.parseMediaTypes("*/*")));
+        assertEquals(Format.CBOR, Format.negotiate(MediaType.parseMediaTypes("application/cbor")));
+        assertEquals(Format.SMILE, Format.negotiate(
+                MediaType.parseMediaTypes("application/json;q=0.5, application/x-jackson-smile")));
+        assertEquals(Format.CBOR, Format.negotiate(MediaType.parseMediaTypes("application/cbor, */*;q=0.1")));
+    }
+
+    @Test
+    void binaryFormatsRoundTripAndAreSmallerThanJson() throws Exception {
+        List<Recipe> recipes = List.of(recipe(1), recipe(2), recipe(3));
+        byte[] json = encoder.recipes(recipes, Format.JSON);
+        // timestamps and version are not read from request bodies, so compare with what JSON carries back
+        List<Recipe> fromJson = List.of(jsonMapper.readValue(json, Recipe[].class));
+
+        for (Format format : List.of(Format.CBOR, Format.SMILE)) {
+            byte[] encoded = encoder.recipes(recipes, format);
+            ObjectMapper mapper = format == Format.CBOR
+                    ? cborConverter.getObjectMapper() : smileConverter.getObjectMapper();
+
+            Recipe[] decoded = mapper.readValue(encoded, Recipe[].class);
+
+            assertEquals(fromJson, List.of(decoded), format.name());
+            assertTrue(encoded.length < json.length, format + " " + encoded.length + " bytes, JSON " + json.length);
+        }
+    }
+
+    @Test
+    void compressionFollowsServerSettings() throws Exception {
+        assertFalse(encoder.shouldCompress(1 << 20));
+
+        serverProperties.getCompression().setEnabled(true);
+        serverProperties.getCompression().setMinResponseSize(DataSize.ofBytes(100));
+        assertFalse(encoder.shouldCompress(99));
+        assertTrue(encoder.shouldCompress(100));
+
+        byte[] body = encoder.recipes(List.of(recipe(1), recipe(2)), Format.JSON);
+        byte[] inflated = new GZIPInputStream(new ByteArrayInputStream(encoder.gzip(body))).readAllBytes();
+        assertArrayEquals(body, inflated);
+    }
+
+    private static Recipe recipe(int id) {
+        return Recipe.builder()
+                .id(id)
+                .name("Recipe number " + id)
+                .type("Indian")
+                .serving(4)
+                .ingredients(List.of("Rice", "Water", "Salt"))
+                .instructions("Boil the water, add the rice and cook for twenty minutes")
+                .createDateTime(LocalDateTime.of(2022, 1, 1, 0, 0))
+                .updateDateTime(LocalDateTime.of(2022, 1, 1, 0, 0).plusSeconds(id))
+                .version(0L)
+                .build();
+    }
+}
@@ -0,0 +1,207 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.config.RecipeProperties;
+import com.abna.recipe.models.IngredientMatch;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.models.RecipePage;
+import com.abna.recipe.models.RecipeSearchCriteria;
+import com.abna.recipe.models.RecipeSortKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class RecipeQueryCacheTest {
+
+    private RecipeProperties recipeProperties;
+
+    private RecipeQueryCache recipeQueryCache;
+
+    /** reloads handed to the rewarm executor, run by the tests themselves */
+    private final List<Runnable> rewarms = new ArrayList<>();
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    @BeforeEach
+    void setUp() {
+        recipeProperties = new RecipeProperties();
+        recipeQueryCache = newQueryCache();
+    }
+
+    @Test
+    void keyNormalizesBlankFiltersAndIngredientOrder() {
+        RecipeQueryKey first = key(RecipeSearchCriteria.builder()
+                .name("")
+                .serving(0)
+                .includeIngredients(Arrays.asList("Rice", "chicken"))
+                .build());
+        RecipeQueryKey second = key(RecipeSearchCriteria.builder()
+                .includeIngredients(Arrays.asList(" Chicken", "rice "))
+                .build());
+
+        assertEquals(first, second);
+    }
+
+    @Test
+    void keyMatchesRecipesTheFiltersWouldReturn() {
+        Recipe recipe = recipe(1, "Chicken Biryani", "Indian", List.of("Chicken", "Rice"));
+
+        assertTrue(key(RecipeSearchCriteria.builder().name("biryani").serving(2).build()).matches(recipe));
+        assertTrue(key(RecipeSearchCriteria.builder().includeIngredients(List.of("rice", "chicken")).build()).matches(recipe));
+        assertTrue(key(RecipeSearchCriteria.builder().includeIngredients(List.of("rice", "tofu"))
+                .includeMatch(IngredientMatch.ANY).build()).matches(recipe));
+        assertFalse(key(RecipeSearchCriteria.builder().includeIngredients(List.of("rice", "tofu")).build()).matches(recipe));
+        assertFalse(key(RecipeSearchCriteria.builder().excludeIngredients(List.of("chicken")).build()).matches(recipe));
+        assertFalse(key(RecipeSearchCriteria.builder().serving(6).build()).matches(recipe));
+        assertFalse(key(RecipeSearchCriteria.builder().type("Italian").build()).matches(recipe));
+    }
+
+    @Test
+    void cachedPageIsServedWithoutRunningTheLoader() {
+        AtomicInteger loads = new AtomicInteger();
+        RecipeQueryKey key = key(RecipeSearchCriteria.builder().type("Indian").build());
+        Supplier<RecipePage> loader = () -> {
+            loads.incrementAndGet();
+            return page(recipe(1, "Chicken Biryani", "Indian", List.of("Chicken")));
+        };
+
+        recipeQueryCache.get(key, loader);
+        RecipePage page = recipeQueryCache.get(key, loader);
+
+        assertEquals(1, loads.get());
+        assertEquals(1, page.getRecipes().size());
+    }
+
+    @Test
+    void changeOnlyInvalidatesPagesItCanAffect() {
+        RecipeQueryKey indian = key(RecipeSearchCriteria.builder().type("Indian").build());
+        RecipeQueryKey italian = key(RecipeSearchCriteria.builder().type("Italian").build());
+        AtomicInteger indianLoads = new AtomicInteger();
+        AtomicInteger italianLoads = new AtomicInteger();
+        Supplier<RecipePage> indianLoader = countingLoader(indianLoads, page());
+        Supplier<RecipePage> italianLoader = countingLoader(italianLoads, page());
+        recipeQueryCache.get(indian, indianLoader);
+        recipeQueryCache.get(italian, italianLoader);
+
+        recipeQueryCache.onRecipeChanged(RecipeChangedEvent.created(
+                recipe(2, "Paneer Tikka", "Indian", List.of("Paneer"))));
+        recipeQueryCache.get(indian, indianLoader);
+        recipeQueryCache.get(italian, italianLoader);
+
+        assertEquals(2, indianLoads.get());
+        assertEquals(1, italianLoads.get());
+    }
+
+    @Test
+    void updateInvalidatesPagesMatchingTheOldState() {
+        Recipe before = recipe(3, "Margherita Pizza", "Italian", List.of("Tomato"));
+        Recipe after = recipe(3, "Margherita Pizza", "Neapolitan", List.of("Tomato"));
+        RecipeQueryKey italian = key(RecipeSearchCriteria.builder().type("Italian").build());
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<RecipePage> loader = countingLoader(loads, page(before));
+        recipeQueryCache.get(italian, loader);
+
+        recipeQueryCache.onRecipeChanged(RecipeChangedEvent.updated(before, after));
+        recipeQueryCache.get(italian, loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void deleteOfUnknownRecipeKeepsCompletePagesWithoutIt() {
+        RecipeQueryKey key = key(RecipeSearchCriteria.builder().type("Indian").build());
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<RecipePage> loader = countingLoader(loads, page(recipe(1, "Chicken Biryani", "Indian", List.of("Chicken"))));
+        recipeQueryCache.get(key, loader);
+
+        recipeQueryCache.onRecipeChanged(RecipeChangedEvent.deleted(5, null));
+        recipeQueryCache.get(key, loader);
+        recipeQueryCache.onRecipeChanged(RecipeChangedEvent.deleted(1, null));
+        recipeQueryCache.get(key, loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void pageLoadedAcrossAChangeIsNotKept() {
+        RecipeQueryKey key = key(RecipeSearchCriteria.builder().type("Indian").build());
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<RecipePage> loader = () -> {
+            if (loads.incrementAndGet() == 1) {
+                // a write to an unrelated recipe commits while the first query runs
+                recipeQueryCache.onRecipeChanged(RecipeChangedEvent.deleted(9, null));
+            }
+            return page();
+        };
+
+        recipeQueryCache.get(key, loader);
+        recipeQueryCache.get(key, loader);
+        recipeQueryCache.get(key, loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void popularPageIsReloadedAfterInvalidation() {
+        recipeProperties.getQueryCache().setRewarmMinHits(2);
+        recipeQueryCache = newQueryCache();
+        RecipeQueryKey key = key(RecipeSearchCriteria.builder().type("Indian").build());
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<RecipePage> loader = countingLoader(loads, page());
+        for (int i = 0; i < 3; i++) {
+            recipeQueryCache.get(key, loader);
+        }
+
+        recipeQueryCache.onRecipeChanged(RecipeChangedEvent.created(recipe(2, "Paneer Tikka", "Indian", List.of("Paneer"))));
+        assertEquals(1, rewarms.size());
+        rewarms.forEach(Runnable::run);
+        recipeQueryCache.get(key, loader);
+
+        assertEquals(2, loads.get());
+        // reloaded in a read-only transaction, the way a miss loads inside the search transaction
+        verify(transactionManager).getTransaction(argThat(TransactionDefinition::isReadOnly));
+    }
+
+    private RecipeQueryCache newQueryCache() {
+        return new RecipeQueryCache(recipeProperties, new SimpleMeterRegistry(), rewarms::add, transactionManager);
+    }
+
+    private static Supplier<RecipePage> countingLoader(AtomicInteger loads, RecipePage page) {
+        return () -> {
+            loads.incrementAndGet();
+            return page;
+        };
+    }
+
+    private static RecipeQueryKey key(RecipeSearchCriteria criteria) {
+        return RecipeQueryKey.of(criteria, RecipeSortKey.ID, Sort.Direction.ASC, 50, null);
+    }
+
+    private static RecipePage page(Recipe... recipes) {
+        return new RecipePage(List.of(recipes), null, "\"etag\"", false);
+    }
+
+    private static Recipe recipe(int id, String name, String type, List<String> ingredients) {
+        return Recipe.builder()
+                .id(id)
+                .name(name)
+                .type(type)
+                .serving(4)
+                .ingredients(ingredients)
+                .instructions("Cook everything together")
+                .build();
+    }
+}
@@ -0,0 +1,147 @@
+package com.abna.recipe.service;
+
+import com.abna.recipe.config.RecipeProperties;
+import com.abna.recipe.exceptions.NoSuchRecipeException;
+import com.abna.recipe.exceptions.ServiceUnavailableException;
+import com.abna.recipe.models.Recipe;
+import com.abna.recipe.models.SimilarRecipe;
+import com.abna.recipe.repository.RecipeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.abna.recipe.config.CacheConfig.RECIPES_CACHE;
+import static com.abna.recipe.util.CommonUtil.toIngredientKeys;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "recipe.similarity.enabled=true")
+class RecipeSimilaritySearchTest {
+
+    @Autowired
+    private RecipeSimilaritySearch recipeSimilaritySearch;
+
+    @Autowired
+    private RecipeSimilarityIndex recipeSimilarityIndex;
+
+    @Autowired
+    private RecipeManagerService recipeManagerService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private RecipeProperties recipeProperties;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        assertTrue(recipeSimilarityIndex.awaitLoaded(Duration.ofSeconds(10)));
+        recipeManagerService.createRecipe(recipe(1, "Rice", "Water", "Salt", "Onion", "Garlic"));
+        recipeManagerService.createRecipe(recipe(2, "rice", "water", "salt", "onion", "garlic"));
+        recipeManagerService.createRecipe(recipe(3, "Rice", "Water", "Salt", "Onion", "Pepper"));
+        recipeManagerService.createRecipe(recipe(4, "Rice", "Water", "Salt", "Onion"));
+        recipeManagerService.createRecipe(recipe(5, "Flour", "Sugar", "Eggs", "Butter"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        recipeRepository.deleteAll();
+        recipeSimilarityIndex.load();
+        cacheManager.getCache(RECIPES_CACHE).clear();
+    }
+
+    @Test
+    void similarRecipesAreRankedByJaccardSimilarity() {
+        List<SimilarRecipe> similar = recipeSimilaritySearch.findSimilar(1, null);
+
+        assertEquals(List.of(2, 4, 3), ids(similar));
+        assertEquals(1.0, similar.get(0).getSimilarity());
+        assertEquals(4.0 / 5, similar.get(1).getSimilarity(), 1e-9);
+        assertEquals(4.0 / 6, similar.get(2).getSimilarity(), 1e-9);
+
+        assertEquals(List.of(2, 4), ids(recipeSimilaritySearch.findSimilar(1, 2)));
+        assertEquals(List.of(), ids(recipeSimilaritySearch.findSimilar(5, null)));
+    }
+
+    @Test
+    void indexFollowsCommittedWrites() {
+        Recipe updated = recipe(5, "Rice", "Water", "Salt", "Onion", "Garlic");
+        recipeManagerService.updateRecipe(updated, List.of());
+        assertEquals(List.of(2, 5, 4, 3), ids(recipeSimilaritySearch.findSimilar(1, null)));
+
+        recipeManagerService.deleteRecipeFromRepository(2);
+        assertEquals(List.of(5, 4, 3), ids(recipeSimilaritySearch.findSimilar(1, null)));
+
+        recipeManagerService.createRecipe(recipe(6, "Rice", "Water", "Salt", "Onion", "Garlic", "Pepper"));
+        assertEquals(List.of(5, 6, 4, 3), ids(recipeSimilaritySearch.findSimilar(1, null)));
+    }
+
+    @Test
+    void changesArrivingOutOfOrderLeaveTheLatestIngredients() {
+        Recipe v0 = recipeManagerService.getRecipeById(5);
+        Recipe v1 = withIngredients(v0, 1L, "Rice", "Water", "Salt", "Onion", "Garlic");
+        Recipe v2 = withIngredients(v0, 2L, "Flour", "Sugar", "Eggs", "Milk");
+
+        // the listener of the second update runs before the one of the first
+        recipeSimilarityIndex.onRecipeChanged(RecipeChangedEvent.updated(v1, v2));
+        recipeSimilarityIndex.onRecipeChanged(RecipeChangedEvent.updated(v0, v1));
+
+        assertEquals(List.of(2, 4, 3), recipeSimilarityIndex.findSimilar(1,
+                toIngredientKeys(List.of("Rice", "Water", "Salt", "Onion", "Garlic")), 10));
+    }
+
+    @Test
+    void similarRecipesAreUnavailableUntilTheIndexHasLoaded() throws InterruptedException {
+        RecipeSimilarityIndex index = new RecipeSimilarityIndex(recipeRepository, transactionTemplate,
+                recipeProperties, new SimpleMeterRegistry());
+        RecipeSimilaritySearch search = new RecipeSimilaritySearch(recipeRepository, index, recipeProperties);
+        assertThrows(ServiceUnavailableException.class, () -> search.findSimilar(1, null));
+
+        index.run(null);
+        assertTrue(index.awaitLoaded(Duration.ofSeconds(5)));
+
+        assertEquals(List.of(2, 4, 3), ids(search.findSimilar(1, null)));
+    }
+
+    @Test
+    void unknownRecipeIsNotFound() {
+        assertThrows(NoSuchRecipeException.class, () -> recipeSimilaritySearch.findSimilar(42, null));
+    }
+
+    private static List<Integer> ids(List<SimilarRecipe> similarRecipes) {
+        return similarRecipes.stream().map(similar -> similar.getRecipe().getId()).collect(Collectors.toList());
+    }
+
+    private static Recipe withIngredients(Recipe recipe, Long version, String... ingredients) {
+        Recipe changed = recipe(recipe.getId(), ingredients);
+        changed.setVersion(version);
+        return changed;
+    }
+
+    private static Recipe recipe(int id, String... ingredients) {
+        return Recipe.builder()
+                .id(id)
+                .name("Recipe " + id)
+                .type("Home")
+                .serving(2)
+                .ingredients(List.of(ingredients))
+                .instructions("Cook it")
+                .build();
+    }
+}
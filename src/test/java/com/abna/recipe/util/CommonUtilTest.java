@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -14,9 +15,9 @@ class CommonUtilTest {
     @Test
     void testMapToRecipeData() {
         final Recipe recipe = new Recipe(0, "name", "type", 0, List.of("ingredients"), "instructions",
-                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0));
-        final RecipeData expectedResult = new RecipeData(0, "name", "type", 0, "ingredients", "instructions",
-                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0));
+                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0), 0L);
+        final RecipeData expectedResult = new RecipeData(0, "name", null, "type", null, 0, "ingredients", "instructions",
+                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0), 0L, Set.of("ingredients"), null);
 
         final RecipeData result = CommonUtil.mapToRecipeData(recipe);
 
@@ -25,15 +26,22 @@ class CommonUtilTest {
         assertEquals(expectedResult.getServing(), result.getServing());
         assertEquals(expectedResult.getIngredients(), result.getIngredients());
         assertEquals(expectedResult.getType(), result.getType());
+        assertEquals(expectedResult.getIngredientKeys(), result.getIngredientKeys());
+    }
+
+    @Test
+    void testToIngredientKeysNormalizes() {
+        final Set<String> result = CommonUtil.toIngredientKeys(List.of(" Rice", "rice ", "Chicken", " "));
 
+        assertEquals(Set.of("rice", "chicken"), result);
     }
 
     @Test
     void testMapToRecipeModel() {
-        final RecipeData recipeData = new RecipeData(0, "name", "type", 0, "ingredients", "instructions",
-                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0));
+        final RecipeData recipeData = new RecipeData(0, "name", "name", "type", "type", 0, "ingredients", "instructions",
+                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0), 0L, Set.of("ingredients"), 1);
         final Recipe expectedResult = new Recipe(0, "name", "type", 0, List.of("ingredients"), "instructions",
-                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0));
+                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0), 0L);
 
         final Recipe result = CommonUtil.mapToRecipeModel(recipeData);
 
@@ -43,7 +51,7 @@ class CommonUtilTest {
     @Test
     void testSanitizeRecipeFalse() {
         final Recipe recipe = new Recipe(0, "name", "", 0, List.of("ingredients"), "instructions",
-                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0));
+                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0), 0L);
 
         final Boolean result = CommonUtil.sanitizeRecipe(recipe);
 
@@ -53,7 +61,7 @@ class CommonUtilTest {
     @Test
     void testSanitizeRecipeTrue() {
         final Recipe recipe = new Recipe(0, "name", "type", 0, List.of("ingredients"), "instructions",
-                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0));
+                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0, 0), 0L);
 
         final Boolean result = CommonUtil.sanitizeRecipe(recipe);
 
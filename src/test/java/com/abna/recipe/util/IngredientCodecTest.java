@@ -0,0 +1,45 @@
+package com.abna.recipe.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngredientCodecTest {
+
+    private static final String LEGACY_PATTERN = "\\s*, \\s*";
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "Rice", "Chicken, Rice, Spices", "Chicken ,  Rice", "a,b, c", ", Rice", "Rice, ",
+            "Rice, , ", ", ", ",", "Rice,\tSalt", "Rice \t,  \nSalt", " Rice , Salt ", "Rice,, Salt", "a, , b"})
+    void splitMatchesLegacyRegex(String value) {
+        assertEquals(Arrays.asList(value.split(LEGACY_PATTERN)), IngredientCodec.split(value));
+    }
+
+    @Test
+    void splitMatchesLegacyRegexOnRandomInput() {
+        char[] alphabet = {'a', 'b', ',', ' ', '\t', '\n'};
+        Random random = new Random(42);
+        for (int run = 0; run < 10000; run++) {
+            char[] chars = new char[random.nextInt(12)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+            String value = new String(chars);
+            assertEquals(Arrays.asList(value.split(LEGACY_PATTERN)), IngredientCodec.split(value),
+                    "input: [" + value + "]");
+        }
+    }
+
+    @Test
+    void joinThenSplitRoundTrips() {
+        List<String> ingredients = List.of("Chicken", "Rice", "Spices");
+
+        assertEquals(ingredients, IngredientCodec.split(IngredientCodec.join(ingredients)));
+    }
+}
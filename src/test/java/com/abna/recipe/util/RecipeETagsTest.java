@@ -0,0 +1,72 @@
+package com.abna.recipe.util;
+
+import com.abna.recipe.entity.RecipeData;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipeETagsTest {
+
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2022, 10, 1, 12, 30, 15, 123456000);
+
+    @Test
+    void recipeTagChangesWithVersion() {
+        String etag = RecipeETags.of(1, UPDATED, 3L);
+
+        assertTrue(etag.startsWith("\"1-") && etag.endsWith("-3\""));
+        assertEquals(etag, RecipeETags.of(1, UPDATED, 3L));
+        assertNotEquals(etag, RecipeETags.of(1, UPDATED, 4L));
+        assertNotEquals(etag, RecipeETags.of(2, UPDATED, 3L));
+    }
+
+    @Test
+    void recipeTagChangesWhenRecipeIsCreatedAgain() {
+        assertNotEquals(RecipeETags.of(1, UPDATED, 0L), RecipeETags.of(1, UPDATED.plusNanos(1000), 0L));
+    }
+
+    @Test
+    void pageTagChangesWithRecipesAndCursor() {
+        List<RecipeData> page = List.of(recipeData(1, UPDATED), recipeData(2, UPDATED));
+
+        String etag = RecipeETags.ofPage(page, null);
+
+        assertEquals(34, etag.length());
+        assertEquals(etag, RecipeETags.ofPage(List.of(recipeData(1, UPDATED), recipeData(2, UPDATED)), null));
+        assertNotEquals(etag, RecipeETags.ofPage(List.of(recipeData(1, UPDATED), recipeData(2, UPDATED.plusSeconds(1))), null));
+        assertNotEquals(etag, RecipeETags.ofPage(List.of(recipeData(1, UPDATED)), null));
+        assertNotEquals(etag, RecipeETags.ofPage(page, "cursor"));
+    }
+
+    @Test
+    void ifNoneMatchUsesWeakComparison() {
+        String etag = RecipeETags.of(1, UPDATED, 0L);
+
+        assertTrue(RecipeETags.matchesAny(List.of("\"other\"", etag), etag));
+        assertTrue(RecipeETags.matchesAny(List.of("W/" + etag), etag));
+        assertTrue(RecipeETags.matchesAny(List.of("*"), etag));
+        assertFalse(RecipeETags.matchesAny(List.of("\"other\""), etag));
+        assertFalse(RecipeETags.matchesAny(null, etag));
+    }
+
+    @Test
+    void ifMatchUsesStrongComparison() {
+        String etag = RecipeETags.of(1, UPDATED, 0L);
+
+        assertTrue(RecipeETags.matchesAnyStrong(List.of(etag), etag));
+        assertTrue(RecipeETags.matchesAnyStrong(List.of("*"), etag));
+        assertFalse(RecipeETags.matchesAnyStrong(List.of("W/" + etag), etag));
+    }
+
+    @Test
+    void lastModifiedHasSecondPrecision() {
+        assertEquals(0, RecipeETags.lastModified(UPDATED) % 1000);
+        assertEquals(RecipeETags.lastModified(UPDATED), RecipeETags.lastModified(UPDATED.withNano(0)));
+    }
+
+    private static RecipeData recipeData(int id, LocalDateTime updateDateTime) {
+        return RecipeData.builder().id(id).updateDateTime(updateDateTime).build();
+    }
+}